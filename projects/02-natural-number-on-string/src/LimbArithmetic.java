@@ -0,0 +1,1216 @@
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.function.BinaryOperator;
+
+/**
+ * Word-level arithmetic on natural numbers stored as arrays of base
+ * 10<sup>9</sup> limbs, least significant limb first.
+ *
+ * <p>
+ * Every array passed to or returned from these methods is <i>trimmed</i>: its
+ * last entry (if any) is non-zero, and 0 is the empty array. Arguments are
+ * never modified and results never alias their arguments, so the caller is
+ * free to keep or mutate both.
+ *
+ * @mathdefinitions <pre>
+ * IS_LIMBS(
+ *   a: string of integer
+ *  ): boolean is
+ *  [all entries of a are in [0, BASE)]  and
+ *  [if |a| > 0 then the last entry of a is not 0]
+ *
+ * NUMERIC_VALUE(
+ *   a: string of integer
+ *  ): integer is
+ *  sum i: integer where (0 <= i < |a|) (a[i] * BASE^i)
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+final class LimbArithmetic {
+
+    /**
+     * The base of each limb.
+     */
+    static final int BASE = 1_000_000_000;
+
+    /**
+     * Number of decimal digits held by one limb.
+     */
+    static final int DIGITS_PER_LIMB = 9;
+
+    /**
+     * The trimmed representation of 0.
+     */
+    static final int[] ZERO = new int[0];
+
+    /**
+     * The trimmed representation of 1; never modified.
+     */
+    private static final int[] ONE = { 1 };
+
+    /**
+     * Shortest operand length (in limbs) for which {@code multiply} uses
+     * Karatsuba's method instead of the schoolbook method.
+     */
+    static final int KARATSUBA_THRESHOLD = 80;
+
+    /**
+     * Shortest operand length (in limbs) for which {@code multiply} uses the
+     * Toom-Cook 3-way method instead of Karatsuba's method.
+     */
+    static final int TOOM3_THRESHOLD = 256;
+
+    /**
+     * Shortest divisor and quotient length (in limbs) for which {@code divide}
+     * multiplies by a Newton reciprocal instead of using long division.
+     */
+    static final int NEWTON_DIVIDE_THRESHOLD = 800;
+
+    /**
+     * Shortest root length (in limbs) for which {@code root} seeds Newton's
+     * iteration with the root of the high half of the radicand.
+     */
+    static final int NEWTON_ROOT_THRESHOLD = 40;
+
+    /**
+     * Number of bits per decimal digit, log2(10).
+     */
+    private static final double BITS_PER_DIGIT = Math.log(10) / Math.log(2);
+
+    /**
+     * Number of limbs {@code writeTo} formats per chunk.
+     */
+    private static final int WRITE_CHUNK_LIMBS = 1024;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private LimbArithmetic() {
+    }
+
+    /**
+     * Returns a copy of {@code a[0, length)} with its high zero limbs removed.
+     *
+     * @param a
+     *            the limbs
+     * @param length
+     *            the number of low limbs of {@code a} to keep
+     * @return the trimmed limbs
+     * @requires 0 <= length <= |a|
+     * @ensures <pre>
+     * IS_LIMBS(trim)  and  NUMERIC_VALUE(trim) = NUMERIC_VALUE(a[0, length))
+     * </pre>
+     */
+    static int[] trim(int[] a, int length) {
+        int n = length;
+        while (n > 0 && a[n - 1] == 0) {
+            n--;
+        }
+        int[] result = a;
+        if (n != a.length) {
+            result = new int[n];
+            System.arraycopy(a, 0, result, 0, n);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the limbs of {@code x}.
+     *
+     * @param x
+     *            the value
+     * @return the limbs of x
+     * @requires x >= 0
+     * @ensures IS_LIMBS(fromLong) and NUMERIC_VALUE(fromLong) = x
+     */
+    static int[] fromLong(long x) {
+        assert x >= 0 : "Violation of: x >= 0";
+        int[] result;
+        if (x == 0) {
+            result = ZERO;
+        } else if (x < BASE) {
+            result = new int[] { (int) x };
+        } else if (x / BASE < BASE) {
+            result = new int[] { (int) (x % BASE), (int) (x / BASE) };
+        } else {
+            long high = x / BASE;
+            result = new int[] { (int) (x % BASE), (int) (high % BASE),
+                    (int) (high / BASE) };
+        }
+        return result;
+    }
+
+    /**
+     * Parses the decimal depiction {@code s[from, to)}.
+     *
+     * @param s
+     *            the decimal depiction
+     * @param from
+     *            index of the first (most significant) digit
+     * @param to
+     *            index one past the last (least significant) digit
+     * @return the limbs of the depicted number
+     * @requires <pre>
+     * 0 <= from <= to <= |s|  and
+     * [all characters of s[from, to) are '0' through '9']
+     * </pre>
+     * @ensures IS_LIMBS(parse) and NUMERIC_VALUE(parse) = [value of s[from,to)]
+     */
+    static int[] parse(CharSequence s, int from, int to) {
+        /*
+         * Limbs are decimal, so each one is read from (and written to) its own
+         * fixed group of DIGITS_PER_LIMB characters: conversion in both
+         * directions is linear and needs no table of powers of ten.
+         */
+        int[] result = new int[(to - from + DIGITS_PER_LIMB - 1)
+                / DIGITS_PER_LIMB];
+        int end = to;
+        for (int i = 0; i < result.length; i++) {
+            int start = Math.max(from, end - DIGITS_PER_LIMB);
+            int limb = 0;
+            for (int j = start; j < end; j++) {
+                limb = limb * 10 + (s.charAt(j) - '0');
+            }
+            result[i] = limb;
+            end = start;
+        }
+        return trim(result, result.length);
+    }
+
+    /**
+     * Reports whether {@code s} is the decimal depiction of a natural number,
+     * i.e., whether it matches "0|[1-9][0-9]*", in one pass and without
+     * compiling a regular expression.
+     *
+     * @param s
+     *            the candidate depiction
+     * @return true iff there exists n: NATURAL (s = TO_STRING(n))
+     */
+    static boolean isDepiction(CharSequence s) {
+        int length = s.length();
+        boolean valid = length > 0
+                && (s.charAt(0) != '0' || length == 1);
+        for (int i = 0; valid && i < length; i++) {
+            char c = s.charAt(i);
+            valid = '0' <= c && c <= '9';
+        }
+        return valid;
+    }
+
+    /**
+     * Reports whether the ints remaining in {@code a} are limbs of a natural
+     * number: each in [0, BASE), with the last (if any) not 0. The position of
+     * {@code a} is not changed.
+     *
+     * @param a
+     *            the candidate limbs
+     * @return true iff IS_LIMBS([the remaining ints of a])
+     */
+    static boolean isLimbs(IntBuffer a) {
+        int start = a.position();
+        int end = a.limit();
+        boolean valid = start == end || a.get(end - 1) != 0;
+        for (int i = start; valid && i < end; i++) {
+            int limb = a.get(i);
+            valid = 0 <= limb && limb < BASE;
+        }
+        return valid;
+    }
+
+    /**
+     * Writes the {@code DIGITS_PER_LIMB} decimal digits of {@code limb},
+     * zero-padded, into {@code dest[end - DIGITS_PER_LIMB, end)}.
+     *
+     * @param limb
+     *            the limb
+     * @param dest
+     *            the destination
+     * @param end
+     *            index one past the last digit to write
+     * @updates dest
+     * @requires 0 <= limb < BASE and DIGITS_PER_LIMB <= end <= |dest|
+     */
+    private static void writeLimb(int limb, char[] dest, int end) {
+        int rest = limb;
+        for (int i = end - 1; i >= end - DIGITS_PER_LIMB; i--) {
+            int quotient = rest / 10;
+            dest[i] = (char) ('0' + (rest - quotient * 10));
+            rest = quotient;
+        }
+    }
+
+    /**
+     * Returns the decimal depiction of {@code a} as a character array of
+     * exactly the right length.
+     *
+     * @param a
+     *            the limbs
+     * @return the decimal depiction of a
+     * @requires IS_LIMBS(a)
+     * @ensures toChars = TO_STRING(NUMERIC_VALUE(a))
+     */
+    static char[] toChars(int[] a) {
+        char[] result;
+        if (a.length == 0) {
+            result = new char[] { '0' };
+        } else {
+            result = new char[decimalLength(a)];
+            int top = result.length - (a.length - 1) * DIGITS_PER_LIMB;
+            int rest = a[a.length - 1];
+            for (int i = top - 1; i >= 0; i--) {
+                result[i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            }
+            for (int i = a.length - 2; i >= 0; i--) {
+                writeLimb(a[i], result,
+                        top + (a.length - 1 - i) * DIGITS_PER_LIMB);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the decimal depiction of {@code a} to {@code out}, a bounded
+     * chunk at a time, without building it in memory first.
+     *
+     * @param a
+     *            the limbs
+     * @param out
+     *            the destination
+     * @throws IOException
+     *             if {@code out} throws it
+     * @updates out
+     * @requires IS_LIMBS(a)
+     * @ensures out = #out * TO_STRING(NUMERIC_VALUE(a))
+     */
+    static void writeTo(int[] a, Appendable out) throws IOException {
+        if (a.length <= WRITE_CHUNK_LIMBS) {
+            out.append(CharBuffer.wrap(toChars(a)));
+        } else {
+            out.append(Integer.toString(a[a.length - 1]));
+            char[] chunk = new char[WRITE_CHUNK_LIMBS * DIGITS_PER_LIMB];
+            CharBuffer view = CharBuffer.wrap(chunk);
+            int used = 0;
+            for (int i = a.length - 2; i >= 0; i--) {
+                used += DIGITS_PER_LIMB;
+                writeLimb(a[i], chunk, used);
+                if (used == chunk.length || i == 0) {
+                    view.clear();
+                    view.limit(used);
+                    out.append(view);
+                    used = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares {@code a} and {@code b}.
+     *
+     * @param a
+     *            the first number
+     * @param b
+     *            the second number
+     * @return negative, zero, or positive as a is less than, equal to, or
+     *         greater than b
+     * @requires IS_LIMBS(a) and IS_LIMBS(b)
+     */
+    static int compare(int[] a, int[] b) {
+        int result = Integer.compare(a.length, b.length);
+        for (int i = a.length - 1; result == 0 && i >= 0; i--) {
+            result = Integer.compare(a[i], b[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a + b}.
+     *
+     * @param a
+     *            the first addend
+     * @param b
+     *            the second addend
+     * @return the sum
+     * @requires IS_LIMBS(a) and IS_LIMBS(b)
+     * @ensures <pre>
+     * IS_LIMBS(add)  and
+     * NUMERIC_VALUE(add) = NUMERIC_VALUE(a) + NUMERIC_VALUE(b)
+     * </pre>
+     */
+    static int[] add(int[] a, int[] b) {
+        int[] longer = a;
+        int[] shorter = b;
+        if (a.length < b.length) {
+            longer = b;
+            shorter = a;
+        }
+        int[] sum = new int[longer.length + 1];
+        int carry = 0;
+        for (int i = 0; i < longer.length; i++) {
+            int s = longer[i] + carry;
+            if (i < shorter.length) {
+                s += shorter[i];
+            }
+            carry = 0;
+            if (s >= BASE) {
+                s -= BASE;
+                carry = 1;
+            }
+            sum[i] = s;
+        }
+        sum[longer.length] = carry;
+        return trim(sum, sum.length);
+    }
+
+    /**
+     * Returns {@code a - b}.
+     *
+     * @param a
+     *            the minuend
+     * @param b
+     *            the subtrahend
+     * @return the difference
+     * @requires IS_LIMBS(a) and IS_LIMBS(b) and NUMERIC_VALUE(a) >=
+     *           NUMERIC_VALUE(b)
+     * @ensures <pre>
+     * IS_LIMBS(subtract)  and
+     * NUMERIC_VALUE(subtract) = NUMERIC_VALUE(a) - NUMERIC_VALUE(b)
+     * </pre>
+     */
+    static int[] subtract(int[] a, int[] b) {
+        assert compare(a, b) >= 0 : "Violation of: a >= b";
+        int[] difference = new int[a.length];
+        int borrow = 0;
+        for (int i = 0; i < a.length; i++) {
+            int d = a[i] - borrow;
+            if (i < b.length) {
+                d -= b[i];
+            }
+            borrow = 0;
+            if (d < 0) {
+                d += BASE;
+                borrow = 1;
+            }
+            difference[i] = d;
+        }
+        return trim(difference, difference.length);
+    }
+
+    /**
+     * Returns {@code a * m + k}.
+     *
+     * @param a
+     *            the number
+     * @param m
+     *            the small multiplier
+     * @param k
+     *            the small addend
+     * @return a * m + k
+     * @requires IS_LIMBS(a) and 0 <= m < BASE and 0 <= k < BASE
+     * @ensures <pre>
+     * IS_LIMBS(multiplySmall)  and
+     * NUMERIC_VALUE(multiplySmall) = NUMERIC_VALUE(a) * m + k
+     * </pre>
+     */
+    static int[] multiplySmall(int[] a, int m, int k) {
+        int[] product = new int[a.length + 1];
+        long carry = k;
+        for (int i = 0; i < a.length; i++) {
+            long p = (long) a[i] * m + carry;
+            carry = p / BASE;
+            product[i] = (int) (p - carry * BASE);
+        }
+        product[a.length] = (int) carry;
+        return trim(product, product.length);
+    }
+
+    /**
+     * Divides {@code a} by {@code d}, storing the quotient in
+     * {@code quotient[0, |a|)}, and returns the remainder.
+     *
+     * @param a
+     *            the dividend
+     * @param d
+     *            the small divisor
+     * @param quotient
+     *            array to receive the (untrimmed) quotient limbs
+     * @return the remainder
+     * @updates quotient
+     * @requires IS_LIMBS(a) and 0 < d < BASE and |quotient| >= |a|
+     * @ensures <pre>
+     * NUMERIC_VALUE(a) = NUMERIC_VALUE(quotient[0, |a|)) * d + divideSmall  and
+     * 0 <= divideSmall < d
+     * </pre>
+     */
+    static int divideSmall(int[] a, int d, int[] quotient) {
+        long remainder = 0;
+        for (int i = a.length - 1; i >= 0; i--) {
+            long current = remainder * BASE + a[i];
+            quotient[i] = (int) (current / d);
+            remainder = current - (long) quotient[i] * d;
+        }
+        return (int) remainder;
+    }
+
+    /**
+     * Returns {@code a * b}.
+     *
+     * @param a
+     *            the first factor
+     * @param b
+     *            the second factor
+     * @return the product
+     * @requires IS_LIMBS(a) and IS_LIMBS(b)
+     * @ensures <pre>
+     * IS_LIMBS(multiply)  and
+     * NUMERIC_VALUE(multiply) = NUMERIC_VALUE(a) * NUMERIC_VALUE(b)
+     * </pre>
+     */
+    static int[] multiply(int[] a, int[] b) {
+        int[] longer = a;
+        int[] shorter = b;
+        if (a.length < b.length) {
+            longer = b;
+            shorter = a;
+        }
+        int[] result;
+        if (shorter.length < KARATSUBA_THRESHOLD) {
+            result = multiplySchoolbook(longer, shorter);
+        } else {
+            int[][] factors = splitFactors(longer, shorter);
+            int[][] products = new int[factors.length / 2][];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = multiply(factors[2 * i], factors[2 * i + 1]);
+            }
+            result = combineProducts(longer, shorter, products);
+        }
+        return result;
+    }
+
+    /**
+     * Splits the product {@code a * b} into smaller, independent products
+     * whose results {@code combineProducts} turns back into {@code a * b}.
+     *
+     * <p>
+     * A much longer {@code a} is cut into {@code |b|}-limb slices, each
+     * multiplied by {@code b}. Balanced operands are split by Karatsuba's
+     * method (three half-size products) below {@code TOOM3_THRESHOLD} limbs
+     * and by the Toom-Cook 3-way method (five third-size products) above it.
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @return the factors of the sub-products, as consecutive pairs
+     * @requires <pre>
+     * IS_LIMBS(a)  and  IS_LIMBS(b)  and  KARATSUBA_THRESHOLD <= |b| <= |a|
+     * </pre>
+     * @ensures <pre>
+     * |splitFactors| is even  and
+     * [every entry of splitFactors is IS_LIMBS, and shorter than a]
+     * </pre>
+     */
+    static int[][] splitFactors(int[] a, int[] b) {
+        int[][] factors;
+        if (a.length >= 2 * b.length) {
+            int pieces = (a.length + b.length - 1) / b.length;
+            factors = new int[2 * pieces][];
+            for (int i = 0; i < pieces; i++) {
+                factors[2 * i] = slice(a, i * b.length, (i + 1) * b.length);
+                factors[2 * i + 1] = b;
+            }
+        } else if (b.length < TOOM3_THRESHOLD) {
+            factors = karatsubaFactors(a, b);
+        } else {
+            factors = toom3Factors(a, b);
+        }
+        return factors;
+    }
+
+    /**
+     * Returns {@code a * b} given the products of the factor pairs returned by
+     * {@code splitFactors(a, b)}.
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @param products
+     *            the products of the pairs from splitFactors(a, b), in order
+     * @return the product
+     * @requires <pre>
+     * [a, b as for splitFactors]  and
+     * products[i] = splitFactors(a, b)[2i] * splitFactors(a, b)[2i + 1]
+     * </pre>
+     * @ensures [same as multiply]
+     */
+    static int[] combineProducts(int[] a, int[] b, int[][] products) {
+        int[] result;
+        if (a.length >= 2 * b.length) {
+            int[] product = new int[a.length + b.length + 1];
+            for (int i = 0; i < products.length; i++) {
+                addShifted(product, products[i], i * b.length);
+            }
+            result = trim(product, product.length);
+        } else if (b.length < TOOM3_THRESHOLD) {
+            result = karatsubaCombine(a, b, products);
+        } else {
+            result = toom3Combine(a, b, products);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a * b} by the quadratic schoolbook method.
+     *
+     * @param a
+     *            the first factor
+     * @param b
+     *            the second factor
+     * @return the product
+     * @requires IS_LIMBS(a) and IS_LIMBS(b)
+     * @ensures [same as multiply]
+     */
+    static int[] multiplySchoolbook(int[] a, int[] b) {
+        int[] result = ZERO;
+        if (a.length > 0 && b.length > 0) {
+            int[] product = new int[a.length + b.length];
+            for (int i = 0; i < a.length; i++) {
+                long carry = 0;
+                long ai = a[i];
+                for (int j = 0; j < b.length; j++) {
+                    long p = ai * b[j] + product[i + j] + carry;
+                    carry = p / BASE;
+                    product[i + j] = (int) (p - carry * BASE);
+                }
+                product[i + b.length] = (int) carry;
+            }
+            result = trim(product, product.length);
+        }
+        return result;
+    }
+
+    /**
+     * Splits {@code a * b} by Karatsuba's method: with each factor cut into a
+     * low and a high half, the three products are low * low, high * high and
+     * (low + high) * (low + high).
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @return the factors of the three sub-products, as consecutive pairs
+     * @requires <pre>
+     * IS_LIMBS(a)  and  IS_LIMBS(b)  and  0 < |b| <= |a| < 2 * |b|
+     * </pre>
+     */
+    private static int[][] karatsubaFactors(int[] a, int[] b) {
+        int half = (a.length + 1) / 2;
+        int[] a0 = slice(a, 0, half);
+        int[] a1 = slice(a, half, a.length);
+        int[] b0 = slice(b, 0, half);
+        int[] b1 = slice(b, half, b.length);
+        return new int[][] { a0, b0, a1, b1, add(a0, a1), add(b0, b1) };
+    }
+
+    /**
+     * Combines the three products from {@code karatsubaFactors(a, b)} into
+     * {@code a * b}.
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @param products
+     *            the three sub-products, in order
+     * @return the product
+     * @requires [as for karatsubaFactors, with products computed from it]
+     * @ensures [same as multiply]
+     */
+    private static int[] karatsubaCombine(int[] a, int[] b,
+            int[][] products) {
+        int half = (a.length + 1) / 2;
+        int[] z0 = products[0];
+        int[] z2 = products[1];
+        int[] z1 = subtract(subtract(products[2], z0), z2);
+        int[] product = new int[a.length + b.length + 1];
+        addShifted(product, z0, 0);
+        addShifted(product, z1, half);
+        addShifted(product, z2, 2 * half);
+        return trim(product, product.length);
+    }
+
+    /**
+     * Splits {@code a * b} by the Toom-Cook 3-way method, cutting each factor
+     * into thirds and using five third-size products.
+     *
+     * <p>
+     * Writing each factor as a polynomial in x = BASE^k with three
+     * coefficients, the product polynomial r(x) has degree 4. It is evaluated
+     * at 0, 1, 2, 3 and infinity; these points (rather than the more common
+     * -1 and -2) keep every intermediate value non-negative, so the
+     * interpolation in {@code toom3Combine} needs only the unsigned
+     * operations in this class plus exact division by 2 and 3.
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @return the factors of the five sub-products, as consecutive pairs
+     * @requires <pre>
+     * IS_LIMBS(a)  and  IS_LIMBS(b)  and  3 <= |b| <= |a| < 2 * |b|
+     * </pre>
+     */
+    private static int[][] toom3Factors(int[] a, int[] b) {
+        int k = (a.length + 2) / 3;
+        int[] a0 = slice(a, 0, k);
+        int[] a1 = slice(a, k, 2 * k);
+        int[] a2 = slice(a, 2 * k, a.length);
+        int[] b0 = slice(b, 0, k);
+        int[] b1 = slice(b, k, 2 * k);
+        int[] b2 = slice(b, 2 * k, b.length);
+        /*
+         * Evaluate: p(1) = p0 + p1 + p2, p(2) = p0 + 2 p1 + 4 p2 and p(3) = p0
+         * + 3 p1 + 9 p2.
+         */
+        return new int[][] { a0, b0, add(add(a0, a2), a1),
+                add(add(b0, b2), b1),
+                add(a0, add(multiplySmall(a1, 2, 0), multiplySmall(a2, 4, 0))),
+                add(b0, add(multiplySmall(b1, 2, 0), multiplySmall(b2, 4, 0))),
+                add(a0, add(multiplySmall(a1, 3, 0), multiplySmall(a2, 9, 0))),
+                add(b0, add(multiplySmall(b1, 3, 0), multiplySmall(b2, 9, 0))),
+                a2, b2 };
+    }
+
+    /**
+     * Combines the five products from {@code toom3Factors(a, b)}, that is,
+     * r(0), r(1), r(2), r(3) and r(infinity), into {@code a * b}.
+     *
+     * @param a
+     *            the longer factor
+     * @param b
+     *            the shorter factor
+     * @param products
+     *            the five sub-products, in order
+     * @return the product
+     * @requires [as for toom3Factors, with products computed from it]
+     * @ensures [same as multiply]
+     */
+    private static int[] toom3Combine(int[] a, int[] b, int[][] products) {
+        int k = (a.length + 2) / 3;
+        /*
+         * Interpolate. With s(x) = (r(x) - c0 - c4 x^4) / x = c1 + c2 x + c3
+         * x^2, all of s(1), s(2), s(3) and their forward differences are
+         * non-negative.
+         */
+        int[] c0 = products[0];
+        int[] c4 = products[4];
+        int[] sOne = subtract(subtract(products[1], c0), c4);
+        int[] sTwo = exactDivideSmall(
+                subtract(subtract(products[2], c0), multiplySmall(c4, 16, 0)),
+                2);
+        int[] sThree = exactDivideSmall(
+                subtract(subtract(products[3], c0), multiplySmall(c4, 81, 0)),
+                3);
+        int[] deltaOne = subtract(sTwo, sOne);
+        int[] deltaTwo = subtract(sThree, sTwo);
+        int[] c3 = exactDivideSmall(subtract(deltaTwo, deltaOne), 2);
+        int[] c2 = subtract(deltaOne, multiplySmall(c3, 3, 0));
+        int[] c1 = subtract(subtract(sOne, c2), c3);
+        int[] product = new int[a.length + b.length + 1];
+        addShifted(product, c0, 0);
+        addShifted(product, c1, k);
+        addShifted(product, c2, 2 * k);
+        addShifted(product, c3, 3 * k);
+        addShifted(product, c4, 4 * k);
+        return trim(product, product.length);
+    }
+
+    /**
+     * Returns {@code a / d} where {@code d} divides {@code a} exactly.
+     *
+     * @param a
+     *            the dividend
+     * @param d
+     *            the small divisor
+     * @return a / d
+     * @requires IS_LIMBS(a) and 0 < d < BASE and [d divides a]
+     * @ensures IS_LIMBS(exactDivideSmall) and exactDivideSmall * d = a
+     */
+    private static int[] exactDivideSmall(int[] a, int d) {
+        int[] quotient = new int[a.length];
+        int remainder = divideSmall(a, d, quotient);
+        assert remainder == 0 : "Violation of: d divides a";
+        return trim(quotient, quotient.length);
+    }
+
+    /**
+     * Returns the limbs {@code a[from, to)} (clipped to {@code |a|}).
+     *
+     * @param a
+     *            the limbs
+     * @param from
+     *            index of the first limb to keep
+     * @param to
+     *            index one past the last limb to keep
+     * @return the trimmed slice
+     * @requires IS_LIMBS(a) and 0 <= from <= to
+     * @ensures <pre>
+     * IS_LIMBS(slice)  and
+     * NUMERIC_VALUE(slice) = NUMERIC_VALUE(a[from, min(to, |a|)))
+     * </pre>
+     */
+    static int[] slice(int[] a, int from, int to) {
+        int[] result = ZERO;
+        int end = Math.min(to, a.length);
+        if (from < end) {
+            int[] part = new int[end - from];
+            System.arraycopy(a, from, part, 0, part.length);
+            result = trim(part, part.length);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a * BASE^k}.
+     *
+     * @param a
+     *            the limbs
+     * @param k
+     *            number of limbs to shift by
+     * @return a * BASE^k
+     * @requires IS_LIMBS(a) and k >= 0
+     * @ensures <pre>
+     * IS_LIMBS(shift)  and  NUMERIC_VALUE(shift) = NUMERIC_VALUE(a) * BASE^k
+     * </pre>
+     */
+    static int[] shift(int[] a, int k) {
+        int[] result = ZERO;
+        if (a.length > 0) {
+            result = new int[a.length + k];
+            System.arraycopy(a, 0, result, k, a.length);
+        }
+        return result;
+    }
+
+    /**
+     * Adds {@code x * BASE^shift} into the untrimmed accumulator {@code acc}.
+     *
+     * @param acc
+     *            the accumulator
+     * @param x
+     *            the limbs to add
+     * @param shift
+     *            number of limbs to shift {@code x} by
+     * @updates acc
+     * @requires <pre>
+     * [all entries of acc are in [0, BASE)]  and  IS_LIMBS(x)  and
+     * NUMERIC_VALUE(#acc) + NUMERIC_VALUE(x) * BASE^shift < BASE^|acc|
+     * </pre>
+     * @ensures <pre>
+     * NUMERIC_VALUE(acc) = NUMERIC_VALUE(#acc) + NUMERIC_VALUE(x) * BASE^shift
+     * </pre>
+     */
+    static void addShifted(int[] acc, int[] x, int shift) {
+        int carry = 0;
+        int i = 0;
+        while (i < x.length || carry > 0) {
+            int s = acc[shift + i] + carry;
+            if (i < x.length) {
+                s += x[i];
+            }
+            carry = 0;
+            if (s >= BASE) {
+                s -= BASE;
+                carry = 1;
+            }
+            acc[shift + i] = s;
+            i++;
+        }
+    }
+
+    /**
+     * Returns {@code a} raised to the power {@code p}.
+     *
+     * @param a
+     *            the base
+     * @param p
+     *            the exponent
+     * @return a^p
+     * @requires IS_LIMBS(a) and p >= 0
+     * @ensures IS_LIMBS(power) and NUMERIC_VALUE(power) = NUMERIC_VALUE(a)^p
+     */
+    static int[] power(int[] a, int p) {
+        return power(a, p, LimbArithmetic::multiply);
+    }
+
+    /**
+     * Returns {@code a} raised to the power {@code p}, by repeated squaring
+     * with the given multiplication.
+     *
+     * @param a
+     *            the base
+     * @param p
+     *            the exponent
+     * @param multiplier
+     *            the multiplication to use, with the contract of multiply
+     * @return a^p
+     * @requires IS_LIMBS(a) and p >= 0
+     * @ensures IS_LIMBS(power) and NUMERIC_VALUE(power) = NUMERIC_VALUE(a)^p
+     */
+    static int[] power(int[] a, int p, BinaryOperator<int[]> multiplier) {
+        assert p >= 0 : "Violation of: p >= 0";
+        int[] result = new int[] { 1 };
+        int[] square = a;
+        int remaining = p;
+        while (remaining > 0) {
+            if ((remaining & 1) != 0) {
+                result = multiplier.apply(result, square);
+            }
+            remaining >>>= 1;
+            if (remaining > 0) {
+                square = multiplier.apply(square, square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Divides {@code a} by {@code b} and returns the quotient and remainder.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires IS_LIMBS(a) and IS_LIMBS(b) and NUMERIC_VALUE(b) > 0
+     * @ensures <pre>
+     * IS_LIMBS(divide[0])  and  IS_LIMBS(divide[1])  and
+     * NUMERIC_VALUE(a) =
+     *   NUMERIC_VALUE(divide[0]) * NUMERIC_VALUE(b) + NUMERIC_VALUE(divide[1])
+     *   and
+     * NUMERIC_VALUE(divide[1]) < NUMERIC_VALUE(b)
+     * </pre>
+     */
+    static int[][] divide(int[] a, int[] b) {
+        assert b.length > 0 : "Violation of: b > 0";
+        int[][] result;
+        if (compare(a, b) < 0) {
+            result = new int[][] { ZERO, a.clone() };
+        } else if (b.length == 1) {
+            int[] quotient = new int[a.length];
+            int remainder = divideSmall(a, b[0], quotient);
+            result = new int[][] { trim(quotient, quotient.length),
+                    fromLong(remainder) };
+        } else if (b.length >= NEWTON_DIVIDE_THRESHOLD
+                && a.length - b.length >= NEWTON_DIVIDE_THRESHOLD) {
+            result = divideNewton(a, b);
+        } else {
+            result = divideKnuth(a, b);
+        }
+        return result;
+    }
+
+    /**
+     * Division of {@code a} by a long {@code b} using a Newton reciprocal of
+     * {@code b}, {@code |b|} limbs of quotient at a time.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires IS_LIMBS(a) and IS_LIMBS(b) and |b| >= 2 and
+     *           NUMERIC_VALUE(a) >= NUMERIC_VALUE(b)
+     * @ensures [same as divide]
+     */
+    private static int[][] divideNewton(int[] a, int[] b) {
+        int n = b.length;
+        int[] inverse = reciprocal(b);
+        int[] q = new int[a.length];
+        int[] r = ZERO;
+        for (int j = (a.length - 1) / n; j >= 0; j--) {
+            /*
+             * r < b, so this block is below BASE^(2n) and its quotient fits in
+             * n limbs.
+             */
+            int[] block = add(shift(r, n), slice(a, j * n, (j + 1) * n));
+            int[][] qr = divideByReciprocal(block, b, inverse);
+            System.arraycopy(qr[0], 0, q, j * n, qr[0].length);
+            r = qr[1];
+        }
+        return new int[][] { trim(q, q.length), r };
+    }
+
+    /**
+     * Divides {@code a} by {@code b} given the reciprocal of {@code b}.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @param inverse
+     *            the reciprocal of b, as returned by {@code reciprocal}
+     * @return {quotient, remainder}
+     * @requires <pre>
+     * IS_LIMBS(a)  and  IS_LIMBS(b)  and  |b| >= 2  and
+     * NUMERIC_VALUE(a) < BASE^(2|b|)  and
+     * NUMERIC_VALUE(inverse) = floor(BASE^(2|b|) / NUMERIC_VALUE(b))
+     * </pre>
+     * @ensures [same as divide]
+     */
+    private static int[][] divideByReciprocal(int[] a, int[] b,
+            int[] inverse) {
+        /*
+         * a * inverse / BASE^(2n) is at most a / b and falls short of it by
+         * less than 2, so at most two corrections are needed.
+         */
+        int[] q = slice(multiply(a, inverse), 2 * b.length, Integer.MAX_VALUE);
+        int[] r = subtract(a, multiply(q, b));
+        while (compare(r, b) >= 0) {
+            r = subtract(r, b);
+            q = add(q, ONE);
+        }
+        return new int[][] { q, r };
+    }
+
+    /**
+     * Returns the reciprocal {@code floor(BASE^(2|v|) / v)}, by Newton's
+     * iteration from the reciprocal of the high half of {@code v}.
+     *
+     * @param v
+     *            the number to invert
+     * @return the reciprocal of v
+     * @requires IS_LIMBS(v) and |v| >= 2
+     * @ensures <pre>
+     * IS_LIMBS(reciprocal)  and
+     * NUMERIC_VALUE(reciprocal) = floor(BASE^(2|v|) / NUMERIC_VALUE(v))
+     * </pre>
+     */
+    private static int[] reciprocal(int[] v) {
+        int n = v.length;
+        int[] unit = shift(ONE, 2 * n);
+        int[] x;
+        if (n < NEWTON_DIVIDE_THRESHOLD) {
+            x = divideKnuth(unit, v)[0];
+        } else {
+            /*
+             * The reciprocal of the high h limbs, shifted into place, is good
+             * to about h - 1 limbs; one step x <- x + x (BASE^(2n) - v x) /
+             * BASE^(2n) doubles that. Two limbs beyond n / 2 leave an error of
+             * only a few units for the final rounding to fix.
+             */
+            int h = n / 2 + 2;
+            x = shift(reciprocal(slice(v, n - h, n)), n - h);
+            int[] vx = multiply(v, x);
+            if (compare(vx, unit) <= 0) {
+                int[] step = multiply(x, subtract(unit, vx));
+                x = add(x, slice(step, 2 * n, Integer.MAX_VALUE));
+            } else {
+                int[] step = multiply(x, subtract(vx, unit));
+                x = subtract(x,
+                        add(slice(step, 2 * n, Integer.MAX_VALUE), ONE));
+            }
+            /*
+             * Round the (nearly exact) estimate to the floor.
+             */
+            vx = multiply(v, x);
+            while (compare(vx, unit) > 0) {
+                vx = subtract(vx, v);
+                x = subtract(x, ONE);
+            }
+            int[] r = subtract(unit, vx);
+            while (compare(r, v) >= 0) {
+                r = subtract(r, v);
+                x = add(x, ONE);
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Long division of {@code a} by a multi-limb {@code b} (Knuth's Algorithm
+     * D).
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires IS_LIMBS(a) and IS_LIMBS(b) and |b| >= 2 and
+     *           NUMERIC_VALUE(a) >= NUMERIC_VALUE(b)
+     * @ensures [same as divide]
+     */
+    private static int[][] divideKnuth(int[] a, int[] b) {
+        int n = b.length;
+        int m = a.length - n;
+        /*
+         * Normalize so the divisor's top limb is at least BASE / 2; this keeps
+         * each quotient-limb estimate within 2 of the true value.
+         */
+        int scale = BASE / (b[n - 1] + 1);
+        int[] u = new int[a.length + 1];
+        int[] v = new int[n];
+        long carry = 0;
+        for (int i = 0; i < a.length; i++) {
+            long p = (long) a[i] * scale + carry;
+            carry = p / BASE;
+            u[i] = (int) (p - carry * BASE);
+        }
+        u[a.length] = (int) carry;
+        carry = 0;
+        for (int i = 0; i < n; i++) {
+            long p = (long) b[i] * scale + carry;
+            carry = p / BASE;
+            v[i] = (int) (p - carry * BASE);
+        }
+        long vTop = v[n - 1];
+        long vNext = v[n - 2];
+        int[] q = new int[m + 1];
+        for (int j = m; j >= 0; j--) {
+            long top = (long) u[j + n] * BASE + u[j + n - 1];
+            long qHat = top / vTop;
+            long rHat = top - qHat * vTop;
+            while (qHat >= BASE
+                    || qHat * vNext > rHat * BASE + u[j + n - 2]) {
+                qHat--;
+                rHat += vTop;
+                if (rHat >= BASE) {
+                    break;
+                }
+            }
+            /*
+             * Multiply and subtract qHat * v from u[j, j + n].
+             */
+            long mulCarry = 0;
+            long borrow = 0;
+            for (int i = 0; i < n; i++) {
+                long p = qHat * v[i] + mulCarry;
+                mulCarry = p / BASE;
+                long t = u[i + j] - (p - mulCarry * BASE) - borrow;
+                borrow = 0;
+                if (t < 0) {
+                    t += BASE;
+                    borrow = 1;
+                }
+                u[i + j] = (int) t;
+            }
+            long t = u[j + n] - mulCarry - borrow;
+            if (t < 0) {
+                /*
+                 * qHat was one too large: add v back.
+                 */
+                qHat--;
+                long addCarry = 0;
+                for (int i = 0; i < n; i++) {
+                    long s = (long) u[i + j] + v[i] + addCarry;
+                    addCarry = 0;
+                    if (s >= BASE) {
+                        s -= BASE;
+                        addCarry = 1;
+                    }
+                    u[i + j] = (int) s;
+                }
+                t += addCarry;
+            }
+            u[j + n] = (int) t;
+            q[j] = (int) qHat;
+        }
+        /*
+         * Undo the normalization on the remainder.
+         */
+        int[] r = new int[n];
+        divideSmall(trim(u, n), scale, r);
+        return new int[][] { trim(q, q.length), trim(r, r.length) };
+    }
+
+    /**
+     * Returns the integer {@code r}-th root of {@code a}.
+     *
+     * @param a
+     *            the radicand
+     * @param r
+     *            the index of the root
+     * @return the integer r-th root of a
+     * @requires IS_LIMBS(a) and r >= 2
+     * @ensures <pre>
+     * IS_LIMBS(root)  and
+     * NUMERIC_VALUE(root)^r <= NUMERIC_VALUE(a) <
+     *   (NUMERIC_VALUE(root) + 1)^r
+     * </pre>
+     */
+    static int[] root(int[] a, int r) {
+        assert r >= 2 : "Violation of: r >= 2";
+        int[] result = a;
+        int digits = decimalLength(a);
+        if (a.length > 0 && (r > digits * BITS_PER_DIGIT + 1
+                || compare(a, power(fromLong(2), r)) < 0)) {
+            /*
+             * 0 < a < 2^r, so the root is 1; the first test settles this
+             * without computing 2^r when r is far past the bit length of a,
+             * and leaves r at most about 3.3 times the digits of a below.
+             */
+            result = new int[] { 1 };
+        } else if (a.length > 0) {
+            /*
+             * Newton's iteration x <- ((r - 1) x + a / x^(r-1)) / r decreases
+             * monotonically to the floor of the root from any start at least
+             * that large. A long root starts from the root of the high half
+             * of a, shifted into place and rounded up, which is already good
+             * to about half its limbs, so only a couple of full-size steps
+             * remain; a short one starts from a power of ten.
+             */
+            int k = (int) (((long) a.length + r - 1) / r / 2);
+            int[] x;
+            if (k >= NEWTON_ROOT_THRESHOLD / 2) {
+                int[] high = slice(a, r * k, Integer.MAX_VALUE);
+                x = shift(add(root(high, r), ONE), k);
+            } else {
+                int rootDigits = (int) (((long) digits + r - 1) / r);
+                x = power(new int[] { 10 }, rootDigits);
+            }
+            int[] rLimbs = fromLong(r);
+            int[] rMinusOne = fromLong(r - 1);
+            boolean decreasing = true;
+            while (decreasing) {
+                int[] next;
+                if (r - 1 < BASE) {
+                    next = multiplySmall(x, r - 1, 0);
+                } else {
+                    next = multiply(x, rMinusOne);
+                }
+                next = add(next, divide(a, power(x, r - 1))[0]);
+                next = divide(next, rLimbs)[0];
+                decreasing = compare(next, x) < 0;
+                if (decreasing) {
+                    x = next;
+                }
+            }
+            result = x;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of decimal digits of {@code a}.
+     *
+     * @param a
+     *            the number
+     * @return the number of decimal digits in a (0 for 0)
+     * @requires IS_LIMBS(a)
+     */
+    static int decimalLength(int[] a) {
+        int length = 0;
+        if (a.length > 0) {
+            length = (a.length - 1) * DIGITS_PER_LIMB;
+            for (int top = a[a.length - 1]; top > 0; top /= 10) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+}
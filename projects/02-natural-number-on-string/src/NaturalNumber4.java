@@ -0,0 +1,210 @@
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as a growable {@code byte} array of decimal
+ * digits with implementations of primary methods.
+ *
+ * <p>
+ * The digits are kept as a stack whose top (position {@code length - 1}) is the
+ * least significant digit, so {@code multiplyBy10} pushes and
+ * {@code divideBy10} pops without shifting or copying the other digits. The
+ * array only grows (by doubling), which makes both kernel operations amortized
+ * constant time and allocation-free.
+ *
+ * @convention <pre>
+ * 0 <= $this.length <= |$this.digits|  and
+ * [all entries of $this.digits[0, $this.length) are 0 through 9]  and
+ * [if $this.length > 0 then $this.digits[0] /= 0]
+ * </pre>
+ * @correspondence <pre>
+ * this = [if $this.length = 0 then 0
+ *         else the decimal number whose digits, from most to least
+ *         significant, are $this.digits[0, $this.length)]
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class NaturalNumber4 extends NaturalNumberSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the digit array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Digits of {@code this}, most significant first.
+     */
+    private byte[] digits;
+
+    /**
+     * Number of digits in use in {@code this.digits}.
+     */
+    private int length;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.digits = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    /**
+     * Makes sure {@code this.digits} can hold at least {@code capacity}
+     * digits, doubling its size as needed.
+     *
+     * @param capacity
+     *            the number of digits required
+     * @updates this.digits
+     * @ensures |this.digits| >= capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.digits.length) {
+            int newCapacity = this.digits.length * 2;
+            if (newCapacity < capacity) {
+                newCapacity = capacity;
+            }
+            byte[] grown = new byte[newCapacity];
+            System.arraycopy(this.digits, 0, grown, 0, this.length);
+            this.digits = grown;
+        }
+    }
+
+    /**
+     * Sets {@code this} to the number with decimal depiction {@code s}.
+     *
+     * @param s
+     *            the decimal depiction
+     * @replaces this
+     * @requires there exists n: NATURAL (s = TO_STRING(n))
+     * @ensures s = TO_STRING(this)
+     */
+    private void setFromDepiction(String s) {
+        this.createNewRep();
+        if (!s.equals("0")) {
+            this.ensureCapacity(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                this.digits[i] = (byte) (s.charAt(i) - '0');
+            }
+            this.length = s.length();
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumber4() {
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     */
+    public NaturalNumber4(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.setFromDepiction(Integer.toString(i));
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     */
+    public NaturalNumber4(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert s.matches("0|[1-9]\\d*") : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+        this.setFromDepiction(s);
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumber4(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        this.setFromDepiction(n.toString());
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumber4 : ""
+                + "Violation of: source is of dynamic type NaturalNumber4";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        NaturalNumber4 localSource = (NaturalNumber4) source;
+        this.digits = localSource.digits;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+        if (this.length > 0 || k > 0) {
+            this.ensureCapacity(this.length + 1);
+            this.digits[this.length] = (byte) k;
+            this.length++;
+        }
+    }
+
+    @Override
+    public final int divideBy10() {
+        int lastDigit = 0;
+        if (this.length > 0) {
+            this.length--;
+            lastDigit = this.digits[this.length];
+        }
+        return lastDigit;
+    }
+
+    @Override
+    public final boolean isZero() {
+        return this.length == 0;
+    }
+
+}
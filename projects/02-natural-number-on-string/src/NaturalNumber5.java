@@ -0,0 +1,824 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as a {@code long} while it is below
+ * 10<sup>18</sup> and as an {@code int} array of base 10<sup>9</sup> limbs
+ * otherwise, with implementations of primary methods and word-level overrides
+ * of the arithmetic secondary methods.
+ *
+ * <p>
+ * {@code NaturalNumberSecondary} implements {@code add}, {@code multiply},
+ * {@code divide}, etc. one decimal digit at a time through
+ * {@code multiplyBy10}/{@code divideBy10}. This class overrides them to work
+ * on a primitive {@code long} when every operand is small (allocating nothing)
+ * and on whole limbs otherwise (see {@code LimbArithmetic}). It never modifies
+ * an argument {@code NaturalNumber} while doing so.
+ *
+ * @convention <pre>
+ * if $this.limbs = null
+ *   then 0 <= $this.small < SMALL_LIMIT
+ *   else IS_LIMBS($this.limbs)  and  |$this.limbs| > 2
+ * </pre>
+ * @correspondence <pre>
+ * this = [if $this.limbs = null then $this.small
+ *         else NUMERIC_VALUE($this.limbs)]
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class NaturalNumber5 extends NaturalNumberSecondary {
+
+    /**
+     * A reasonable {@code multiplyParallel}/{@code powerParallel} threshold,
+     * in decimal digits: below it, forking costs more than it saves.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Values below this are kept in {@code small}; it is BASE^2, so exactly
+     * the values with at most two limbs.
+     */
+    private static final long SMALL_LIMIT = 1_000_000_000_000_000_000L;
+
+    /**
+     * Longest decimal depiction that is always below {@code SMALL_LIMIT}.
+     */
+    private static final int SMALL_DIGITS = 18;
+
+    /**
+     * Value of {@code this} when {@code limbs} is {@code null}.
+     */
+    private long small;
+
+    /**
+     * Limbs of {@code this}, least significant first, or {@code null} when
+     * the value is held in {@code small}.
+     */
+    private int[] limbs;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.small = 0;
+        this.limbs = null;
+    }
+
+    /**
+     * Sets {@code this} to the value of {@code a}, moving it to the
+     * {@code long} representation if it fits.
+     *
+     * @param a
+     *            the limbs
+     * @replaces this
+     * @requires IS_LIMBS(a)
+     * @ensures this = NUMERIC_VALUE(a)
+     */
+    private void setLimbs(int[] a) {
+        if (a.length > 2) {
+            this.small = 0;
+            this.limbs = a;
+        } else {
+            this.small = 0;
+            for (int i = a.length - 1; i >= 0; i--) {
+                this.small = this.small * LimbArithmetic.BASE + a[i];
+            }
+            this.limbs = null;
+        }
+    }
+
+    /**
+     * Returns the limbs of {@code this}.
+     *
+     * @return the limbs of this
+     * @ensures IS_LIMBS(limbs) and NUMERIC_VALUE(limbs) = this
+     */
+    private int[] limbs() {
+        int[] result = this.limbs;
+        if (result == null) {
+            result = LimbArithmetic.fromLong(this.small);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the limbs of {@code n} without modifying {@code n}.
+     *
+     * @param n
+     *            the number
+     * @return the limbs of n
+     * @ensures IS_LIMBS(limbsOf) and NUMERIC_VALUE(limbsOf) = n
+     */
+    private static int[] limbsOf(NaturalNumber n) {
+        int[] result;
+        if (n instanceof NaturalNumber5) {
+            result = ((NaturalNumber5) n).limbs();
+        } else {
+            String s = n.toString();
+            result = LimbArithmetic.parse(s, 0, s.length());
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code n} as a {@code NaturalNumber5}: {@code n} itself if it
+     * already is one, its current value if it is a {@code NaturalNumbers}
+     * constant, and otherwise a new copy.
+     *
+     * @param n
+     *            the number
+     * @return a NaturalNumber5 equal to n
+     * @ensures asNaturalNumber5 = n
+     */
+    private static NaturalNumber5 asNaturalNumber5(NaturalNumber n) {
+        NaturalNumber5 result;
+        if (n instanceof NaturalNumber5) {
+            result = (NaturalNumber5) n;
+        } else if (n instanceof NaturalNumbers.Constant) {
+            result = ((NaturalNumbers.Constant) n).value();
+        } else {
+            result = new NaturalNumber5();
+            result.setLimbs(limbsOf(n));
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a * b} if it is below {@code SMALL_LIMIT}, and -1
+     * otherwise.
+     *
+     * @param a
+     *            the first factor
+     * @param b
+     *            the second factor
+     * @return a * b, or -1 if a * b >= SMALL_LIMIT
+     * @requires 0 <= a < SMALL_LIMIT and 0 <= b < SMALL_LIMIT
+     */
+    private static long smallProduct(long a, long b) {
+        long product = -1;
+        if (a == 0 || b <= (SMALL_LIMIT - 1) / a) {
+            product = a * b;
+        }
+        return product;
+    }
+
+    /**
+     * Returns {@code a^p} if it is below {@code SMALL_LIMIT}, and -1
+     * otherwise.
+     *
+     * @param a
+     *            the base
+     * @param p
+     *            the exponent
+     * @return a^p, or -1 if a^p >= SMALL_LIMIT
+     * @requires 0 <= a < SMALL_LIMIT and p >= 0
+     */
+    private static long smallPower(long a, int p) {
+        long result = 1;
+        if (a <= 1) {
+            if (p > 0) {
+                result = a;
+            }
+        } else {
+            for (int i = 0; i < p && result >= 0; i++) {
+                result = smallProduct(result, a);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumber5() {
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     */
+    public NaturalNumber5(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.small = i;
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     */
+    public NaturalNumber5(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert LimbArithmetic.isDepiction(s) : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+        this.setFromString(s);
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumber5(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        /*
+         * Limb arrays are replaced, never updated in place, so it is safe for
+         * two numbers to share one.
+         */
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        this.small = localN.small;
+        this.limbs = localN.limbs;
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumber5 : ""
+                + "Violation of: source is of dynamic type NaturalNumber5";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        NaturalNumber5 localSource = (NaturalNumber5) source;
+        this.small = localSource.small;
+        this.limbs = localSource.limbs;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+        if (this.limbs == null && this.small < SMALL_LIMIT / RADIX) {
+            this.small = this.small * RADIX + k;
+        } else {
+            this.setLimbs(LimbArithmetic.multiplySmall(this.limbs(), RADIX, k));
+        }
+    }
+
+    @Override
+    public final int divideBy10() {
+        int remainder;
+        if (this.limbs == null) {
+            remainder = (int) (this.small % RADIX);
+            this.small /= RADIX;
+        } else {
+            int[] quotient = new int[this.limbs.length];
+            remainder = LimbArithmetic.divideSmall(this.limbs, RADIX, quotient);
+            this.setLimbs(LimbArithmetic.trim(quotient, quotient.length));
+        }
+        return remainder;
+    }
+
+    @Override
+    public final boolean isZero() {
+        return this.limbs == null && this.small == 0;
+    }
+
+    /*
+     * Secondary methods (word-level overrides) -------------------------------
+     */
+
+    @Override
+    public final void setFromInt(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.small = i;
+        this.limbs = null;
+    }
+
+    @Override
+    public final boolean canConvertToInt() {
+        return this.limbs == null && this.small <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public final int toInt() {
+        assert this.canConvertToInt() : ""
+                + "Violation of: this <= Integer.MAX_VALUE";
+        return (int) this.small;
+    }
+
+    @Override
+    public final void copyFrom(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        this.small = localN.small;
+        this.limbs = localN.limbs;
+    }
+
+    @Override
+    public final void increment() {
+        if (this.limbs == null && this.small < SMALL_LIMIT - 1) {
+            this.small++;
+        } else {
+            this.setLimbs(LimbArithmetic.add(this.limbs(), new int[] { 1 }));
+        }
+    }
+
+    @Override
+    public final void decrement() {
+        assert !this.isZero() : "Violation of: this > 0";
+        if (this.limbs == null) {
+            this.small--;
+        } else {
+            this.setLimbs(
+                    LimbArithmetic.subtract(this.limbs, new int[] { 1 }));
+        }
+    }
+
+    @Override
+    public final void add(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        if (this.limbs == null && localN.limbs == null
+                && this.small + localN.small < SMALL_LIMIT) {
+            this.small += localN.small;
+        } else {
+            this.setLimbs(LimbArithmetic.add(this.limbs(), localN.limbs()));
+        }
+    }
+
+    @Override
+    public final void subtract(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        assert this.compareTo(localN) >= 0 : "Violation of: this >= n";
+        if (this.limbs == null) {
+            this.small -= localN.small;
+        } else {
+            this.setLimbs(
+                    LimbArithmetic.subtract(this.limbs, localN.limbs()));
+        }
+    }
+
+    @Override
+    public final void multiply(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        long product = -1;
+        if (this.limbs == null && localN.limbs == null) {
+            product = smallProduct(this.small, localN.small);
+        }
+        if (product >= 0) {
+            this.small = product;
+        } else {
+            this.setLimbs(
+                    LimbArithmetic.multiply(this.limbs(), localN.limbs()));
+        }
+    }
+
+    @Override
+    public final NaturalNumber divide(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert !n.isZero() : "Violation of: n > 0";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        NaturalNumber5 remainder = new NaturalNumber5();
+        if (this.limbs == null) {
+            /*
+             * A small dividend means a small remainder, and a quotient that
+             * is 0 unless the divisor is small too.
+             */
+            if (localN.limbs == null) {
+                remainder.small = this.small % localN.small;
+                this.small /= localN.small;
+            } else {
+                remainder.small = this.small;
+                this.small = 0;
+            }
+        } else {
+            int[][] qr = LimbArithmetic.divide(this.limbs, localN.limbs());
+            this.setLimbs(qr[0]);
+            remainder.setLimbs(qr[1]);
+        }
+        return remainder;
+    }
+
+    @Override
+    public final void power(int p) {
+        assert p >= 0 : "Violation of: p >= 0";
+        long result = -1;
+        if (this.limbs == null) {
+            result = smallPower(this.small, p);
+        }
+        if (result >= 0) {
+            this.small = result;
+        } else {
+            this.setLimbs(LimbArithmetic.power(this.limbs(), p));
+        }
+    }
+
+    @Override
+    public final void root(int r) {
+        assert r >= 2 : "Violation of: r >= 2";
+        if (this.limbs == null) {
+            /*
+             * Estimate in floating point, then correct the last step exactly.
+             */
+            long x = (long) Math.pow(this.small, 1.0 / r);
+            while (x > 0 && (smallPower(x, r) < 0
+                    || smallPower(x, r) > this.small)) {
+                x--;
+            }
+            long next = smallPower(x + 1, r);
+            while (next >= 0 && next <= this.small) {
+                x++;
+                next = smallPower(x + 1, r);
+            }
+            this.small = x;
+        } else {
+            this.setLimbs(LimbArithmetic.root(this.limbs, r));
+        }
+    }
+
+    @Override
+    public final int compareTo(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        int result;
+        if (this.limbs == null && localN.limbs == null) {
+            result = Long.compare(this.small, localN.small);
+        } else if (this.limbs == null) {
+            result = -1;
+        } else if (localN.limbs == null) {
+            result = 1;
+        } else {
+            result = LimbArithmetic.compare(this.limbs, localN.limbs);
+        }
+        return result;
+    }
+
+    @Override
+    public final boolean canSetFromString(String s) {
+        assert s != null : "Violation of: s is not null";
+        return LimbArithmetic.isDepiction(s);
+    }
+
+    @Override
+    public final void setFromString(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert LimbArithmetic.isDepiction(s) : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+        if (s.length() <= SMALL_DIGITS) {
+            this.small = Long.parseLong(s);
+            this.limbs = null;
+        } else {
+            this.setLimbs(LimbArithmetic.parse(s, 0, s.length()));
+        }
+    }
+
+    @Override
+    public final String toString() {
+        String result;
+        if (this.limbs == null) {
+            result = Long.toString(this.small);
+        } else {
+            result = new String(LimbArithmetic.toChars(this.limbs));
+        }
+        return result;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Multiplies {@code this} by {@code n}, running the sub-products of the
+     * Karatsuba/Toom-3 recursion in parallel in {@code pool} while the shorter
+     * factor has at least {@code threshold} digits. Below that, and for
+     * operands small enough to be held in a {@code long}, this is the same as
+     * {@code multiply}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to multiply by
+     * @param pool
+     *            the pool to run the sub-products in
+     * @param threshold
+     *            shortest factor, in decimal digits, worth splitting across
+     *            tasks (for example {@code DEFAULT_PARALLEL_THRESHOLD})
+     * @updates this
+     * @requires threshold > 0
+     * @ensures this = #this * n
+     */
+    public final void multiplyParallel(NaturalNumber n, ForkJoinPool pool,
+            int threshold) {
+        assert n != null : "Violation of: n is not null";
+        assert pool != null : "Violation of: pool is not null";
+        assert threshold > 0 : "Violation of: threshold > 0";
+        NaturalNumber5 localN = asNaturalNumber5(n);
+        if (this.limbs == null && localN.limbs == null) {
+            this.multiply(localN);
+        } else {
+            this.setLimbs(ParallelMultiply.multiply(this.limbs(),
+                    localN.limbs(), pool, thresholdInLimbs(threshold)));
+        }
+    }
+
+    /**
+     * Raises {@code this} to the power {@code p}, running each
+     * multiplication as in {@code multiplyParallel}.
+     *
+     * @param p
+     *            power to raise to
+     * @param pool
+     *            the pool to run the sub-products in
+     * @param threshold
+     *            shortest factor, in decimal digits, worth splitting across
+     *            tasks (for example {@code DEFAULT_PARALLEL_THRESHOLD})
+     * @updates this
+     * @requires p >= 0 and threshold > 0
+     * @ensures this = #this ^ (p)
+     */
+    public final void powerParallel(int p, ForkJoinPool pool, int threshold) {
+        assert p >= 0 : "Violation of: p >= 0";
+        assert pool != null : "Violation of: pool is not null";
+        assert threshold > 0 : "Violation of: threshold > 0";
+        int limbThreshold = thresholdInLimbs(threshold);
+        this.setLimbs(LimbArithmetic.power(this.limbs(), p,
+                (x, y) -> ParallelMultiply.multiply(x, y, pool,
+                        limbThreshold)));
+    }
+
+    /**
+     * Converts a threshold in decimal digits to one in limbs.
+     *
+     * @param digits
+     *            the threshold in decimal digits
+     * @return the threshold in limbs
+     * @requires digits > 0
+     * @ensures thresholdInLimbs = ceiling(digits / DIGITS_PER_LIMB)
+     */
+    private static int thresholdInLimbs(int digits) {
+        return (digits + LimbArithmetic.DIGITS_PER_LIMB - 1)
+                / LimbArithmetic.DIGITS_PER_LIMB;
+    }
+
+    /**
+     * Writes the decimal depiction of {@code this} to {@code out} without
+     * building it as a {@code String} first, so million-digit values can be
+     * printed in bounded extra memory.
+     *
+     * @param out
+     *            the destination
+     * @throws IOException
+     *             if {@code out} throws it
+     * @updates out
+     * @ensures out = #out * TO_STRING(this)
+     */
+    public final void writeTo(Appendable out) throws IOException {
+        assert out != null : "Violation of: out is not null";
+        if (this.limbs == null) {
+            out.append(Long.toString(this.small));
+        } else {
+            LimbArithmetic.writeTo(this.limbs, out);
+        }
+    }
+
+    /**
+     * Returns an iterator over the decimal digits of {@code this}, least
+     * significant first, without changing {@code this}. The iterator reads a
+     * snapshot: later changes to {@code this} do not affect it.
+     *
+     * @return an iterator over the digits of this
+     * @ensures <pre>
+     * [digits produces, least significant first, the digits of this up to and
+     *  including its most significant non-zero digit (so none for 0)]
+     * </pre>
+     */
+    public final PrimitiveIterator.OfInt digits() {
+        return new DigitIterator(this.small, this.limbs);
+    }
+
+    /**
+     * Passes each decimal digit of {@code this}, least significant first, to
+     * {@code action}, without changing {@code this} and without allocating.
+     *
+     * @param action
+     *            the action to run on each digit
+     * @ensures <pre>
+     * [action has been called on the digits of this, least significant first,
+     *  up to and including its most significant non-zero digit (so never for
+     *  0)]
+     * </pre>
+     */
+    public final void forEachDigit(IntConsumer action) {
+        assert action != null : "Violation of: action is not null";
+        if (this.limbs == null) {
+            for (long rest = this.small; rest > 0; rest /= RADIX) {
+                action.accept((int) (rest % RADIX));
+            }
+        } else {
+            int top = this.limbs.length - 1;
+            for (int i = 0; i < top; i++) {
+                int rest = this.limbs[i];
+                for (int k = 0; k < LimbArithmetic.DIGITS_PER_LIMB; k++) {
+                    action.accept(rest % RADIX);
+                    rest /= RADIX;
+                }
+            }
+            for (int rest = this.limbs[top]; rest > 0; rest /= RADIX) {
+                action.accept(rest % RADIX);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes {@code writeBinary} writes for {@code this}.
+     *
+     * @return the length of the binary encoding of this
+     * @ensures <pre>
+     * binaryLength = 4 * (1 + [number of base 10^9 limbs of this, 0 for 0])
+     * </pre>
+     */
+    public final int binaryLength() {
+        return Integer.BYTES * (1 + this.limbs().length);
+    }
+
+    /**
+     * Writes the binary encoding of {@code this} to {@code out}: the number of
+     * base 10<sup>9</sup> limbs as a 4-byte integer, then the limbs, least
+     * significant first, each as a 4-byte integer. Every integer is written
+     * little-endian whatever the byte order of {@code out}. 0 is encoded as
+     * just a zero count.
+     *
+     * @param out
+     *            the destination
+     * @updates out
+     * @requires out.remaining() >= binaryLength()
+     * @ensures <pre>
+     * [the binary encoding of this has been put into out at #out.position()]
+     *   and
+     * out.position() = #out.position() + binaryLength()
+     * </pre>
+     */
+    public final void writeBinary(ByteBuffer out) {
+        assert out != null : "Violation of: out is not null";
+        int[] a = this.limbs();
+        assert out.remaining() >= Integer.BYTES * (1 + a.length)
+                : "Violation of: out.remaining() >= binaryLength()";
+        ByteBuffer le = out.slice().order(ByteOrder.LITTLE_ENDIAN);
+        le.putInt(a.length);
+        le.asIntBuffer().put(a);
+        out.position(out.position() + Integer.BYTES * (1 + a.length));
+    }
+
+    /**
+     * Sets {@code this} to the number encoded (as by {@code writeBinary}) at
+     * the position of {@code in}, and moves past the encoding. The limbs are
+     * copied in bulk, with no decimal conversion.
+     *
+     * @param in
+     *            the source
+     * @updates in
+     * @replaces this
+     * @requires [in.remaining() starts with a binary encoding of a natural
+     *           number, as written by writeBinary]
+     * @ensures <pre>
+     * this = [the number encoded at #in.position()]  and
+     * in.position() = #in.position() + binaryLength()
+     * </pre>
+     */
+    public final void readBinary(ByteBuffer in) {
+        assert in != null : "Violation of: in is not null";
+        ByteBuffer le = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int count = le.getInt();
+        assert count >= 0 && count <= le.remaining() / Integer.BYTES
+                : "Violation of: in starts with a binary encoding";
+        int[] a = new int[count];
+        le.asIntBuffer().get(a);
+        assert LimbArithmetic.isLimbs(IntBuffer.wrap(a))
+                : "Violation of: in starts with a binary encoding";
+        in.position(in.position() + Integer.BYTES * (1 + count));
+        this.setLimbs(a);
+    }
+
+    /**
+     * Iterator over the decimal digits of a {@code NaturalNumber5}, least
+     * significant first.
+     */
+    private static final class DigitIterator
+            implements PrimitiveIterator.OfInt {
+
+        /**
+         * Limbs being read, or {@code null} if the value is a {@code long}.
+         */
+        private final int[] limbs;
+
+        /**
+         * Index of the next limb to load into {@code current}.
+         */
+        private int nextLimb;
+
+        /**
+         * Not-yet-produced digits of the current chunk (limb or long).
+         */
+        private long current;
+
+        /**
+         * Number of digits left in {@code current}, or -1 if it is the most
+         * significant chunk, whose digits run out when it reaches 0.
+         */
+        private int left;
+
+        /**
+         * Constructor from a {@code NaturalNumber5} representation.
+         *
+         * @param small
+         *            the value, if {@code limbs} is {@code null}
+         * @param limbs
+         *            the limbs, or {@code null}
+         */
+        DigitIterator(long small, int[] limbs) {
+            this.limbs = limbs;
+            this.nextLimb = 0;
+            this.current = small;
+            this.left = -1;
+            if (limbs != null) {
+                this.left = 0;
+                this.loadChunk();
+            }
+        }
+
+        /**
+         * Moves to the next limb once the current one is used up.
+         */
+        private void loadChunk() {
+            if (this.left == 0 && this.nextLimb < this.limbs.length) {
+                this.current = this.limbs[this.nextLimb];
+                this.nextLimb++;
+                this.left = -1;
+                if (this.nextLimb < this.limbs.length) {
+                    this.left = LimbArithmetic.DIGITS_PER_LIMB;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.left > 0 || (this.left < 0 && this.current > 0);
+        }
+
+        @Override
+        public int nextInt() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int digit = (int) (this.current % RADIX);
+            this.current /= RADIX;
+            if (this.left > 0) {
+                this.left--;
+                this.loadChunk();
+            }
+            return digit;
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import components.naturalnumber.NaturalNumber;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times {@code NaturalNumber} multiplication on operands of increasing size,
+ * comparing the digit-at-a-time {@code NaturalNumberSecondary} path (through
+ * {@code NaturalNumber3}) with the limb-based {@code NaturalNumber5}, both
+ * restricted to schoolbook multiplication and with its Karatsuba/Toom-3
+ * thresholds. Then times {@code NaturalNumber5.multiplyParallel} and
+ * {@code powerParallel} in pools of 1, 2, 4, ... up to the number of available
+ * processors, against the serial {@code multiply} and {@code power}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class NaturalNumberBenchmark {
+
+    /**
+     * Operand sizes, in decimal digits.
+     */
+    private static final int[] DIGITS = { 1_000, 10_000, 100_000 };
+
+    /**
+     * Largest operand size for which the digit-at-a-time path is timed; it is
+     * too slow to be worth waiting for beyond this.
+     */
+    private static final int MAX_SECONDARY_DIGITS = 2_000;
+
+    /**
+     * Largest operand size for which schoolbook multiplication is timed.
+     */
+    private static final int MAX_SCHOOLBOOK_DIGITS = 100_000;
+
+    /**
+     * Operand size, in decimal digits, for the parallel scaling runs.
+     */
+    private static final int PARALLEL_DIGITS = 1_000_000;
+
+    /**
+     * Base for the parallel power runs.
+     */
+    private static final int POWER_BASE = 7;
+
+    /**
+     * Exponent for the parallel power runs.
+     */
+    private static final int POWER_EXPONENT = 1_000_000;
+
+    /**
+     * Number of untimed runs before each measurement.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Number of timed runs averaged for each measurement.
+     */
+    private static final int TIMED_RUNS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Seed for the random operands, so runs are repeatable.
+     */
+    private static final long SEED = 20_250_101L;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NaturalNumberBenchmark() {
+    }
+
+    /**
+     * Returns a random decimal depiction with exactly {@code digits} digits.
+     *
+     * @param rnd
+     *            the source of randomness
+     * @param digits
+     *            the number of digits
+     * @return the depiction
+     * @requires digits > 0
+     * @ensures |randomDepiction| = digits
+     */
+    static String randomDepiction(Random rnd, int digits) {
+        StringBuilder s = new StringBuilder(digits);
+        s.append((char) ('1' + rnd.nextInt(NaturalNumber.RADIX - 1)));
+        for (int i = 1; i < digits; i++) {
+            s.append((char) ('0' + rnd.nextInt(NaturalNumber.RADIX)));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the average time, in milliseconds, of {@code task}.
+     *
+     * @param task
+     *            the code to time
+     * @return average milliseconds per run
+     */
+    static double time(Runnable task) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / NANOS_PER_MILLI / TIMED_RUNS;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        Random rnd = new Random(SEED);
+        out.println("digits\tsecondary(ms)\tschoolbook(ms)\tfast(ms)");
+        for (int digits : DIGITS) {
+            String x = randomDepiction(rnd, digits);
+            String y = randomDepiction(rnd, digits);
+            String secondary = "-";
+            if (digits <= MAX_SECONDARY_DIGITS) {
+                secondary = String.format("%.2f", time(() -> {
+                    NaturalNumber n = new NaturalNumber3(x);
+                    n.multiply(new NaturalNumber3(y));
+                }));
+            }
+            int[] xLimbs = LimbArithmetic.parse(x, 0, x.length());
+            int[] yLimbs = LimbArithmetic.parse(y, 0, y.length());
+            String schoolbook = "-";
+            if (digits <= MAX_SCHOOLBOOK_DIGITS) {
+                schoolbook = String.format("%.2f", time(
+                        () -> LimbArithmetic.multiplySchoolbook(xLimbs,
+                                yLimbs)));
+            }
+            NaturalNumber5 xNumber = new NaturalNumber5(x);
+            NaturalNumber5 yNumber = new NaturalNumber5(y);
+            String fast = String.format("%.2f", time(() -> {
+                NaturalNumber n = new NaturalNumber5(xNumber);
+                n.multiply(yNumber);
+            }));
+            out.println(digits + "\t" + secondary + "\t" + schoolbook + "\t"
+                    + fast);
+        }
+        out.println();
+        timeParallel(out, rnd);
+        out.close();
+    }
+
+    /**
+     * Times {@code multiplyParallel} and {@code powerParallel} for increasing
+     * pool sizes and reports the speedup over the serial methods.
+     *
+     * @param out
+     *            where to report
+     * @param rnd
+     *            the source of random operands
+     * @updates out, rnd
+     */
+    private static void timeParallel(SimpleWriter out, Random rnd) {
+        NaturalNumber5 x = new NaturalNumber5(
+                randomDepiction(rnd, PARALLEL_DIGITS));
+        NaturalNumber5 y = new NaturalNumber5(
+                randomDepiction(rnd, PARALLEL_DIGITS));
+        double serialMultiply = time(() -> {
+            NaturalNumber n = new NaturalNumber5(x);
+            n.multiply(y);
+        });
+        double serialPower = time(() -> {
+            NaturalNumber n = new NaturalNumber5(POWER_BASE);
+            n.power(POWER_EXPONENT);
+        });
+        out.println(PARALLEL_DIGITS + "-digit multiply and " + POWER_BASE
+                + "^" + POWER_EXPONENT + ", serial: "
+                + String.format("%.2f", serialMultiply) + " ms and "
+                + String.format("%.2f", serialPower) + " ms");
+        out.println("threads\tmultiply(ms)\tspeedup\tpower(ms)\tspeedup");
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double multiply = time(() -> {
+                NaturalNumber5 n = new NaturalNumber5(x);
+                n.multiplyParallel(y, pool,
+                        NaturalNumber5.DEFAULT_PARALLEL_THRESHOLD);
+            });
+            double power = time(() -> {
+                NaturalNumber5 n = new NaturalNumber5(POWER_BASE);
+                n.powerParallel(POWER_EXPONENT, pool,
+                        NaturalNumber5.DEFAULT_PARALLEL_THRESHOLD);
+            });
+            pool.shutdown();
+            out.println(threads + "\t" + String.format("%.2f", multiply) + "\t"
+                    + String.format("%.2f", serialMultiply / multiply) + "\t"
+                    + String.format("%.2f", power) + "\t"
+                    + String.format("%.2f", serialPower / power));
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Saves and loads {@code NaturalNumber} snapshots in the binary encoding of
+ * {@code NaturalNumber5.writeBinary}: a limb count followed by little-endian
+ * base 10<sup>9</sup> limbs. Loading maps the file into memory and copies the
+ * limbs in bulk, so it runs at disk speed instead of re-parsing a decimal
+ * depiction.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class NaturalNumberFiles {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NaturalNumberFiles() {
+    }
+
+    /**
+     * Writes the binary encoding of {@code n} to {@code file}, replacing any
+     * previous contents.
+     *
+     * @param n
+     *            the number to save
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     * @ensures [file holds exactly the binary encoding of n]
+     */
+    public static void write(NaturalNumber n, Path file) throws IOException {
+        assert n != null : "Violation of: n is not null";
+        assert file != null : "Violation of: file is not null";
+        NaturalNumber5 value = new NaturalNumber5(n);
+        ByteBuffer buffer = ByteBuffer.allocate(value.binaryLength());
+        value.writeBinary(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the number saved in {@code file} by {@code write}.
+     *
+     * @param file
+     *            the file to read
+     * @return the number saved in file
+     * @throws IOException
+     *             if the file cannot be read or does not hold exactly one
+     *             binary encoding
+     * @ensures read = [the number whose binary encoding is in file]
+     */
+    public static NaturalNumber5 read(Path file) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        NaturalNumber5 result = new NaturalNumber5();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(file + ": not a NaturalNumber snapshot");
+            }
+            MappedByteBuffer mapped = channel
+                    .map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long count = Integer.toUnsignedLong(mapped.duplicate()
+                    .order(ByteOrder.LITTLE_ENDIAN).getInt());
+            if (size != Integer.BYTES * (1 + count)) {
+                throw new IOException(file + ": not a NaturalNumber snapshot");
+            }
+            /*
+             * readBinary only asserts that the limbs are valid, and would
+             * otherwise build a number that breaks its convention.
+             */
+            if (!LimbArithmetic.isLimbs(mapped.duplicate()
+                    .position(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer())) {
+                throw new IOException(file + ": invalid NaturalNumber limbs");
+            }
+            result.readBinary(mapped);
+        }
+        return result;
+    }
+
+}
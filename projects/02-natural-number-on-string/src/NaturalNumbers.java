@@ -0,0 +1,298 @@
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * Factory for shared, read-only {@code NaturalNumber} values, in the manner of
+ * {@code Integer.valueOf}.
+ *
+ * <p>
+ * Values returned by {@code valueOf} are read-only to their users: the
+ * secondary methods that would change one throw
+ * {@code UnsupportedOperationException}. Small values are cached, so hot loops
+ * that need 0, 1, 10, etc. as operands can share one instance instead of
+ * allocating a new one each time. To get a value that can be changed, copy it
+ * with {@code new NaturalNumber5(c)}; the copy shares the constant's
+ * representation until it is first changed, so copying is O(1).
+ *
+ * <p>
+ * The kernel methods are copy-on-write: {@code clear}, {@code transferFrom},
+ * {@code multiplyBy10} and {@code divideBy10} work on a private copy made for
+ * the calling thread, which is dropped as soon as it is equal to the shared
+ * value again. So other implementations' secondary methods, which may take an
+ * argument apart and then put it back together, may be passed these values
+ * freely, even from several threads at once. The {@code NaturalNumber5}
+ * methods never modify their arguments and never make the copy.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class NaturalNumbers {
+
+    /**
+     * Values in [0, CACHE_SIZE) are created once and shared.
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * The shared small values.
+     */
+    private static final Constant[] CACHE = new Constant[CACHE_SIZE];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = new Constant(new NaturalNumber5(i));
+        }
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NaturalNumbers() {
+    }
+
+    /**
+     * Returns a read-only {@code NaturalNumber} with value {@code x}.
+     *
+     * @param x
+     *            the value
+     * @return a read-only NaturalNumber equal to x
+     * @requires x >= 0
+     * @ensures <pre>
+     * valueOf = x  and
+     * [if x < CACHE_SIZE then valueOf is the same object on every call]
+     * </pre>
+     */
+    public static NaturalNumber valueOf(long x) {
+        assert x >= 0 : "Violation of: x >= 0";
+        NaturalNumber result;
+        if (x < CACHE_SIZE) {
+            result = CACHE[(int) x];
+        } else {
+            result = new Constant(new NaturalNumber5(Long.toString(x)));
+        }
+        return result;
+    }
+
+    /**
+     * Shared view of a {@code NaturalNumber5} that no one else holds. The
+     * kernel mutators work on a private, per-thread copy of the shared value,
+     * which is dropped again as soon as it is equal to the shared value.
+     */
+    static final class Constant extends NaturalNumberSecondary {
+
+        /**
+         * The shared value; never modified after construction.
+         */
+        private final NaturalNumber5 shared;
+
+        /**
+         * The calling thread's private copy, if a kernel mutator has changed
+         * {@code this} on that thread and the change has not been undone.
+         */
+        private final ThreadLocal<NaturalNumber5> changed = new ThreadLocal<>();
+
+        /**
+         * Constructor from the value to wrap.
+         *
+         * @param value
+         *            the value, which the caller must not keep or modify
+         */
+        private Constant(NaturalNumber5 value) {
+            this.shared = value;
+        }
+
+        /**
+         * Returns the current value of {@code this} on the calling thread, for
+         * read-only use.
+         *
+         * @return the current value
+         */
+        NaturalNumber5 value() {
+            NaturalNumber5 own = this.changed.get();
+            return own == null ? this.shared : own;
+        }
+
+        /**
+         * Returns the calling thread's private copy, making it if needed. The
+         * copy shares the limbs of the shared value until it is first changed,
+         * so making it is O(1).
+         *
+         * @return the private copy
+         */
+        private NaturalNumber5 own() {
+            NaturalNumber5 own = this.changed.get();
+            if (own == null) {
+                own = new NaturalNumber5(this.shared);
+                this.changed.set(own);
+            }
+            return own;
+        }
+
+        /**
+         * Drops the calling thread's private copy if it is back to the shared
+         * value, so that modify-then-restore leaves no trace.
+         */
+        private void dropIfRestored() {
+            if (this.changed.get().compareTo(this.shared) == 0) {
+                this.changed.remove();
+            }
+        }
+
+        /**
+         * Reports an attempt to change {@code this} through a secondary method.
+         *
+         * @return the exception to throw
+         */
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException(
+                    "NaturalNumbers.valueOf values are read-only");
+        }
+
+        /*
+         * Standard methods ---------------------------------------------------
+         */
+
+        /**
+         * Returns a new, modifiable {@code NaturalNumber5} equal to 0.
+         */
+        @Override
+        public NaturalNumber newInstance() {
+            return new NaturalNumber5();
+        }
+
+        @Override
+        public void clear() {
+            this.own().clear();
+            this.dropIfRestored();
+        }
+
+        @Override
+        public void transferFrom(NaturalNumber source) {
+            assert source != null : "Violation of: source is not null";
+            assert source != this : "Violation of: source is not this";
+            NaturalNumber5 own = this.own();
+            own.copyFrom(source);
+            source.clear();
+            this.dropIfRestored();
+        }
+
+        /*
+         * Kernel methods -----------------------------------------------------
+         */
+
+        @Override
+        public void multiplyBy10(int k) {
+            this.own().multiplyBy10(k);
+            this.dropIfRestored();
+        }
+
+        @Override
+        public int divideBy10() {
+            int result = this.own().divideBy10();
+            this.dropIfRestored();
+            return result;
+        }
+
+        @Override
+        public boolean isZero() {
+            return this.value().isZero();
+        }
+
+        /*
+         * Secondary methods --------------------------------------------------
+         */
+
+        @Override
+        public void setFromInt(int i) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean canConvertToInt() {
+            return this.value().canConvertToInt();
+        }
+
+        @Override
+        public int toInt() {
+            return this.value().toInt();
+        }
+
+        @Override
+        public void setFromString(String s) {
+            throw readOnly();
+        }
+
+        @Override
+        public void copyFrom(NaturalNumber n) {
+            throw readOnly();
+        }
+
+        @Override
+        public void increment() {
+            throw readOnly();
+        }
+
+        @Override
+        public void decrement() {
+            throw readOnly();
+        }
+
+        @Override
+        public void add(NaturalNumber n) {
+            throw readOnly();
+        }
+
+        @Override
+        public void subtract(NaturalNumber n) {
+            throw readOnly();
+        }
+
+        @Override
+        public void multiply(NaturalNumber n) {
+            throw readOnly();
+        }
+
+        @Override
+        public NaturalNumber divide(NaturalNumber n) {
+            throw readOnly();
+        }
+
+        @Override
+        public void power(int p) {
+            throw readOnly();
+        }
+
+        @Override
+        public void root(int r) {
+            throw readOnly();
+        }
+
+        @Override
+        public int compareTo(NaturalNumber n) {
+            return this.value().compareTo(n);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof NaturalNumber
+                    && this.value().compareTo((NaturalNumber) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            /*
+             * The inherited hashCode may take the number apart and put it back
+             * together; do that on a private copy so the shared value is never
+             * touched.
+             */
+            return new NaturalNumber5(this.value()).hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.value().toString();
+        }
+
+    }
+
+}
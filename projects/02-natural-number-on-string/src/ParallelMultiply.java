@@ -0,0 +1,115 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task computing the product of two limb arrays (see
+ * {@code LimbArithmetic}) by running the independent sub-products of the
+ * Karatsuba/Toom-3 recursion in parallel.
+ *
+ * <p>
+ * Each level splits its product with {@code LimbArithmetic.splitFactors},
+ * forks one task per sub-product, and joins them with
+ * {@code LimbArithmetic.combineProducts}. Once the shorter factor is below
+ * the threshold the task falls back to the serial
+ * {@code LimbArithmetic.multiply}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+final class ParallelMultiply extends RecursiveTask<int[]> {
+
+    /**
+     * Serialization version (required for {@code RecursiveTask}).
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * First factor.
+     */
+    private final int[] a;
+
+    /**
+     * Second factor.
+     */
+    private final int[] b;
+
+    /**
+     * Shortest factor length, in limbs, at which the product is split across
+     * tasks.
+     */
+    private final int threshold;
+
+    /**
+     * Constructor.
+     *
+     * @param a
+     *            the first factor
+     * @param b
+     *            the second factor
+     * @param threshold
+     *            shortest factor length, in limbs, to split across tasks
+     */
+    private ParallelMultiply(int[] a, int[] b, int threshold) {
+        this.a = a;
+        this.b = b;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns {@code a * b}, computed in {@code pool}.
+     *
+     * @param a
+     *            the first factor
+     * @param b
+     *            the second factor
+     * @param pool
+     *            the pool to run in
+     * @param threshold
+     *            shortest factor length, in limbs, to split across tasks
+     * @return the product
+     * @requires IS_LIMBS(a) and IS_LIMBS(b) and threshold > 0
+     * @ensures <pre>
+     * IS_LIMBS(multiply)  and
+     * NUMERIC_VALUE(multiply) = NUMERIC_VALUE(a) * NUMERIC_VALUE(b)
+     * </pre>
+     */
+    static int[] multiply(int[] a, int[] b, ForkJoinPool pool,
+            int threshold) {
+        assert pool != null : "Violation of: pool is not null";
+        assert threshold > 0 : "Violation of: threshold > 0";
+        return pool.invoke(new ParallelMultiply(a, b, Math.max(threshold,
+                LimbArithmetic.KARATSUBA_THRESHOLD)));
+    }
+
+    @Override
+    protected int[] compute() {
+        int[] longer = this.a;
+        int[] shorter = this.b;
+        if (this.a.length < this.b.length) {
+            longer = this.b;
+            shorter = this.a;
+        }
+        int[] result;
+        if (shorter.length < this.threshold) {
+            result = LimbArithmetic.multiply(longer, shorter);
+        } else {
+            int[][] factors = LimbArithmetic.splitFactors(longer, shorter);
+            ParallelMultiply[] tasks = new ParallelMultiply[factors.length
+                    / 2];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new ParallelMultiply(factors[2 * i],
+                        factors[2 * i + 1], this.threshold);
+            }
+            ForkJoinTask.invokeAll(tasks);
+            int[][] products = new int[tasks.length][];
+            for (int i = 0; i < tasks.length; i++) {
+                products[i] = tasks[i].join();
+            }
+            result = LimbArithmetic.combineProducts(longer, shorter,
+                    products);
+        }
+        return result;
+    }
+
+}
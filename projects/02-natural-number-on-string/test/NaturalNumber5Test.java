@@ -0,0 +1,710 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * Customized JUnit test fixture for {@code NaturalNumber5}.
+ */
+public class NaturalNumber5Test extends NaturalNumberTest {
+
+    /**
+     * 10^18, the smallest value held in limbs rather than a {@code long}.
+     */
+    private static final String SMALL_LIMIT = "1000000000000000000";
+
+    /**
+     * 10^18 - 1, the largest value held in a {@code long}.
+     */
+    private static final String BELOW_SMALL_LIMIT = "999999999999999999";
+
+    /**
+     * Returns a new {@code NaturalNumber5} initialized to 0.
+     */
+    @Override
+    protected final NaturalNumber constructorTest() {
+
+        return new NaturalNumber5();
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber5} initialized to the given int.
+     *
+     * @param i
+     *            non-negative integer
+     */
+    @Override
+    protected final NaturalNumber constructorTest(int i) {
+
+        return new NaturalNumber5(i);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber5} initialized from the given String.
+     *
+     * @param s
+     *            string representation of a natural number
+     */
+    @Override
+    protected final NaturalNumber constructorTest(String s) {
+
+        return new NaturalNumber5(s);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber5} copied from another NaturalNumber.
+     *
+     * @param n
+     *            the number to copy
+     */
+    @Override
+    protected final NaturalNumber constructorTest(NaturalNumber n) {
+
+        return new NaturalNumber5(n);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber2} initialized to 0 as the reference.
+     */
+    @Override
+    protected final NaturalNumber constructorRef() {
+
+        return new NaturalNumber2();
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber2} initialized to the given int as the
+     * reference.
+     */
+    @Override
+    protected final NaturalNumber constructorRef(int i) {
+
+        return new NaturalNumber2(i);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber2} initialized from the given String as
+     * the reference.
+     */
+    @Override
+    protected final NaturalNumber constructorRef(String s) {
+
+        return new NaturalNumber2(s);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumber2} copied from another NaturalNumber as
+     * the reference.
+     */
+    @Override
+    protected final NaturalNumber constructorRef(NaturalNumber n) {
+
+        return new NaturalNumber2(n);
+    }
+
+    /**
+     * Tests that {@code writeTo} writes the same depiction as
+     * {@code toString} for 0.
+     *
+     * @throws IOException
+     *             never, for a {@code StringBuilder}
+     */
+    @Test
+    public void testWriteToZero() throws IOException {
+        NaturalNumber5 n = new NaturalNumber5();
+        StringBuilder out = new StringBuilder("x=");
+        n.writeTo(out);
+        assertEquals("x=0", out.toString());
+    }
+
+    /**
+     * Tests that {@code writeTo} writes the same depiction as
+     * {@code toString} for a value long enough to be written in several
+     * chunks, with runs of zeros inside limbs.
+     *
+     * @throws IOException
+     *             never, for a {@code StringBuilder}
+     */
+    @Test
+    public void testWriteToManyChunks() throws IOException {
+        final int repeats = 2000;
+        StringBuilder depiction = new StringBuilder();
+        for (int i = 0; i < repeats; i++) {
+            depiction.append("1000000007");
+        }
+        NaturalNumber5 n = new NaturalNumber5(depiction.toString());
+        StringBuilder out = new StringBuilder();
+        n.writeTo(out);
+        assertEquals(depiction.toString(), out.toString());
+        assertEquals(depiction.toString(), n.toString());
+    }
+
+    /**
+     * Returns the digits produced by {@code digits()}, most significant first,
+     * as a {@code String}.
+     *
+     * @param n
+     *            the number
+     * @return the digits of n as a string
+     */
+    private static String digitsOf(NaturalNumber5 n) {
+        StringBuilder s = new StringBuilder();
+        PrimitiveIterator.OfInt it = n.digits();
+        while (it.hasNext()) {
+            s.insert(0, it.nextInt());
+        }
+        return s.toString();
+    }
+
+    /**
+     * Tests that 0 has no digits.
+     */
+    @Test
+    public void testDigitsZero() {
+        NaturalNumber5 n = new NaturalNumber5();
+        assertFalse(n.digits().hasNext());
+        n.forEachDigit(d -> {
+            throw new AssertionError("0 has no digits");
+        });
+    }
+
+    /**
+     * Tests the digits of a value held in a {@code long}.
+     */
+    @Test
+    public void testDigitsSmall() {
+        NaturalNumber5 n = new NaturalNumber5("1203");
+        assertEquals("1203", digitsOf(n));
+        assertEquals("1203", n.toString());
+    }
+
+    /**
+     * Tests the digits of a value held in limbs, with zeros inside limbs, and
+     * that {@code forEachDigit} visits the same digits.
+     */
+    @Test
+    public void testDigitsLarge() {
+        final String depiction = "70000000000000000000000000000000000123";
+        NaturalNumber5 n = new NaturalNumber5(depiction);
+        assertEquals(depiction, digitsOf(n));
+        StringBuilder visited = new StringBuilder();
+        n.forEachDigit(d -> visited.insert(0, d));
+        assertEquals(depiction, visited.toString());
+        assertEquals(depiction, n.toString());
+    }
+
+    /**
+     * Returns a {@code String} of {@code count} copies of {@code unit}.
+     *
+     * @param unit
+     *            the string to repeat
+     * @param count
+     *            the number of copies
+     * @return the repeated string
+     */
+    private static String repeat(String unit, int count) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            s.append(unit);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Tests the exact bytes {@code writeBinary} writes, whatever the byte
+     * order of the buffer.
+     */
+    @Test
+    public void testWriteBinaryLayout() {
+        NaturalNumber5 n = new NaturalNumber5("1999999999000000005");
+        ByteBuffer out = ByteBuffer.allocate(n.binaryLength() + 1);
+        out.put((byte) 9);
+        n.writeBinary(out);
+        assertEquals(n.binaryLength() + 1, out.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, out.order());
+        byte[] expected = { 9, 3, 0, 0, 0, 5, 0, 0, 0, -1, -55, -102, 59, 1, 0,
+                0, 0 };
+        assertArrayEquals(expected, out.array());
+    }
+
+    /**
+     * Tests that {@code readBinary} reads back what {@code writeBinary} wrote,
+     * for 0, a small value, and a large one.
+     */
+    @Test
+    public void testBinaryRoundTrip() {
+        NaturalNumber5[] values = { new NaturalNumber5(),
+                new NaturalNumber5(123_456_789),
+                new NaturalNumber5(repeat("9081726354", 100)) };
+        int length = 0;
+        for (NaturalNumber5 v : values) {
+            length += v.binaryLength();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        for (NaturalNumber5 v : values) {
+            v.writeBinary(buffer);
+        }
+        buffer.flip();
+        for (NaturalNumber5 v : values) {
+            NaturalNumber5 n = new NaturalNumber5(1);
+            n.readBinary(buffer);
+            assertEquals(v.toString(), n.toString());
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Tests {@code divide} with a divisor and quotient long enough to use a
+     * Newton reciprocal.
+     */
+    @Test
+    public void testDivideLarge() {
+        NaturalNumber5 b = new NaturalNumber5(repeat("1029384756", 900));
+        NaturalNumber5 q = new NaturalNumber5(repeat("9081726354", 1000));
+        NaturalNumber5 r = new NaturalNumber5(repeat("5", 8000));
+        NaturalNumber5 a = new NaturalNumber5(b);
+        a.multiply(q);
+        a.add(r);
+        NaturalNumber remainder = a.divide(b);
+        assertEquals(q.toString(), a.toString());
+        assertEquals(r.toString(), remainder.toString());
+    }
+
+    /**
+     * Tests {@code root} on a value whose root is long enough to be seeded
+     * from the root of its high half, at and just below a perfect square.
+     */
+    @Test
+    public void testRootLarge() {
+        NaturalNumber5 x = new NaturalNumber5(repeat("9081726354", 100));
+        NaturalNumber5 square = new NaturalNumber5(x);
+        square.multiply(x);
+        NaturalNumber5 belowSquare = new NaturalNumber5(square);
+        belowSquare.decrement();
+        square.root(2);
+        belowSquare.root(2);
+        assertEquals(x.toString(), square.toString());
+        x.decrement();
+        assertEquals(x.toString(), belowSquare.toString());
+    }
+
+    /**
+     * Tests that {@code multiplyParallel} matches {@code multiply} on factors
+     * large enough to be split across tasks.
+     */
+    @Test
+    public void testMultiplyParallel() {
+        final int copies = 500;
+        NaturalNumber5 x = new NaturalNumber5(repeat("9081726354", copies));
+        NaturalNumber5 y = new NaturalNumber5(repeat("1029384756", copies));
+        NaturalNumber5 expected = new NaturalNumber5(x);
+        expected.multiply(y);
+        x.multiplyParallel(y, ForkJoinPool.commonPool(), 1);
+        assertEquals(expected.toString(), x.toString());
+    }
+
+    /**
+     * Tests that {@code powerParallel} matches {@code power}.
+     */
+    @Test
+    public void testPowerParallel() {
+        final int p = 150;
+        NaturalNumber5 x = new NaturalNumber5("123456789123456789");
+        NaturalNumber5 expected = new NaturalNumber5(x);
+        expected.power(p);
+        x.powerParallel(p, ForkJoinPool.commonPool(), 1);
+        assertEquals(expected.toString(), x.toString());
+    }
+
+    /**
+     * Operation on two natural numbers, to be checked against the reference
+     * implementation.
+     */
+    private interface Operation {
+
+        /**
+         * Applies the operation to {@code x} and {@code y}.
+         *
+         * @param x
+         *            the first operand, which may be updated
+         * @param y
+         *            the second operand, which may be updated
+         * @return the result of the operation, or null if it has none
+         */
+        Object apply(NaturalNumber x, NaturalNumber y);
+
+    }
+
+    /**
+     * Applies {@code op} to numbers made from {@code x} and {@code y} by both
+     * the implementation under test and the reference implementation, and
+     * checks that the operands and results agree.
+     *
+     * @param x
+     *            depiction of the first operand
+     * @param y
+     *            depiction of the second operand
+     * @param op
+     *            the operation
+     */
+    private void checkAgainstRef(String x, String y, Operation op) {
+        NaturalNumber testX = this.constructorTest(x);
+        NaturalNumber testY = this.constructorTest(y);
+        NaturalNumber refX = this.constructorRef(x);
+        NaturalNumber refY = this.constructorRef(y);
+        Object testResult = op.apply(testX, testY);
+        Object refResult = op.apply(refX, refY);
+        assertEquals(refX, testX);
+        assertEquals(refY, testY);
+        assertEquals(String.valueOf(refResult), String.valueOf(testResult));
+    }
+
+    /**
+     * Tests increment from the largest {@code long}-held value and decrement
+     * from the smallest limb-held one.
+     */
+    @Test
+    public void testIncrementDecrementAcrossSmallLimit() {
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, "0", (x, y) -> {
+            x.increment();
+            return null;
+        });
+        this.checkAgainstRef(SMALL_LIMIT, "0", (x, y) -> {
+            x.decrement();
+            return null;
+        });
+    }
+
+    /**
+     * Tests multiplyBy10 and divideBy10 crossing 10^18 in both directions.
+     */
+    @Test
+    public void testMultiplyDivideBy10AcrossSmallLimit() {
+        this.checkAgainstRef("100000000000000000", "0", (x, y) -> {
+            x.multiplyBy10(0);
+            return null;
+        });
+        this.checkAgainstRef("99999999999999999", "0", (x, y) -> {
+            x.multiplyBy10(9);
+            return null;
+        });
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, "0", (x, y) -> {
+            x.multiplyBy10(9);
+            return null;
+        });
+        this.checkAgainstRef(SMALL_LIMIT, "0", (x, y) -> x.divideBy10());
+        this.checkAgainstRef("9999999999999999999", "0",
+                (x, y) -> x.divideBy10());
+        this.checkAgainstRef("10000000000000000009", "0",
+                (x, y) -> x.divideBy10());
+    }
+
+    /**
+     * Tests add, subtract, and multiply whose results cross 10^18.
+     */
+    @Test
+    public void testArithmeticAcrossSmallLimit() {
+        Operation add = (x, y) -> {
+            x.add(y);
+            return null;
+        };
+        Operation subtract = (x, y) -> {
+            x.subtract(y);
+            return null;
+        };
+        Operation multiply = (x, y) -> {
+            x.multiply(y);
+            return null;
+        };
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, "1", add);
+        this.checkAgainstRef("500000000000000000", "500000000000000000", add);
+        this.checkAgainstRef("1", BELOW_SMALL_LIMIT, add);
+        this.checkAgainstRef(SMALL_LIMIT, "1", subtract);
+        this.checkAgainstRef("1000000000000000001", "2", subtract);
+        this.checkAgainstRef(SMALL_LIMIT, BELOW_SMALL_LIMIT, subtract);
+        this.checkAgainstRef(SMALL_LIMIT, SMALL_LIMIT, subtract);
+        this.checkAgainstRef("1000000000", "1000000000", multiply);
+        this.checkAgainstRef("1000000001", "999999999", multiply);
+        this.checkAgainstRef(SMALL_LIMIT, "0", multiply);
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, BELOW_SMALL_LIMIT, multiply);
+    }
+
+    /**
+     * Tests compareTo between a {@code long}-held value and a limb-held one,
+     * in both orders, and between equal values reached by each route.
+     */
+    @Test
+    public void testCompareToAcrossSmallLimit() {
+        Operation compare = (x, y) -> Integer.signum(x.compareTo(y));
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, SMALL_LIMIT, compare);
+        this.checkAgainstRef(SMALL_LIMIT, BELOW_SMALL_LIMIT, compare);
+        this.checkAgainstRef("7", "123456789012345678901234567890", compare);
+        this.checkAgainstRef(BELOW_SMALL_LIMIT, SMALL_LIMIT, (x, y) -> {
+            x.increment();
+            return Integer.signum(x.compareTo(y));
+        });
+        this.checkAgainstRef(SMALL_LIMIT, BELOW_SMALL_LIMIT, (x, y) -> {
+            x.decrement();
+            return Integer.signum(x.compareTo(y));
+        });
+    }
+
+    /**
+     * Tests add with zero operands and a carry through every limb.
+     */
+    @Test
+    public void testAddAgainstRef() {
+        Operation add = (x, y) -> {
+            x.add(y);
+            return null;
+        };
+        final String nines = repeat("9", 45);
+        this.checkAgainstRef("0", "0", add);
+        this.checkAgainstRef(nines, "0", add);
+        this.checkAgainstRef("0", nines, add);
+        this.checkAgainstRef(nines, "1", add);
+        this.checkAgainstRef("1", nines, add);
+        this.checkAgainstRef(nines, nines, add);
+        this.checkAgainstRef(repeat("5", 40), repeat("5", 60), add);
+    }
+
+    /**
+     * Tests subtract with zero operands, equal operands, and a borrow through
+     * every limb.
+     */
+    @Test
+    public void testSubtractAgainstRef() {
+        Operation subtract = (x, y) -> {
+            x.subtract(y);
+            return null;
+        };
+        final String power = "1" + repeat("0", 45);
+        this.checkAgainstRef("0", "0", subtract);
+        this.checkAgainstRef(power, "0", subtract);
+        this.checkAgainstRef(power, "1", subtract);
+        this.checkAgainstRef(power, power, subtract);
+        this.checkAgainstRef(power, repeat("9", 45), subtract);
+        this.checkAgainstRef(repeat("7", 60), repeat("8", 40), subtract);
+        this.checkAgainstRef("123456789", "123456789", subtract);
+    }
+
+    /**
+     * Tests multiply with zero and one operands, carries out of every limb,
+     * and factors of different lengths.
+     */
+    @Test
+    public void testMultiplyAgainstRef() {
+        Operation multiply = (x, y) -> {
+            x.multiply(y);
+            return null;
+        };
+        final String nines = repeat("9", 45);
+        this.checkAgainstRef("0", nines, multiply);
+        this.checkAgainstRef(nines, "0", multiply);
+        this.checkAgainstRef(nines, "1", multiply);
+        this.checkAgainstRef(nines, nines, multiply);
+        this.checkAgainstRef(repeat("123456789", 7), "987654321", multiply);
+        this.checkAgainstRef("987654321", repeat("123456789", 7), multiply);
+    }
+
+    /**
+     * Tests divide by 1, by itself, by a larger divisor, and with a remainder,
+     * on small and limb-held values.
+     */
+    @Test
+    public void testDivideAgainstRef() {
+        Operation divide = (x, y) -> x.divide(y);
+        final String big = repeat("8172635409", 5);
+        this.checkAgainstRef("0", "7", divide);
+        this.checkAgainstRef(big, "1", divide);
+        this.checkAgainstRef(big, big, divide);
+        this.checkAgainstRef(big, big + "0", divide);
+        this.checkAgainstRef("5", big, divide);
+        this.checkAgainstRef(big, "1000000000", divide);
+        this.checkAgainstRef(big, repeat("3", 25), divide);
+        this.checkAgainstRef("1" + repeat("0", 50), repeat("9", 20), divide);
+        this.checkAgainstRef("100", "7", divide);
+    }
+
+    /**
+     * Tests power with exponents 0 and 1, of 0 and 1, and of a limb-held
+     * value.
+     */
+    @Test
+    public void testPowerAgainstRef() {
+        final int[] exponents = { 0, 1, 2, 7 };
+        final String[] bases = { "0", "1", "10", "999999999",
+                repeat("9", 30) };
+        for (String b : bases) {
+            for (int p : exponents) {
+                this.checkAgainstRef(b, "0", (x, y) -> {
+                    x.power(p);
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Tests root of 0, 1, perfect powers and their neighbours, and limb-held
+     * values.
+     */
+    @Test
+    public void testRootAgainstRef() {
+        final int[] roots = { 2, 3, 5 };
+        final String[] values = { "0", "1", "2", "99", "100", "101",
+                "1000000", repeat("9", 30), "1" + repeat("0", 30),
+                repeat("31415926535", 4) };
+        for (String v : values) {
+            for (int r : roots) {
+                this.checkAgainstRef(v, "0", (x, y) -> {
+                    x.root(r);
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Tests root with an index near and far past the bit length of a
+     * limb-held radicand, where the root is 1 or 2.
+     */
+    @Test
+    public void testRootLargeIndex() {
+        final int bits = 100;
+        final String twoToBits = BigInteger.ONE.shiftLeft(bits).toString();
+        final String belowTwoToBits = BigInteger.ONE.shiftLeft(bits)
+                .subtract(BigInteger.ONE).toString();
+        final int[] roots = { bits - 1, bits, bits + 1, 100_000,
+                Integer.MAX_VALUE };
+        final String[] expected = { "2", "2", "1", "1", "1" };
+        for (int i = 0; i < roots.length; i++) {
+            NaturalNumber n = new NaturalNumber5(twoToBits);
+            n.root(roots[i]);
+            assertEquals(expected[i], n.toString());
+        }
+        NaturalNumber n = new NaturalNumber5(belowTwoToBits);
+        n.root(bits);
+        assertEquals("1", n.toString());
+        this.checkAgainstRef(belowTwoToBits, "0", (x, y) -> {
+            x.root(bits - 1);
+            return null;
+        });
+    }
+
+    /**
+     * Tests compareTo on zero, equal, and unequal operands of equal and
+     * different lengths.
+     */
+    @Test
+    public void testCompareToAgainstRef() {
+        Operation compare = (x, y) -> Integer.signum(x.compareTo(y));
+        final String big = repeat("5", 40);
+        this.checkAgainstRef("0", "0", compare);
+        this.checkAgainstRef("0", big, compare);
+        this.checkAgainstRef(big, "0", compare);
+        this.checkAgainstRef(big, big, compare);
+        this.checkAgainstRef(big, repeat("5", 39) + "6", compare);
+        this.checkAgainstRef("6" + repeat("5", 39), big, compare);
+        this.checkAgainstRef(big, repeat("5", 41), compare);
+        this.checkAgainstRef("42", "41", compare);
+    }
+
+    /**
+     * Tests toString on 0, small values, and limb-held values with zeros
+     * inside and at the ends of limbs.
+     */
+    @Test
+    public void testToStringAgainstRef() {
+        final String[] values = { "0", "7", "1000000000", "1000000007",
+                "1" + repeat("0", 40), repeat("1000000000", 6) + "1" };
+        for (String v : values) {
+            this.checkAgainstRef(v, "0", (x, y) -> x.toString());
+        }
+    }
+
+    /**
+     * Returns a random depiction of exactly {@code limbs} base 10^9 limbs.
+     *
+     * @param rnd
+     *            the source of random digits
+     * @param limbs
+     *            the number of limbs
+     * @return the depiction
+     */
+    private static String randomLimbs(Random rnd, int limbs) {
+        final int digitsPerLimb = 9;
+        StringBuilder s = new StringBuilder();
+        s.append(1 + rnd.nextInt(9));
+        for (int i = 1; i < limbs * digitsPerLimb; i++) {
+            s.append(rnd.nextInt(10));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Checks {@code multiply} of random factors of {@code m} and {@code n}
+     * limbs, in both orders, against {@code BigInteger}.
+     *
+     * @param rnd
+     *            the source of random digits
+     * @param m
+     *            the number of limbs of the first factor
+     * @param n
+     *            the number of limbs of the second factor
+     */
+    private static void checkMultiply(Random rnd, int m, int n) {
+        String x = randomLimbs(rnd, m);
+        String y = randomLimbs(rnd, n);
+        String expected = new BigInteger(x).multiply(new BigInteger(y))
+                .toString();
+        NaturalNumber5 xy = new NaturalNumber5(x);
+        xy.multiply(new NaturalNumber5(y));
+        assertEquals(m + "x" + n, expected, xy.toString());
+        NaturalNumber5 yx = new NaturalNumber5(y);
+        yx.multiply(new NaturalNumber5(x));
+        assertEquals(n + "x" + m, expected, yx.toString());
+    }
+
+    /**
+     * Tests multiply on balanced factors just below, at, and just above the
+     * Karatsuba threshold (80 limbs) and the Toom-3 threshold (256 limbs).
+     */
+    @Test
+    public void testMultiplyAtThresholds() {
+        final int[] lengths = { 79, 80, 81, 255, 256, 257 };
+        Random rnd = new Random(3);
+        for (int n : lengths) {
+            checkMultiply(rnd, n, n);
+        }
+    }
+
+    /**
+     * Tests multiply on factors of different lengths around the thresholds:
+     * a shorter factor on either side of each, and a longer one less than,
+     * and at least, twice as long.
+     */
+    @Test
+    public void testMultiplyUnbalancedAtThresholds() {
+        final int[][] shapes = { { 81, 79 }, { 150, 80 }, { 161, 81 },
+                { 400, 81 }, { 300, 255 }, { 500, 256 }, { 511, 257 },
+                { 1100, 257 }, { 257, 3 } };
+        Random rnd = new Random(5);
+        for (int[] shape : shapes) {
+            checkMultiply(rnd, shape[0], shape[1]);
+        }
+    }
+
+}
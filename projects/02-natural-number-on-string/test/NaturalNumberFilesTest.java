@@ -0,0 +1,155 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * JUnit test fixture for {@code NaturalNumberFiles}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class NaturalNumberFilesTest {
+
+    /**
+     * Writes {@code n} to a new temporary file and reads it back.
+     *
+     * @param n
+     *            the number to save
+     * @return the number read back
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    private static NaturalNumber5 roundTrip(NaturalNumber n)
+            throws IOException {
+        Path file = Files.createTempFile("natural", ".bin");
+        try {
+            NaturalNumberFiles.write(n, file);
+            return NaturalNumberFiles.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests saving and loading 0.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    @Test
+    public void testRoundTripZero() throws IOException {
+        assertEquals("0", roundTrip(new NaturalNumber5()).toString());
+    }
+
+    /**
+     * Tests saving and loading a large value.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    @Test
+    public void testRoundTripLarge() throws IOException {
+        final int repeats = 1000;
+        StringBuilder depiction = new StringBuilder();
+        for (int i = 0; i < repeats; i++) {
+            depiction.append("1000000007");
+        }
+        NaturalNumber5 n = new NaturalNumber5(depiction.toString());
+        assertEquals(depiction.toString(), roundTrip(n).toString());
+    }
+
+    /**
+     * Tests saving a value from another implementation.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    @Test
+    public void testRoundTripOtherImplementation() throws IOException {
+        final String depiction = "98765432109876543210";
+        NaturalNumber n = new NaturalNumber2(depiction);
+        assertEquals(depiction, roundTrip(n).toString());
+        assertEquals(depiction, n.toString());
+    }
+
+    /**
+     * Tests that a file whose length does not match its limb count is
+     * rejected.
+     *
+     * @throws IOException
+     *             expected, since the file is truncated
+     */
+    @Test(expected = IOException.class)
+    public void testReadTruncated() throws IOException {
+        Path file = Files.createTempFile("natural", ".bin");
+        try {
+            Files.write(file, new byte[] { 2, 0, 0, 0, 1, 0, 0, 0 });
+            NaturalNumberFiles.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that read rejects an encoding whose most significant limb is 0.
+     *
+     * @throws IOException
+     *             expected, since the top limb is 0
+     */
+    @Test(expected = IOException.class)
+    public void testReadZeroTopLimb() throws IOException {
+        Path file = Files.createTempFile("natural", ".bin");
+        try {
+            Files.write(file, new byte[] { 1, 0, 0, 0, 0, 0, 0, 0 });
+            NaturalNumberFiles.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that read rejects an encoding with a limb of 10^9 or more.
+     *
+     * @throws IOException
+     *             expected, since a limb is out of range
+     */
+    @Test(expected = IOException.class)
+    public void testReadLimbOutOfRange() throws IOException {
+        Path file = Files.createTempFile("natural", ".bin");
+        try {
+            /*
+             * Limbs 10^9 (0x3B9ACA00) and 1, little-endian.
+             */
+            Files.write(file, new byte[] { 2, 0, 0, 0, 0x00, (byte) 0xCA,
+                    (byte) 0x9A, 0x3B, 1, 0, 0, 0 });
+            NaturalNumberFiles.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that read rejects an encoding with a negative limb.
+     *
+     * @throws IOException
+     *             expected, since a limb is negative
+     */
+    @Test(expected = IOException.class)
+    public void testReadNegativeLimb() throws IOException {
+        Path file = Files.createTempFile("natural", ".bin");
+        try {
+            Files.write(file, new byte[] { 1, 0, 0, 0, -1, -1, -1, -1 });
+            NaturalNumberFiles.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * JUnit test fixture for {@code NaturalNumbers}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class NaturalNumbersTest {
+
+    /**
+     * Tests that small values are shared.
+     */
+    @Test
+    public void testValueOfSmallIsShared() {
+        final int ten = 10;
+        NaturalNumber first = NaturalNumbers.valueOf(ten);
+        NaturalNumber second = NaturalNumbers.valueOf(ten);
+        assertSame(first, second);
+        assertEquals("10", first.toString());
+    }
+
+    /**
+     * Tests a value too large to be cached.
+     */
+    @Test
+    public void testValueOfLarge() {
+        final long large = 12_345_678_901_234L;
+        NaturalNumber n = NaturalNumbers.valueOf(large);
+        assertEquals(0, n.compareTo(new NaturalNumber2("12345678901234")));
+        assertEquals("12345678901234", n.toString());
+    }
+
+    /**
+     * Tests that a kernel method changes only the calling thread's copy of a
+     * shared value, and that undoing the change restores the shared value.
+     */
+    @Test
+    public void testMultiplyBy10IsCopyOnWrite() throws InterruptedException {
+        final int seven = 7;
+        NaturalNumber one = NaturalNumbers.valueOf(1);
+        one.multiplyBy10(seven);
+        assertEquals("17", one.toString());
+        String[] seenByOther = new String[1];
+        Thread other = new Thread(() -> seenByOther[0] = one.toString());
+        other.start();
+        other.join();
+        assertEquals("1", seenByOther[0]);
+        assertEquals(seven, one.divideBy10());
+        assertEquals("1", one.toString());
+        assertSame(one, NaturalNumbers.valueOf(1));
+    }
+
+    /**
+     * Tests that a shared value cannot be changed through a secondary method.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddIsRejected() {
+        NaturalNumbers.valueOf(1).add(new NaturalNumber5(1));
+    }
+
+    /**
+     * Tests that a shared value can be passed to another implementation's
+     * multiply, which takes its argument apart and puts it back together, and
+     * is unchanged afterward.
+     */
+    @Test
+    public void testNaturalNumber3MultiplyLeavesConstant() {
+        NaturalNumber ten = NaturalNumbers.valueOf(10);
+        NaturalNumber n = new NaturalNumber3(123);
+        n.multiply(ten);
+        assertEquals("1230", n.toString());
+        assertEquals("10", ten.toString());
+        assertEquals(0, ten.compareTo(new NaturalNumber5(10)));
+        assertSame(ten, NaturalNumbers.valueOf(10));
+    }
+
+    /**
+     * Tests that a shared value can be passed to another implementation's
+     * add, which takes its argument apart and puts it back together, and is
+     * unchanged afterward.
+     */
+    @Test
+    public void testNaturalNumber3AddLeavesConstant() {
+        NaturalNumber ten = NaturalNumbers.valueOf(10);
+        NaturalNumber n = new NaturalNumber3(95);
+        n.add(ten);
+        assertEquals("105", n.toString());
+        assertEquals("10", ten.toString());
+        assertEquals(0, ten.compareTo(new NaturalNumber5(10)));
+        assertSame(ten, NaturalNumbers.valueOf(10));
+    }
+
+    /**
+     * Tests that a copy can be changed without changing the shared value, and
+     * that shared values can be used as arguments.
+     */
+    @Test
+    public void testCopyIsIndependent() {
+        final int expected = 11;
+        NaturalNumber one = NaturalNumbers.valueOf(1);
+        NaturalNumber n = new NaturalNumber5(one);
+        n.multiplyBy10(0);
+        n.add(one);
+        assertEquals(new NaturalNumber2(expected), n);
+        assertEquals("1", one.toString());
+        assertSame(one, NaturalNumbers.valueOf(1));
+    }
+
+}
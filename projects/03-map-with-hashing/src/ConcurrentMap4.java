@@ -0,0 +1,692 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+import components.map.Map;
+import components.map.Map1L;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as a hash table using {@code Map}s for the buckets,
+ * as in {@code Map4}, that may be used by several threads at once.
+ *
+ * <p>
+ * Each bucket is guarded by one of a fixed set of locks (bucket {@code i} by
+ * lock {@code i mod |locks|}), so threads working on keys in different
+ * stripes do not wait for each other. The size is kept in a
+ * {@code LongAdder}, so updating it does not make every thread contend for one
+ * counter. The table grows when the size passes three quarters of the number
+ * of buckets; growing takes every lock. {@code removeAny} starts looking for
+ * a non-empty bucket where the last one found its entry, so draining the map
+ * with it does not scan the emptied buckets at the front over and over.
+ *
+ * <p>
+ * Each kernel method is atomic, but a sequence of them is not: another thread
+ * may add or remove {@code key} between {@code hasKey(key)} and
+ * {@code value(key)}. Use {@code valueOrDefault} to look up a key that may be
+ * missing, and {@code compute}, {@code merge}, {@code addIfAbsent}, or
+ * {@code replaceValue}, which are atomic, for read-modify-write updates.
+ * Iterators are weakly consistent: they never throw because of concurrent
+ * changes, and they see each bucket as it was when they reached it.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * |$this.hashTable| > 0  and  |$this.locks| > 0  and
+ * for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *     where (0 <= i  and  i < |$this.hashTable|  and
+ *            <pf> = $this.hashTable[i, i+1)  and
+ *            x is in DOMAIN(pf))
+ *   ([computed result of x.hashCode()] mod |$this.hashTable| = i))  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.hashTable|)
+ *   ([entry at position i in $this.hashTable is not null])  and
+ * [$this.hashTable[i] is only read or changed while holding
+ *  $this.locks[i mod |$this.locks|]]  and
+ * [$this.hashTable is only replaced while holding all of $this.locks]  and
+ * [when no method is running, $this.size.sum() = sum i: integer,
+ *  pf: PARTIAL_FUNCTION where (<pf> = $this.hashTable[i, i+1)) (|pf|)]
+ * </pre>
+ * @correspondence <pre>
+ * this = union i: integer, pf: PARTIAL_FUNCTION
+ *            where (0 <= i  and  i < |$this.hashTable|  and
+ *                   <pf> = $this.hashTable[i, i+1))
+ *          (pf)
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class ConcurrentMap4<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default size of hash table.
+     */
+    private static final int DEFAULT_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Default number of locks.
+     */
+    private static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * Ratio of size to number of buckets above which the table grows.
+     */
+    private static final double LOAD_FACTOR = 0.75;
+
+    /**
+     * Locks guarding the buckets.
+     */
+    private final ReentrantLock[] locks;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private final LongAdder size;
+
+    /**
+     * Buckets for hashing.
+     */
+    private volatile Map<K, V>[] hashTable;
+
+    /**
+     * Index of the bucket in which {@code removeAny} last found an entry;
+     * only a hint, since other threads may add to earlier buckets, and it
+     * may be past the end of a table that has been replaced.
+     */
+    private volatile int scanHint;
+
+    /**
+     * Computes {@code a} mod {@code b} as % should have been defined to work.
+     *
+     * @param a
+     *            the number being reduced
+     * @param b
+     *            the modulus
+     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
+     * @requires b > 0
+     * @ensures <pre>
+     * 0 <= mod  and  mod < b  and
+     * there exists k: integer (a = k * b + mod)
+     * </pre>
+     */
+    private static int mod(int a, int b) {
+        assert b > 0 : "Violation of: b > 0";
+        int ans = a % b;
+        if (ans < 0) {
+            ans += b;
+        }
+        return ans;
+    }
+
+    /**
+     * Returns a table of {@code size} empty buckets.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param size
+     *            the number of buckets
+     * @return the new table
+     * @requires size > 0
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newTable(int size) {
+        /*
+         * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked
+         * conversion, though it cannot fail.
+         */
+        Map<K, V>[] table = new Map[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = new Map1L<K, V>();
+        }
+        return table;
+    }
+
+    /**
+     * Locks the stripe of the bucket for {@code key} in the current table and
+     * returns that bucket. The caller must call {@code unlock(key)} (or
+     * unlock the returned stripe) when done.
+     *
+     * @param key
+     *            the key
+     * @return the bucket for key, now locked
+     * @ensures <pre>
+     * [the stripe of key's bucket is held by the current thread]  and
+     * lockBucket = $this.hashTable[[computed result of key.hashCode()] mod
+     *   |$this.hashTable|]
+     * </pre>
+     */
+    private Map<K, V> lockBucket(K key) {
+        int hash = key.hashCode();
+        Map<K, V> bucket = null;
+        while (bucket == null) {
+            Map<K, V>[] table = this.hashTable;
+            int index = mod(hash, table.length);
+            ReentrantLock lock = this.locks[index % this.locks.length];
+            lock.lock();
+            /*
+             * The table may have been replaced while we waited for the lock;
+             * it cannot be replaced while we hold it.
+             */
+            if (table == this.hashTable) {
+                bucket = table[index];
+            } else {
+                lock.unlock();
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Unlocks the stripe locked by {@code lockBucket(key)}.
+     *
+     * @param key
+     *            the key passed to lockBucket
+     * @requires [the current thread holds the stripe of key's bucket]
+     */
+    private void unlock(K key) {
+        int index = mod(key.hashCode(), this.hashTable.length);
+        this.locks[index % this.locks.length].unlock();
+    }
+
+    /**
+     * Locks every stripe, in order.
+     */
+    private void lockAll() {
+        for (ReentrantLock lock : this.locks) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Unlocks every stripe.
+     */
+    private void unlockAll() {
+        for (int i = this.locks.length - 1; i >= 0; i--) {
+            this.locks[i].unlock();
+        }
+    }
+
+    /**
+     * Grows the table to {@code 2 * n + 1} buckets if the size has passed the
+     * load factor.
+     *
+     * @updates this
+     * @requires [the current thread holds none of the locks]
+     */
+    private void growIfNeeded() {
+        if (this.size.sum() > LOAD_FACTOR * this.hashTable.length) {
+            this.lockAll();
+            try {
+                Map<K, V>[] oldTable = this.hashTable;
+                if (this.size.sum() > LOAD_FACTOR * oldTable.length) {
+                    Map<K, V>[] table = newTable(2 * oldTable.length + 1);
+                    for (Map<K, V> bucket : oldTable) {
+                        for (Pair<K, V> p : bucket) {
+                            table[mod(p.key().hashCode(), table.length)]
+                                    .add(p.key(), p.value());
+                        }
+                    }
+                    this.hashTable = table;
+                }
+            } finally {
+                this.unlockAll();
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public ConcurrentMap4() {
+        this(DEFAULT_HASH_TABLE_SIZE, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize}
+     * guarded by {@code stripes} locks.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param stripes
+     *            number of locks; more allows more threads to update the map
+     *            at once
+     * @requires hashTableSize > 0 and stripes > 0
+     * @ensures this = {}
+     */
+    public ConcurrentMap4(int hashTableSize, int stripes) {
+        assert hashTableSize > 0 : "Need to be bigger than 0";
+        assert stripes > 0 : "Violation of: stripes > 0";
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.size = new LongAdder();
+        this.hashTable = newTable(hashTableSize);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.lockAll();
+        try {
+            this.hashTable = newTable(DEFAULT_HASH_TABLE_SIZE);
+            this.size.reset();
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    /**
+     * No other thread may be using {@code source} during this call.
+     */
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof ConcurrentMap4<?, ?> : ""
+                + "Violation of: source is of dynamic type ConcurrentMap4<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * ConcurrentMap4<?,?>, and the ?,? must be K,V or the call would not
+         * have compiled.
+         */
+        ConcurrentMap4<K, V> localSource = (ConcurrentMap4<K, V>) source;
+        this.lockAll();
+        try {
+            this.hashTable = localSource.hashTable;
+            this.size.reset();
+            this.size.add(localSource.size.sum());
+            localSource.hashTable = newTable(DEFAULT_HASH_TABLE_SIZE);
+            localSource.size.reset();
+        } finally {
+            this.unlockAll();
+        }
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            assert !bucket.hasKey(key) : ""
+                    + "Violation of: key is not in DOMAIN(this)";
+            bucket.add(key, value);
+            this.size.increment();
+        } finally {
+            this.unlock(key);
+        }
+        this.growIfNeeded();
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            assert bucket.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+            Pair<K, V> removed = bucket.remove(key);
+            this.size.decrement();
+            return removed;
+        } finally {
+            this.unlock(key);
+        }
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+        Pair<K, V> removed = null;
+        Map<K, V>[] table = this.hashTable;
+        int start = mod(this.scanHint, table.length);
+        int k = 0;
+        while (k < table.length && removed == null) {
+            int i = (start + k) % table.length;
+            ReentrantLock lock = this.locks[i % this.locks.length];
+            lock.lock();
+            try {
+                if (table != this.hashTable) {
+                    /*
+                     * The table grew; start over in the new one.
+                     */
+                    table = this.hashTable;
+                    start = mod(start, table.length);
+                    k = 0;
+                } else {
+                    if (table[i].size() > 0) {
+                        removed = table[i].removeAny();
+                        this.size.decrement();
+                        this.scanHint = i;
+                    }
+                    k++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (removed == null) {
+            /*
+             * Another thread emptied the map after the assert above.
+             */
+            throw new NoSuchElementException();
+        }
+        return removed;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            assert bucket.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+            return bucket.value(key);
+        } finally {
+            this.unlock(key);
+        }
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            return bucket.hasKey(key);
+        } finally {
+            this.unlock(key);
+        }
+    }
+
+    @Override
+    public final int size() {
+        return (int) this.size.sum();
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new ConcurrentMap4Iterator();
+    }
+
+    /*
+     * Atomic secondary methods -----------------------------------------------
+     */
+
+    @Override
+    public final V replaceValue(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            assert bucket.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+            return bucket.replaceValue(key, value);
+        } finally {
+            this.unlock(key);
+        }
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code defaultValue} if
+     * {@code key} is not in {@code this}, as one atomic step.
+     *
+     * @param key
+     *            the key
+     * @param defaultValue
+     *            the value to report for a missing key
+     * @return the value of key, or defaultValue
+     * @ensures <pre>
+     * [if key is in DOMAIN(this) then valueOrDefault = [the value of key]
+     *  else valueOrDefault = defaultValue]
+     * </pre>
+     */
+    public final V valueOrDefault(K key, V defaultValue) {
+        assert key != null : "Violation of: key is not null";
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            V result = defaultValue;
+            if (bucket.hasKey(key)) {
+                result = bucket.value(key);
+            }
+            return result;
+        } finally {
+            this.unlock(key);
+        }
+    }
+
+    /**
+     * Adds {@code key} with value {@code value} if {@code key} is not in
+     * {@code this}, as one atomic step.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return true iff key was added
+     * @updates this
+     * @ensures <pre>
+     * addIfAbsent = (key is not in DOMAIN(#this))  and
+     * [if addIfAbsent then this = #this union {(key, value)}
+     *  else this = #this]
+     * </pre>
+     */
+    public final boolean addIfAbsent(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        boolean added = false;
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            if (!bucket.hasKey(key)) {
+                bucket.add(key, value);
+                this.size.increment();
+                added = true;
+            }
+        } finally {
+            this.unlock(key);
+        }
+        if (added) {
+            this.growIfNeeded();
+        }
+        return added;
+    }
+
+    /**
+     * Replaces the value of {@code key} with
+     * {@code remapping.apply(key, old)}, where {@code old} is its current
+     * value or {@code null} if it has none, as one atomic step. A
+     * {@code null} result removes {@code key}. {@code remapping} runs while
+     * the key's stripe is locked, so it should be short and must not use
+     * {@code this}.
+     *
+     * @param key
+     *            the key
+     * @param remapping
+     *            computes the new value from the key and the old value
+     * @return the new value of key, or null if key is now absent
+     * @updates this
+     * @ensures <pre>
+     * [compute = remapping(key, [value of key in #this, or null])]  and
+     * this = {(k, v) in #this where k /= key} union
+     *        [if compute /= null then {(key, compute)} else {}]
+     * </pre>
+     */
+    public final V compute(K key,
+            BiFunction<? super K, ? super V, ? extends V> remapping) {
+        assert key != null : "Violation of: key is not null";
+        assert remapping != null : "Violation of: remapping is not null";
+        V result;
+        boolean added = false;
+        Map<K, V> bucket = this.lockBucket(key);
+        try {
+            V old = null;
+            if (bucket.hasKey(key)) {
+                old = bucket.value(key);
+            }
+            result = remapping.apply(key, old);
+            if (old != null && result != null) {
+                bucket.replaceValue(key, result);
+            } else if (old != null) {
+                bucket.remove(key);
+                this.size.decrement();
+            } else if (result != null) {
+                bucket.add(key, result);
+                this.size.increment();
+                added = true;
+            }
+        } finally {
+            this.unlock(key);
+        }
+        if (added) {
+            this.growIfNeeded();
+        }
+        return result;
+    }
+
+    /**
+     * Adds {@code key} with value {@code value} if {@code key} is not in
+     * {@code this}, and otherwise replaces its value {@code old} with
+     * {@code remapping.apply(old, value)}, removing {@code key} if that is
+     * {@code null}; all as one atomic step. For example,
+     * {@code merge(word, 1, Integer::sum)} counts an occurrence of
+     * {@code word}.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value to add, or to combine with the old value
+     * @param remapping
+     *            combines the old value with value
+     * @return the new value of key, or null if key is now absent
+     * @updates this
+     * @ensures <pre>
+     * [merge = if key is in DOMAIN(#this) with value old
+     *          then remapping(old, value) else value]  and
+     * this = {(k, v) in #this where k /= key} union
+     *        [if merge /= null then {(key, merge)} else {}]
+     * </pre>
+     */
+    public final V merge(K key, V value,
+            BiFunction<? super V, ? super V, ? extends V> remapping) {
+        assert value != null : "Violation of: value is not null";
+        assert remapping != null : "Violation of: remapping is not null";
+        return this.compute(key, (k, old) -> {
+            V result = value;
+            if (old != null) {
+                result = remapping.apply(old, value);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Weakly consistent implementation of {@code Iterator} interface for
+     * {@code ConcurrentMap4}: copies each bucket, under its lock, when it
+     * reaches it.
+     */
+    private final class ConcurrentMap4Iterator
+            implements Iterator<Pair<K, V>> {
+
+        /**
+         * Table being iterated over.
+         */
+        private final Map<K, V>[] table;
+
+        /**
+         * Bucket to copy next.
+         */
+        private int nextBucket;
+
+        /**
+         * Copy of the entries of the current bucket not yet returned.
+         */
+        private final List<Pair<K, V>> pending;
+
+        /**
+         * Index in {@code pending} of the next entry to return.
+         */
+        private int nextPending;
+
+        /**
+         * No-argument constructor.
+         */
+        ConcurrentMap4Iterator() {
+            this.table = ConcurrentMap4.this.hashTable;
+            this.nextBucket = 0;
+            this.pending = new ArrayList<>();
+            this.nextPending = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.nextPending == this.pending.size()
+                    && this.nextBucket < this.table.length) {
+                this.pending.clear();
+                this.nextPending = 0;
+                ReentrantLock lock = ConcurrentMap4.this.locks[this.nextBucket
+                        % ConcurrentMap4.this.locks.length];
+                lock.lock();
+                try {
+                    for (Pair<K, V> p : this.table[this.nextBucket]) {
+                        this.pending.add(p);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                this.nextBucket++;
+            }
+            return this.nextPending < this.pending.size();
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Pair<K, V> next = this.pending.get(this.nextPending);
+            this.nextPending++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
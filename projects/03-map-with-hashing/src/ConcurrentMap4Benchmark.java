@@ -0,0 +1,111 @@
+import components.map.Map;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the throughput of {@code ConcurrentMap4} with 1, 2, 4, 8, and 16
+ * threads, against a {@code Map4} shared behind a single lock. Each thread
+ * runs a mix of lookups and {@code merge}-style counter updates on random keys
+ * from a fixed key set.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class ConcurrentMap4Benchmark {
+
+    /**
+     * Number of distinct keys.
+     */
+    private static final int KEYS = 100_000;
+
+    /**
+     * Operations per thread in each measurement.
+     */
+    private static final int OPERATIONS = 500_000;
+
+    /**
+     * Percentage of operations that update a counter; the rest look one up.
+     */
+    private static final int UPDATE_PERCENT = 20;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ConcurrentMap4Benchmark() {
+    }
+
+    /**
+     * Returns counters on a new {@code ConcurrentMap4}: an update adds 1 to
+     * the count of its key, and a read returns the count, or 0.
+     *
+     * @return the counters
+     */
+    private static MapThroughput.SharedMap striped() {
+        ConcurrentMap4<Integer, Integer> map = new ConcurrentMap4<>();
+        return new MapThroughput.SharedMap() {
+            @Override
+            public void update(Integer key, int i) {
+                map.merge(key, 1, Integer::sum);
+            }
+
+            @Override
+            public int read(Integer key) {
+                return map.valueOrDefault(key, 0);
+            }
+        };
+    }
+
+    /**
+     * Returns counters on a new {@code Map4} guarded by one lock: an update
+     * adds 1 to the count of its key, and a read returns the count, or 0.
+     *
+     * @return the counters
+     */
+    private static MapThroughput.SharedMap singleLock() {
+        Map<Integer, Integer> map = new Map4<>();
+        return new MapThroughput.SharedMap() {
+            @Override
+            public synchronized void update(Integer key, int i) {
+                if (map.hasKey(key)) {
+                    map.replaceValue(key, map.value(key) + 1);
+                } else {
+                    map.add(key, 1);
+                }
+            }
+
+            @Override
+            public synchronized int read(Integer key) {
+                int result = 0;
+                if (map.hasKey(key)) {
+                    result = map.value(key);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws Exception
+     *             if a benchmark thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        MapThroughput workload = new MapThroughput(KEYS, OPERATIONS,
+                UPDATE_PERCENT);
+        SimpleWriter out = new SimpleWriter1L();
+        out.println("threads\tConcurrentMap4(ops/ms)\tlocked Map4(ops/ms)");
+        for (int threads : MapThroughput.THREADS) {
+            double striped = workload.throughput(
+                    ConcurrentMap4Benchmark::striped, threads);
+            double locked = workload.throughput(
+                    ConcurrentMap4Benchmark::singleLock, threads);
+            out.println(threads + "\t" + String.format("%.0f", striped) + "\t"
+                    + String.format("%.0f", locked));
+        }
+        out.close();
+    }
+
+}
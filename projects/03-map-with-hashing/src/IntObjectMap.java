@@ -0,0 +1,356 @@
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Map from primitive {@code int} keys to values, represented as an
+ * open-addressing hash table like {@code Map5}: parallel arrays of {@code int}
+ * keys and values, probed linearly, with backward-shift removal. Keys are
+ * never boxed; a slot is empty exactly when its value is {@code null}, so
+ * values must not be {@code null}.
+ *
+ * @param <V>
+ *            type of values
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and  3 * $this.size <= 2 * |$this.keys|  and
+ * [the keys in slots with non-null values are distinct]  and
+ * [every key in a slot with a non-null value is reachable by probing up
+ *  (wrapping around) from its home slot, MIX(key) mod |$this.keys|, through
+ *  slots with non-null values only]  and
+ * [$this.keys[i] = 0 wherever $this.values[i] = null]  and
+ * $this.size = [number of non-null entries of $this.values]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (integer, V)
+ *          where (there exists i: integer
+ *                    (0 <= i  and  i < |$this.keys|  and
+ *                     $this.keys[i] = k  and
+ *                     $this.values[i] = v  and  v /= null))}
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class IntObjectMap<V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default number of slots.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Multiplier of the hash mix (from the MurmurHash3 finalizer).
+     */
+    private static final int MIX_1 = 0x85EBCA6B;
+
+    /**
+     * Second multiplier of the hash mix.
+     */
+    private static final int MIX_2 = 0xC2B2AE35;
+
+    /**
+     * Keys, or 0 in empty slots.
+     */
+    private int[] keys;
+
+    /**
+     * Values, at the same index as their keys, or {@code null} in empty
+     * slots.
+     */
+    private Object[] values;
+
+    /**
+     * Number of keys in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Returns the slot where probing for {@code key} starts. Keys are mixed
+     * first, since consecutive ints would otherwise fill consecutive slots
+     * and form one long probe run.
+     *
+     * @param key
+     *            the key
+     * @param capacity
+     *            the number of slots
+     * @return the home slot of key
+     * @requires [capacity is a power of 2]
+     */
+    private static int home(int key, int capacity) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= MIX_1;
+        h ^= h >>> 13;
+        h *= MIX_2;
+        h ^= h >>> 16;
+        return h & (capacity - 1);
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the number of slots
+     * @requires [capacity is a power of 2]
+     * @ensures this = {}  and  |$this.keys| = capacity
+     */
+    private void createNewRep(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would
+     * be added.
+     *
+     * @param key
+     *            the key
+     * @return the slot for key
+     * @ensures <pre>
+     * ($this.values[slot] /= null  and  $this.keys[slot] = key)  or
+     * ($this.values[slot] = null  and  key is not in DOMAIN(this))
+     * </pre>
+     */
+    private int slot(int key) {
+        int mask = this.keys.length - 1;
+        int i = home(key, this.keys.length);
+        while (this.values[i] != null && this.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Puts {@code key} with value {@code value} into empty slot {@code i},
+     * first growing the table (and finding a new slot) if it is full enough.
+     *
+     * @param i
+     *            the empty slot for key
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @updates this
+     * @requires $this.values[i] = null and i = slot(key) and value /= null
+     * @ensures this = #this union {(key, value)}
+     */
+    private void insert(int i, int key, V value) {
+        int slot = i;
+        if (2 * (long) this.keys.length < 3 * (long) (this.size + 1)) {
+            int[] oldKeys = this.keys;
+            Object[] oldValues = this.values;
+            int oldSize = this.size;
+            this.createNewRep(2 * oldKeys.length);
+            int mask = this.keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int k = home(oldKeys[j], this.keys.length);
+                    while (this.values[k] != null) {
+                        k = (k + 1) & mask;
+                    }
+                    this.keys[k] = oldKeys[j];
+                    this.values[k] = oldValues[j];
+                }
+            }
+            this.size = oldSize;
+            slot = this.slot(key);
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public IntObjectMap() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /*
+     * Methods ----------------------------------------------------------------
+     */
+
+    /**
+     * Sets the value of {@code key} to {@code value}, adding {@code key} if it
+     * is not in {@code this}, and returns the value it replaced.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return the previous value of key, or null if key was not in #this
+     * @updates this
+     * @ensures <pre>
+     * this = {(k, v) in #this where k /= key} union {(key, value)}  and
+     * [put = the value of key in #this, or null if there is none]
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        assert value != null : "Violation of: value is not null";
+        int i = this.slot(key);
+        /*
+         * Only V values are ever stored, so this cast cannot fail.
+         */
+        V previous = (V) this.values[i];
+        if (previous != null) {
+            this.values[i] = value;
+        } else {
+            this.insert(i, key, value);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code null} if {@code key} is not
+     * in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @return the value of key, or null
+     * @ensures <pre>
+     * [if key is in DOMAIN(this) then get = [the value of key]
+     *  else get = null]
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        /*
+         * Only V values are ever stored, so this cast cannot fail.
+         */
+        return (V) this.values[this.slot(key)];
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code defaultValue} if
+     * {@code key} is not in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @param defaultValue
+     *            the value to report for a missing key
+     * @return the value of key, or defaultValue
+     * @ensures <pre>
+     * [if key is in DOMAIN(this) then getOrDefault = [the value of key]
+     *  else getOrDefault = defaultValue]
+     * </pre>
+     */
+    public V getOrDefault(int key, V defaultValue) {
+        V result = this.get(key);
+        if (result == null) {
+            result = defaultValue;
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code key} is in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @return true iff key is in DOMAIN(this)
+     * @ensures hasKey = (key is in DOMAIN(this))
+     */
+    public boolean hasKey(int key) {
+        return this.values[this.slot(key)] != null;
+    }
+
+    /**
+     * Removes {@code key} and returns its value.
+     *
+     * @param key
+     *            the key to remove
+     * @return the value key had
+     * @updates this
+     * @requires key is in DOMAIN(this)
+     * @ensures <pre>
+     * (key, remove) is in #this  and  this = #this \ {(key, remove)}
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        int mask = this.keys.length - 1;
+        int hole = this.slot(key);
+        /*
+         * Only V values are ever stored, so this cast cannot fail.
+         */
+        V removed = (V) this.values[hole];
+        int j = (hole + 1) & mask;
+        while (this.values[j] != null) {
+            int h = home(this.keys[j], this.keys.length);
+            if (((j - h) & mask) >= ((j - hole) & mask)) {
+                this.keys[hole] = this.keys[j];
+                this.values[hole] = this.values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[hole] = 0;
+        this.values[hole] = null;
+        this.size--;
+        return removed;
+    }
+
+    /**
+     * Reports the number of keys in {@code this}.
+     *
+     * @return |this|
+     * @ensures size = |this|
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes every key from {@code this}.
+     *
+     * @clears this
+     */
+    public void clear() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Calls {@code action} on each value of {@code this} and its key, in no
+     * particular order. {@code action} must not change {@code this}.
+     *
+     * @param action
+     *            the action to run on each (value, key) pair
+     * @ensures [action has been called once on each pair in this]
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super V> action) {
+        assert action != null : "Violation of: action is not null";
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.values[i] != null) {
+                /*
+                 * Only V values are ever stored, so this cast cannot fail.
+                 */
+                action.accept((V) this.values[i], this.keys[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("{");
+        this.forEach((value, key) -> {
+            if (s.length() > 1) {
+                s.append(',');
+            }
+            s.append('(').append(key).append(',').append(value).append(')');
+        });
+        return s.append('}').toString();
+    }
+
+}
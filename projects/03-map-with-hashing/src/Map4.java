@@ -1,36 +1,130 @@
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.StreamSupport;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import components.map.Map;
+import components.map.Map1L;
 import components.map.MapSecondary;
 
 /**
  * {@code Map} represented as a hash table using {@code Map}s for the buckets,
  * with implementations of primary methods.
  *
+ * <p>
+ * The table grows when {@code size} passes {@code loadFactor} times the number
+ * of buckets. Growing allocates a table of {@code 2 * n + 1} buckets and then
+ * moves the old buckets over a few at a time, in later calls to {@code add},
+ * {@code remove}, and {@code removeAny}, so no single call pays for the whole
+ * rehash. Until that finishes, a key is in the old table if its old bucket has
+ * not been moved yet, and in the new table otherwise. Buckets are created the
+ * first time something is added to them.
+ *
+ * <p>
+ * Each table has a {@code BitSet} of its non-empty buckets, so
+ * {@code removeAny}, rehashing, and iteration jump straight to the next
+ * non-empty bucket with {@code nextSetBit} instead of looking at every
+ * bucket. Draining a large, sparse map with {@code removeAny} therefore takes
+ * time proportional to its size, not to the number of buckets times its
+ * size.
+ *
+ * <p>
+ * Keys are placed by {@code SPREAD(key.hashCode()) mod |table|}, where
+ * {@code SPREAD} is a hash-spreading function fixed for each instance. By
+ * default it is the MurmurHash3 finalizer, seeded at random per instance, so
+ * poor hash codes (such as multiples of the table size) still spread out,
+ * and a caller cannot choose keys that share a bucket without knowing the
+ * seed; another function may be passed to the constructor. Spreading cannot
+ * separate keys with equal hash codes, so a bucket that reaches
+ * {@code TREEIFY_THRESHOLD} entries is converted to a tree ordered by hash
+ * code and then, for keys that are {@code Comparable} to each other, by
+ * {@code compareTo}. Lookups in such a bucket take logarithmic time even if
+ * every key has the same hash code. It is converted back to a list when it
+ * shrinks to {@code UNTREEIFY_THRESHOLD} entries.
+ *
+ * <p>
+ * {@code statistics} reports how the entries are spread over the buckets
+ * and how often the table has grown; after
+ * {@code setStatisticsEnabled(true)} it also reports the work done by
+ * lookups. {@code registerStatisticsMBean} publishes the same numbers over
+ * JMX. Since {@code this} is not safe for use by several threads, and JMX
+ * clients read on threads of their own, the MXBean never looks at the table:
+ * it reports the snapshot most recently published by the owning thread,
+ * which does so at registration, on each call of {@code statistics}, each
+ * time the table grows, and every {@code PUBLISH_INTERVAL} operations. The
+ * bucket-length histogram is kept up to date as entries are added and
+ * removed, so a snapshot takes time proportional to the longest bucket, not
+ * to the number of buckets.
+ *
+ * <p>
+ * {@code spliterator} splits by ranges of buckets, so
+ * {@code StreamSupport.stream(map.spliterator(), true)} processes a large
+ * map in parallel. As with the iterator, {@code this} must not change while
+ * it is in use.
+ *
  * @param <K>
  *            type of {@code Map} domain (key) entries
  * @param <V>
  *            type of {@code Map} range (associated value) entries
  * @convention <pre>
- * |$this.hashTable| > 0  and
+ * |$this.hashTable| > 0  and  $this.loadFactor > 0  and
  * for all i: integer, pf: PARTIAL_FUNCTION, x: K
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1)  and
  *            x is in DOMAIN(pf))
- *   ([computed result of x.hashCode()] mod |$this.hashTable| = i))  and
+ *   (SPREAD([computed result of x.hashCode()]) mod |$this.hashTable| = i))  and
+ * if $this.oldTable = null
+ *   then $this.migrated = 0
+ *   else (0 <= $this.migrated < |$this.oldTable|  and
+ *         for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *             where (0 <= i  and  i < |$this.oldTable|  and
+ *                    <pf> = $this.oldTable[i, i+1)  and
+ *                    x is in DOMAIN(pf))
+ *           (i >= $this.migrated  and
+ *            SPREAD([computed result of x.hashCode()]) mod |$this.oldTable|
+ *              = i))  and
+ * [a null entry in $this.hashTable or $this.oldTable is an empty bucket]  and
  * for all i: integer
  *     where (0 <= i  and  i < |$this.hashTable|)
- *   ([entry at position i in $this.hashTable is not null])  and
+ *   (i is in $this.occupied  iff
+ *    [$this.hashTable[i] is not null and not empty])  and
+ * if $this.oldTable = null
+ *   then $this.oldOccupied = null
+ *   else for all i: integer
+ *            where (0 <= i  and  i < |$this.oldTable|)
+ *          (i is in $this.oldOccupied  iff
+ *           [$this.oldTable[i] is not null and not empty])  and
+ * 0 <= $this.scanStart  and
+ * for all i: integer
+ *     where (0 <= i  and  i < $this.scanStart)
+ *   (i is not in $this.occupied)  and
  * $this.size = sum i: integer, pf: PARTIAL_FUNCTION
- *     where (0 <= i  and  i < |$this.hashTable|  and
- *            <pf> = $this.hashTable[i, i+1))
- *   (|pf|)
+ *     where (<pf> is an entry of $this.hashTable or $this.oldTable)
+ *   (|pf|)  and
+ * for all n: integer
+ *     where (0 <= n  and  n < |$this.lengthCounts|)
+ *   ($this.lengthCounts[n] = [number of buckets of $this.hashTable and of
+ *     $this.oldTable[$this.migrated, |$this.oldTable|) with n entries])  and
+ * $this.maxLength = [number of entries in the longest such bucket]  and
+ * $this.maxLength < |$this.lengthCounts|
  * </pre>
  * @correspondence <pre>
- * this = union i: integer, pf: PARTIAL_FUNCTION
- *            where (0 <= i  and  i < |$this.hashTable|  and
- *                   <pf> = $this.hashTable[i, i+1))
+ * this = union pf: PARTIAL_FUNCTION
+ *            where (<pf> is an entry of $this.hashTable or $this.oldTable)
  *          (pf)
  * </pre>
  *
@@ -48,16 +142,148 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
+    /**
+     * Default ratio of size to number of buckets above which the table grows.
+     */
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    /**
+     * Least number of old buckets moved to the new table by each call to
+     * {@code add}, {@code remove}, or {@code removeAny} while the table is
+     * growing; {@code growIfNeeded} raises it when there are too few adds
+     * before the next growth to finish at this rate.
+     */
+    private static final int REHASH_STEP = 4;
+
+    /**
+     * Size at which a list bucket is converted to a tree bucket.
+     */
+    private static final int TREEIFY_THRESHOLD = 8;
+
+    /**
+     * Size at which a tree bucket is converted back to a list bucket; less
+     * than {@code TREEIFY_THRESHOLD}, so a bucket whose size goes back and
+     * forth by one is not converted each time.
+     */
+    private static final int UNTREEIFY_THRESHOLD = 6;
+
+    /**
+     * Number of lookups, adds, and removes between two snapshots published
+     * for the MXBean.
+     */
+    private static final int PUBLISH_INTERVAL = 1024;
+
+    /**
+     * First multiplier of the MurmurHash3 finalizer.
+     */
+    private static final int MIX_1 = 0x85EBCA6B;
+
+    /**
+     * Second multiplier of the MurmurHash3 finalizer.
+     */
+    private static final int MIX_2 = 0xC2B2AE35;
+
+    /**
+     * Ratio of size to number of buckets above which the table grows.
+     */
+    private final double loadFactor;
+
+    /**
+     * Hash-spreading function, SPREAD, applied to hash codes before they are
+     * reduced mod the table size.
+     */
+    private IntUnaryOperator spread;
+
     /**
      * Buckets for hashing.
      */
     private Map<K, V>[] hashTable;
 
+    /**
+     * Buckets of the table being replaced by {@code hashTable}, or
+     * {@code null} if the table is not growing.
+     */
+    private Map<K, V>[] oldTable;
+
+    /**
+     * Indexes of the non-empty buckets of {@code hashTable}.
+     */
+    private BitSet occupied;
+
+    /**
+     * Indexes of the non-empty buckets of {@code oldTable}, or {@code null}
+     * if the table is not growing.
+     */
+    private BitSet oldOccupied;
+
+    /**
+     * Index at or after which {@code removeAny} looks for a non-empty bucket
+     * of {@code hashTable}: no bucket before it is occupied.
+     */
+    private int scanStart;
+
+    /**
+     * Number of buckets of {@code oldTable} already moved to
+     * {@code hashTable}.
+     */
+    private int migrated;
+
+    /**
+     * Number of non-empty buckets of {@code oldTable} moved by each
+     * {@code rehashStep}.
+     */
+    private int bucketsPerStep;
+
     /**
      * Total size of abstract {@code this}.
      */
     private int size;
 
+    /**
+     * Whether lookups are being counted; may be set through JMX, from another
+     * thread.
+     */
+    private volatile boolean statisticsEnabled;
+
+    /**
+     * Number of lookups counted.
+     */
+    private long lookups;
+
+    /**
+     * Total probes of the lookups counted.
+     */
+    private long probes;
+
+    /**
+     * Number of times the table has grown.
+     */
+    private int rehashCount;
+
+    /**
+     * Entry {@code n} is the number of buckets of {@code hashTable} and
+     * unmoved buckets of {@code oldTable} holding {@code n} entries; may be
+     * longer than needed.
+     */
+    private int[] lengthCounts;
+
+    /**
+     * Number of entries in the longest bucket.
+     */
+    private int maxLength;
+
+    /**
+     * Number of operations left before the next snapshot is published, if
+     * one has been published.
+     */
+    private int untilPublish;
+
+    /**
+     * Snapshot most recently taken on the owning thread, for the MXBean to
+     * read from other threads, or {@code null} if none has been taken.
+     */
+    private volatile Map4Statistics published;
+
     /**
      * Computes {@code a} mod {@code b} as % should have been defined to work.
      *
@@ -81,6 +307,50 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         return ans;
     }
 
+    /**
+     * Returns the MurmurHash3 finalizer applied to {@code h} xor
+     * {@code seed}: a hash-spreading function in which every bit of the
+     * result depends on every bit of the hash code and of the seed.
+     *
+     * @param seed
+     *            the seed
+     * @return the spreading function
+     */
+    public static IntUnaryOperator murmurSpread(int seed) {
+        return h -> {
+            int x = h ^ seed;
+            x ^= x >>> 16;
+            x *= MIX_1;
+            x ^= x >>> 13;
+            x *= MIX_2;
+            x ^= x >>> 16;
+            return x;
+        };
+    }
+
+    /**
+     * Returns a table of {@code size} empty (null) buckets.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param size
+     *            the number of buckets
+     * @return the new table
+     * @requires size > 0
+     * @ensures |newTable| = size  and  [every entry of newTable is null]
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newTable(int size) {
+        /*
+         * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked
+         * conversion, though it cannot fail.
+         */
+        return new Map[size];
+    }
+
     /**
      * Creator of initial representation.
      *
@@ -91,22 +361,442 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      * |$this.hashTable| = hashTableSize  and
      * for all i: integer
      *     where (0 <= i  and  i < |$this.hashTable|)
-     *   ($this.hashTable[i, i+1) = <{}>)  and
-     * $this.size = 0
+     *   ($this.hashTable[i, i+1) = <null>)  and  $this.occupied = {}  and
+     * $this.oldTable = null  and  $this.oldOccupied = null  and
+     * $this.scanStart = 0  and  $this.migrated = 0  and
+     * $this.bucketsPerStep = REHASH_STEP  and  $this.size = 0  and
+     * $this.lengthCounts = <hashTableSize>  and  $this.maxLength = 0
      * </pre>
      */
-    @SuppressWarnings("unchecked")
     private void createNewRep(int hashTableSize) {
-        /*
-         * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
-         * compile; as shown, it results in a warning about an unchecked
-         * conversion, though it cannot fail.
-         */
-        this.hashTable = new Map[hashTableSize];
-        for (int i = 0; i < hashTableSize; i++) {
-            this.hashTable[i] = new components.map.Map1L<K, V>();
-        }
+        this.hashTable = newTable(hashTableSize);
+        this.occupied = new BitSet(hashTableSize);
+        this.oldTable = null;
+        this.oldOccupied = null;
+        this.scanStart = 0;
+        this.migrated = 0;
+        this.bucketsPerStep = REHASH_STEP;
         this.size = 0;
+        this.lengthCounts = new int[] { hashTableSize };
+        this.maxLength = 0;
+    }
+
+    /**
+     * Adds {@code delta} to the number of buckets holding {@code length}
+     * entries.
+     *
+     * @param length
+     *            the bucket length
+     * @param delta
+     *            the change in the number of buckets of that length
+     * @updates this.lengthCounts, this.maxLength
+     */
+    private void countBuckets(int length, int delta) {
+        if (length >= this.lengthCounts.length) {
+            this.lengthCounts = Arrays.copyOf(this.lengthCounts,
+                    Math.max(length + 1, 2 * this.lengthCounts.length));
+        }
+        this.lengthCounts[length] += delta;
+        if (delta > 0 && length > this.maxLength) {
+            this.maxLength = length;
+        }
+        while (this.maxLength > 0 && this.lengthCounts[this.maxLength] == 0) {
+            this.maxLength--;
+        }
+    }
+
+    /**
+     * Records that a bucket that held {@code length} entries has gained
+     * ({@code delta} = 1) or lost ({@code delta} = -1) one.
+     *
+     * @param length
+     *            the old length of the bucket
+     * @param delta
+     *            the change in its length
+     * @updates this.lengthCounts, this.maxLength
+     */
+    private void resizeBucket(int length, int delta) {
+        this.countBuckets(length + delta, 1);
+        this.countBuckets(length, -1);
+    }
+
+    /**
+     * Moves every entry of {@code from} to {@code to}, which must be empty,
+     * and returns {@code to}.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param from
+     *            the bucket to empty
+     * @param to
+     *            the bucket to fill
+     * @return to
+     * @updates from, to
+     * @requires to = {}
+     * @ensures from = {}  and  to = #from  and  convert = to
+     */
+    private static <K, V> Map<K, V> convert(Map<K, V> from, Map<K, V> to) {
+        while (from.size() > 0) {
+            Pair<K, V> p = from.removeAny();
+            to.add(p.key(), p.value());
+        }
+        return to;
+    }
+
+    /**
+     * Updates bucket {@code index} of {@code table} after something was
+     * removed from it: marks it unoccupied if it is empty, and converts it
+     * back to a list bucket if it is a tree bucket that has become small.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param table
+     *            the table
+     * @param tableOccupied
+     *            the occupied buckets of table
+     * @param index
+     *            the index of the bucket
+     * @updates table, tableOccupied
+     */
+    private static <K, V> void shrink(Map<K, V>[] table, BitSet tableOccupied,
+            int index) {
+        if (table[index].size() == 0) {
+            tableOccupied.clear(index);
+        }
+        if (table[index].size() <= UNTREEIFY_THRESHOLD
+                && table[index] instanceof TreeBucket<?, ?>) {
+            table[index] = convert(table[index], new Map1L<K, V>());
+        }
+    }
+
+    /**
+     * Reports whether {@code key} belongs in {@code oldTable}, i.e., whether
+     * the table is growing and the old bucket for {@code key} has not been
+     * moved yet.
+     *
+     * @param key
+     *            the key
+     * @return true iff key belongs in $this.oldTable
+     */
+    private boolean inOldTable(K key) {
+        return this.oldTable != null
+                && this.index(key, this.oldTable) >= this.migrated;
+    }
+
+    /**
+     * Returns the index of the bucket of {@code table} for {@code key}.
+     *
+     * @param key
+     *            the key
+     * @param table
+     *            the table
+     * @return the bucket index of key in table
+     * @ensures <pre>
+     * index = SPREAD([computed result of key.hashCode()]) mod |table|
+     * </pre>
+     */
+    private int index(K key, Map<K, V>[] table) {
+        return mod(this.spread.applyAsInt(key.hashCode()), table.length);
+    }
+
+    /**
+     * Returns the bucket that holds {@code key} if it is in {@code this}, and
+     * where it is to be added otherwise: in {@code oldTable} if its bucket
+     * there has not been moved yet, and in {@code hashTable} otherwise.
+     *
+     * @param key
+     *            the key
+     * @return the bucket for key, or null if it does not exist yet
+     */
+    private Map<K, V> bucket(K key) {
+        Map<K, V>[] table = this.hashTable;
+        if (this.inOldTable(key)) {
+            table = this.oldTable;
+        }
+        return table[this.index(key, table)];
+    }
+
+    /**
+     * Adds {@code key} with value {@code value} to the bucket that
+     * {@code bucket(key)} would return, creating that bucket if needed and
+     * marking it occupied.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @updates this
+     * @requires key is not in DOMAIN(this)
+     * @ensures this = #this union {(key, value)}
+     */
+    private void addToBucket(K key, V value) {
+        Map<K, V>[] table = this.hashTable;
+        BitSet tableOccupied = this.occupied;
+        boolean old = this.inOldTable(key);
+        if (old) {
+            table = this.oldTable;
+            tableOccupied = this.oldOccupied;
+        }
+        int index = this.index(key, table);
+        if (table[index] == null) {
+            table[index] = new Map1L<K, V>();
+        }
+        this.resizeBucket(table[index].size(), 1);
+        table[index].add(key, value);
+        if (table[index].size() == TREEIFY_THRESHOLD
+                && !(table[index] instanceof TreeBucket<?, ?>)) {
+            table[index] = convert(table[index], new TreeBucket<K, V>());
+        }
+        tableOccupied.set(index);
+        if (!old && index < this.scanStart) {
+            this.scanStart = index;
+        }
+    }
+
+    /**
+     * Removes {@code key} from its bucket, marking the bucket unoccupied if it
+     * is now empty, and returns the removed pair.
+     *
+     * @param key
+     *            the key
+     * @return the pair removed
+     * @updates this
+     * @requires key is in DOMAIN(this)
+     * @ensures <pre>
+     * removeFromBucket.key = key  and
+     * this = #this \ {removeFromBucket}
+     * </pre>
+     */
+    private Pair<K, V> removeFromBucket(K key) {
+        Map<K, V>[] table = this.hashTable;
+        BitSet tableOccupied = this.occupied;
+        if (this.inOldTable(key)) {
+            table = this.oldTable;
+            tableOccupied = this.oldOccupied;
+        }
+        int index = this.index(key, table);
+        this.resizeBucket(table[index].size(), -1);
+        Pair<K, V> removed = table[index].remove(key);
+        shrink(table, tableOccupied, index);
+        return removed;
+    }
+
+    /**
+     * Moves up to {@code bucketsPerStep} non-empty buckets of {@code oldTable}
+     * to {@code hashTable}, if the table is growing. Empty buckets are skipped
+     * without counting toward the step.
+     *
+     * @updates this
+     */
+    private void rehashStep() {
+        for (int k = 0; k < this.bucketsPerStep && this.oldTable != null;
+                k++) {
+            int i = this.oldOccupied.nextSetBit(this.migrated);
+            if (i < 0) {
+                i = this.oldTable.length - 1;
+            }
+            Map<K, V> bucket = this.oldTable[i];
+            this.oldTable[i] = null;
+            this.oldOccupied.clear(i);
+            /*
+             * The empty buckets skipped over, and bucket i itself, stop being
+             * counted as soon as migrated is past them.
+             */
+            int length = 0;
+            if (bucket != null) {
+                length = bucket.size();
+            }
+            this.countBuckets(0, this.migrated - i);
+            this.countBuckets(length, -1);
+            /*
+             * Once migrated is past i, keys from bucket i belong in hashTable,
+             * which is where addToBucket will put them.
+             */
+            this.migrated = i + 1;
+            if (bucket != null) {
+                while (bucket.size() > 0) {
+                    Pair<K, V> p = bucket.removeAny();
+                    this.addToBucket(p.key(), p.value());
+                }
+            }
+            if (this.migrated == this.oldTable.length) {
+                this.oldTable = null;
+                this.oldOccupied = null;
+                this.migrated = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts growing the table if {@code size} has passed the load factor.
+     * Any earlier growth has finished by then: it moved at least
+     * {@code bucketsPerStep} buckets on each of the adds since, and
+     * {@code bucketsPerStep} was chosen, when it started, so that they cover
+     * every bucket the old table had or could gain.
+     *
+     * @updates this
+     */
+    private void growIfNeeded() {
+        if (this.size > this.loadFactor * this.hashTable.length) {
+            assert this.oldTable == null : ""
+                    + "Violation of: the earlier growth has finished";
+            this.rehashCount++;
+            this.oldTable = this.hashTable;
+            this.oldOccupied = this.occupied;
+            this.hashTable = newTable(2 * this.hashTable.length + 1);
+            this.occupied = new BitSet(this.hashTable.length);
+            this.countBuckets(0, this.hashTable.length);
+            this.scanStart = 0;
+            this.migrated = 0;
+            /*
+             * The old table has at most size non-empty buckets, and each of
+             * the adds before the next growth may make one more; there are at
+             * least addsLeft of them, and each moves bucketsPerStep buckets
+             * first. A small load factor can leave addsLeft at 1 for a few
+             * growths in a row, so a fixed step would not do.
+             */
+            long addsLeft = Math.max(1,
+                    (long) (this.loadFactor * this.hashTable.length) + 1
+                            - this.size);
+            this.bucketsPerStep = (int) Math.max(REHASH_STEP,
+                    (this.size + addsLeft - 1) / addsLeft + 1);
+            if (this.published != null) {
+                this.statistics();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of buckets visited by iterators and spliterators:
+     * the unmoved buckets of {@code oldTable}, then all of
+     * {@code hashTable}. Bucket positions {@code p} in
+     * {@code [0, bucketCount())} number them in that order.
+     *
+     * @return the number of bucket positions
+     */
+    private int bucketCount() {
+        int count = this.hashTable.length;
+        if (this.oldTable != null) {
+            count += this.oldTable.length - this.migrated;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the bucket at position {@code p}.
+     *
+     * @param p
+     *            the position
+     * @return the bucket at position p, or null if it does not exist yet
+     * @requires 0 <= p < bucketCount()
+     */
+    private Map<K, V> bucketAt(int p) {
+        int index = p;
+        Map<K, V>[] table = this.hashTable;
+        if (this.oldTable != null) {
+            index = p + this.migrated;
+            table = this.oldTable;
+            if (index >= this.oldTable.length) {
+                index -= this.oldTable.length;
+                table = this.hashTable;
+            }
+        }
+        return table[index];
+    }
+
+    /**
+     * Returns the first position at or after {@code p} of a non-empty
+     * bucket, or {@code bucketCount()} if there is none.
+     *
+     * @param p
+     *            the position to start from
+     * @return the position of the next non-empty bucket
+     * @requires 0 <= p
+     */
+    private int nextOccupied(int p) {
+        int oldCount = 0;
+        int result = -1;
+        if (this.oldTable != null) {
+            oldCount = this.oldTable.length - this.migrated;
+            if (p < oldCount) {
+                int i = this.oldOccupied.nextSetBit(p + this.migrated);
+                if (i >= 0) {
+                    result = i - this.migrated;
+                }
+            }
+        }
+        if (result < 0) {
+            int i = this.occupied.nextSetBit(Math.max(p - oldCount, 0));
+            if (i < 0) {
+                i = this.hashTable.length;
+            }
+            result = oldCount + i;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of entries a lookup in {@code bucket} may have to
+     * compare with its key: all of them for a list bucket, and the height of
+     * the balanced tree for a tree bucket.
+     *
+     * @param bucket
+     *            the bucket, or null
+     * @return the probes of a lookup in bucket
+     */
+    private static int probes(Map<?, ?> bucket) {
+        int probes = 0;
+        if (bucket instanceof TreeBucket<?, ?>) {
+            probes = Integer.SIZE - Integer.numberOfLeadingZeros(bucket.size());
+        } else if (bucket != null) {
+            probes = bucket.size();
+        }
+        return probes;
+    }
+
+    /**
+     * Counts a lookup in {@code bucket}.
+     *
+     * @param bucket
+     *            the bucket looked in, or null
+     * @updates this.lookups, this.probes
+     */
+    private void countLookup(Map<K, V> bucket) {
+        this.lookups++;
+        this.probes += probes(bucket);
+        this.countOperation();
+    }
+
+    /**
+     * Counts an operation toward the next snapshot for the MXBean, and
+     * publishes one every {@code PUBLISH_INTERVAL} operations once a first
+     * has been published.
+     *
+     * @updates this.untilPublish, this.published
+     */
+    private void countOperation() {
+        this.untilPublish--;
+        if (this.untilPublish <= 0 && this.published != null) {
+            this.statistics();
+        }
+    }
+
+    /**
+     * Reports whether {@code key} is in {@code this}, like {@code hasKey},
+     * but without counting a lookup; for use in assertions, so that checking
+     * contracts does not skew the statistics.
+     *
+     * @param key
+     *            the key
+     * @return true iff key is in DOMAIN(this)
+     */
+    private boolean isKey(K key) {
+        Map<K, V> bucket = this.bucket(key);
+        return bucket != null && bucket.hasKey(key);
     }
 
     /*
@@ -117,6 +807,8 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      * No-argument constructor.
      */
     public Map4() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        this.spread = murmurSpread(ThreadLocalRandom.current().nextInt());
         this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
@@ -130,6 +822,52 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     public Map4(int hashTableSize) {
         assert hashTableSize > 0 : "Need to be bigger than 0";
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        this.spread = murmurSpread(ThreadLocalRandom.current().nextInt());
+        this.createNewRep(hashTableSize);
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize} that
+     * grows when its size passes {@code loadFactor} times its number of
+     * buckets.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            ratio of size to number of buckets above which the table
+     *            grows
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor) {
+        this(hashTableSize, loadFactor,
+                murmurSpread(ThreadLocalRandom.current().nextInt()));
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize} that
+     * grows when its size passes {@code loadFactor} times its number of
+     * buckets, and that places keys using the hash-spreading function
+     * {@code spread}.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            ratio of size to number of buckets above which the table
+     *            grows
+     * @param spread
+     *            the hash-spreading function, SPREAD
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor,
+            IntUnaryOperator spread) {
+        assert hashTableSize > 0 : "Need to be bigger than 0";
+        assert loadFactor > 0 : "Violation of: loadFactor > 0";
+        assert spread != null : "Violation of: spread is not null";
+        this.loadFactor = loadFactor;
+        this.spread = spread;
         this.createNewRep(hashTableSize);
     }
 
@@ -166,7 +904,22 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          */
         Map4<K, V> localSource = (Map4<K, V>) source;
         this.hashTable = localSource.hashTable;
+        this.occupied = localSource.occupied;
+        this.oldTable = localSource.oldTable;
+        this.oldOccupied = localSource.oldOccupied;
+        this.scanStart = localSource.scanStart;
+        this.migrated = localSource.migrated;
+        this.bucketsPerStep = localSource.bucketsPerStep;
+        /*
+         * The buckets were placed with the source's spreading function, so
+         * it comes along with them; the source keeps this one's.
+         */
+        IntUnaryOperator sourceSpread = localSource.spread;
+        localSource.spread = this.spread;
+        this.spread = sourceSpread;
         this.size = localSource.size;
+        this.lengthCounts = localSource.lengthCounts;
+        this.maxLength = localSource.maxLength;
         localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
@@ -178,48 +931,71 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final void add(K key, V value) {
         assert key != null : "Violation of: key is not null";
         assert value != null : "Violation of: value is not null";
-        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
-        int index = mod(key.hashCode(), this.hashTable.length);
-        this.hashTable[index].add(key, value);
+        assert !this.isKey(key) : "Violation of: key is not in DOMAIN(this)";
+        this.rehashStep();
+        this.addToBucket(key, value);
         this.size++;
+        this.growIfNeeded();
+        this.countOperation();
     }
 
     @Override
     public final Pair<K, V> remove(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
-        int index = mod(key.hashCode(), this.hashTable.length);
-        Pair<K, V> removed = this.hashTable[index].remove(key);
+        assert this.isKey(key) : "Violation of: key is in DOMAIN(this)";
+        this.rehashStep();
+        Pair<K, V> removed = this.removeFromBucket(key);
         this.size--;
+        this.countOperation();
         return removed;
     }
 
     @Override
     public final Pair<K, V> removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
-        Pair<K, V> removed = null;
-        for (int i = 0; i < this.hashTable.length && removed == null; i++) {
-            if (this.hashTable[i].size() > 0) {
-                this.size--;
-                removed = this.hashTable[i].removeAny();
+        this.rehashStep();
+        Map<K, V>[] table = this.hashTable;
+        BitSet tableOccupied = this.occupied;
+        int index = -1;
+        if (this.oldTable != null) {
+            index = this.oldOccupied.nextSetBit(this.migrated);
+            if (index >= 0) {
+                table = this.oldTable;
+                tableOccupied = this.oldOccupied;
             }
         }
+        if (index < 0) {
+            index = this.occupied.nextSetBit(this.scanStart);
+            this.scanStart = index;
+        }
+        this.resizeBucket(table[index].size(), -1);
+        Pair<K, V> removed = table[index].removeAny();
+        shrink(table, tableOccupied, index);
+        this.size--;
+        this.countOperation();
         return removed;
     }
 
     @Override
     public final V value(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
-        int index = mod(key.hashCode(), this.hashTable.length);
-        return this.hashTable[index].value(key);
+        Map<K, V> bucket = this.bucket(key);
+        assert bucket != null && bucket.hasKey(key) : ""
+                + "Violation of: key is in DOMAIN(this)";
+        if (this.statisticsEnabled) {
+            this.countLookup(bucket);
+        }
+        return bucket.value(key);
     }
 
     @Override
     public final boolean hasKey(K key) {
         assert key != null : "Violation of: key is not null";
-        int index = mod(key.hashCode(), this.hashTable.length);
-        return this.hashTable[index].hasKey(key);
+        Map<K, V> bucket = this.bucket(key);
+        if (this.statisticsEnabled) {
+            this.countLookup(bucket);
+        }
+        return bucket != null && bucket.hasKey(key);
     }
 
     @Override
@@ -232,6 +1008,342 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         return new Map4Iterator();
     }
 
+    @Override
+    public final Spliterator<Pair<K, V>> spliterator() {
+        return new Map4Spliterator(0, this.bucketCount());
+    }
+
+    /*
+     * Statistics methods -----------------------------------------------------
+     */
+
+    /**
+     * Starts or stops counting lookups for {@code statistics}. Counting is off
+     * when {@code this} is constructed; turning it on again resumes the
+     * earlier counts.
+     *
+     * @param enabled
+     *            whether to count lookups
+     */
+    public final void setStatisticsEnabled(boolean enabled) {
+        this.statisticsEnabled = enabled;
+    }
+
+    /**
+     * Reports whether lookups are being counted.
+     *
+     * @return true iff lookups are being counted
+     */
+    public final boolean isStatisticsEnabled() {
+        return this.statisticsEnabled;
+    }
+
+    /**
+     * Returns a snapshot of the bucket lengths, lookup counts, and growth of
+     * {@code this}, and publishes it to the MXBean, if one is registered.
+     * Takes time proportional to the length of the longest bucket.
+     *
+     * @return the statistics of this
+     */
+    public final Map4Statistics statistics() {
+        Map4Statistics snapshot = new Map4Statistics(this.size,
+                this.bucketCount(),
+                Arrays.copyOf(this.lengthCounts, this.maxLength + 1),
+                this.lookups, this.probes, this.rehashCount);
+        this.published = snapshot;
+        this.untilPublish = PUBLISH_INTERVAL;
+        return snapshot;
+    }
+
+    /**
+     * Registers an MXBean, under the name
+     * {@code Map4:type=Statistics,name=}{@code name}, through which JMX
+     * clients can read the latest snapshot published by {@code statistics()}
+     * (or by growth of the table, or after every {@code PUBLISH_INTERVAL}
+     * operations), and turn counting on and off. A first
+     * snapshot is published here. Attributes read between two publications
+     * all come from the same snapshot. The MXBean keeps
+     * {@code this} reachable until it is unregistered.
+     *
+     * @param name
+     *            the name that identifies this map
+     * @return the name under which the MXBean was registered
+     * @throws JMException
+     *             if the name is malformed or already registered
+     */
+    public final ObjectName registerStatisticsMBean(String name)
+            throws JMException {
+        ObjectName objectName = new ObjectName(
+                "Map4:type=Statistics,name=" + ObjectName.quote(name));
+        this.statistics();
+        Map4StatisticsMXBean bean = new Map4StatisticsMXBean() {
+            @Override
+            public int getSize() {
+                return Map4.this.published.size();
+            }
+
+            @Override
+            public int getBucketCount() {
+                return Map4.this.published.bucketCount();
+            }
+
+            @Override
+            public int[] getHistogram() {
+                return Map4.this.published.histogram();
+            }
+
+            @Override
+            public int getMaxChainLength() {
+                return Map4.this.published.maxChainLength();
+            }
+
+            @Override
+            public long getLookups() {
+                return Map4.this.published.lookups();
+            }
+
+            @Override
+            public double getAverageProbes() {
+                return Map4.this.published.averageProbes();
+            }
+
+            @Override
+            public int getRehashCount() {
+                return Map4.this.published.rehashCount();
+            }
+
+            @Override
+            public boolean isStatisticsEnabled() {
+                return Map4.this.isStatisticsEnabled();
+            }
+
+            @Override
+            public void setStatisticsEnabled(boolean enabled) {
+                Map4.this.setStatisticsEnabled(enabled);
+            }
+        };
+        /*
+         * StandardMBean lets the implementation be an anonymous class; the
+         * MBean server requires a public one otherwise.
+         */
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean(bean, Map4StatisticsMXBean.class, true),
+                objectName);
+        return objectName;
+    }
+
+    /**
+     * Bucket for many entries, represented as a {@code TreeMap} ordered by
+     * {@code compareKeys}, from a key to a chain of the keys that
+     * {@code compareKeys} cannot tell apart from it. Keys with different hash
+     * codes or classes, or of the same class {@code C implements
+     * Comparable<C>}, get chains of their own, so finding a key takes
+     * logarithmic time.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @convention <pre>
+     * [the chains in $this.tree are non-empty]  and
+     * [every key in the chain mapped from k in $this.tree compares equal to
+     *  k under compareKeys]  and
+     * $this.size = [sum of the sizes of the chains in $this.tree]
+     * </pre>
+     * @correspondence <pre>
+     * this = [union of the chains in $this.tree]
+     * </pre>
+     */
+    private static final class TreeBucket<K, V> extends MapSecondary<K, V> {
+
+        /**
+         * Chains of keys, by the order of their keys.
+         */
+        private TreeMap<K, Map<K, V>> tree;
+
+        /**
+         * Total size of abstract {@code this}.
+         */
+        private int size;
+
+        /**
+         * Reports whether {@code c} is declared to implement
+         * {@code Comparable<c>}, so that {@code compareTo} between two of its
+         * instances cannot throw {@code ClassCastException}.
+         *
+         * @param c
+         *            the class
+         * @return true iff c implements Comparable of itself
+         */
+        private static boolean isSelfComparable(Class<?> c) {
+            boolean self = false;
+            if (Comparable.class.isAssignableFrom(c)) {
+                for (Type t : c.getGenericInterfaces()) {
+                    if (t instanceof ParameterizedType) {
+                        ParameterizedType p = (ParameterizedType) t;
+                        self = self || (p.getRawType() == Comparable.class
+                                && p.getActualTypeArguments()[0] == c);
+                    }
+                }
+            }
+            return self;
+        }
+
+        /**
+         * Results of {@code isSelfComparable}, computed once per class.
+         */
+        private static final ClassValue<Boolean> SELF_COMPARABLE =
+                new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> c) {
+                return isSelfComparable(c);
+            }
+        };
+
+        /**
+         * Compares keys by hash code; then, if the hash codes are equal, by
+         * the names of their classes; then, if they have the same class
+         * {@code C implements Comparable<C>}, by {@code compareTo}. Each step
+         * only separates keys that tie on the steps before it, so the order
+         * is transitive whatever mix of classes the keys come from. Keys of
+         * the same class that is not comparable to itself tie, and share a
+         * chain.
+         *
+         * @param a
+         *            the first key
+         * @param b
+         *            the second key
+         * @return negative, zero, or positive as a comes before, ties with, or
+         *         comes after b
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private static int compareKeys(Object a, Object b) {
+            int c = Integer.compare(a.hashCode(), b.hashCode());
+            if (c == 0) {
+                Class<?> ca = a.getClass();
+                Class<?> cb = b.getClass();
+                if (ca != cb) {
+                    c = ca.getName().compareTo(cb.getName());
+                    if (c == 0) {
+                        /*
+                         * Same name from different class loaders; as in
+                         * HashMap, identity hash codes are the last resort.
+                         */
+                        c = Integer.compare(System.identityHashCode(ca),
+                                System.identityHashCode(cb));
+                    }
+                } else if (SELF_COMPARABLE.get(ca)) {
+                    /*
+                     * a and b have the same class C implementing
+                     * Comparable<C>, so a.compareTo(b) is defined.
+                     */
+                    c = ((Comparable) a).compareTo(b);
+                }
+            }
+            return c;
+        }
+
+        /**
+         * Creator of initial representation.
+         */
+        private void createNewRep() {
+            this.tree = new TreeMap<>(TreeBucket::compareKeys);
+            this.size = 0;
+        }
+
+        /**
+         * No-argument constructor.
+         */
+        TreeBucket() {
+            this.createNewRep();
+        }
+
+        @Override
+        public Map<K, V> newInstance() {
+            return new TreeBucket<K, V>();
+        }
+
+        @Override
+        public void clear() {
+            this.createNewRep();
+        }
+
+        @Override
+        public void transferFrom(Map<K, V> source) {
+            assert source != null : "Violation of: source is not null";
+            assert source != this : "Violation of: source is not this";
+            assert source instanceof TreeBucket<?, ?> : ""
+                    + "Violation of: source is of dynamic type TreeBucket<?,?>";
+            /*
+             * This cast cannot fail since the assert above would have stopped
+             * execution in that case.
+             */
+            TreeBucket<K, V> localSource = (TreeBucket<K, V>) source;
+            this.tree = localSource.tree;
+            this.size = localSource.size;
+            localSource.createNewRep();
+        }
+
+        @Override
+        public void add(K key, V value) {
+            Map<K, V> chain = this.tree.get(key);
+            if (chain == null) {
+                chain = new Map1L<K, V>();
+                this.tree.put(key, chain);
+            }
+            chain.add(key, value);
+            this.size++;
+        }
+
+        @Override
+        public Pair<K, V> remove(K key) {
+            Map<K, V> chain = this.tree.get(key);
+            Pair<K, V> removed = chain.remove(key);
+            if (chain.size() == 0) {
+                this.tree.remove(key);
+            }
+            this.size--;
+            return removed;
+        }
+
+        @Override
+        public Pair<K, V> removeAny() {
+            K first = this.tree.firstKey();
+            Map<K, V> chain = this.tree.get(first);
+            Pair<K, V> removed = chain.removeAny();
+            if (chain.size() == 0) {
+                this.tree.remove(first);
+            }
+            this.size--;
+            return removed;
+        }
+
+        @Override
+        public V value(K key) {
+            return this.tree.get(key).value(key);
+        }
+
+        @Override
+        public boolean hasKey(K key) {
+            Map<K, V> chain = this.tree.get(key);
+            return chain != null && chain.hasKey(key);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public Iterator<Pair<K, V>> iterator() {
+            return this.tree.values().stream()
+                    .flatMap(chain -> StreamSupport.stream(
+                            chain.spliterator(), false))
+                    .iterator();
+        }
+
+    }
+
     /**
      * Implementation of {@code Iterator} interface for {@code Map4}.
      */
@@ -242,6 +1354,17 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          */
         private int numberSeen;
 
+        /**
+         * Table whose buckets are being visited: the unmoved part of
+         * {@code oldTable} first, then {@code hashTable}.
+         */
+        private Map<K, V>[] table;
+
+        /**
+         * Indexes of the non-empty buckets of {@code table}.
+         */
+        private BitSet tableOccupied;
+
         /**
          * Bucket from which current bucket iterator comes.
          */
@@ -257,8 +1380,15 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          */
         Map4Iterator() {
             this.numberSeen = 0;
-            this.currentBucket = 0;
-            this.bucketIterator = Map4.this.hashTable[0].iterator();
+            this.table = Map4.this.hashTable;
+            this.tableOccupied = Map4.this.occupied;
+            this.currentBucket = -1;
+            if (Map4.this.oldTable != null) {
+                this.table = Map4.this.oldTable;
+                this.tableOccupied = Map4.this.oldOccupied;
+                this.currentBucket = Map4.this.migrated - 1;
+            }
+            this.bucketIterator = Collections.emptyIterator();
         }
 
         @Override
@@ -279,8 +1409,18 @@ public class Map4<K, V> extends MapSecondary<K, V> {
             }
             this.numberSeen++;
             while (!this.bucketIterator.hasNext()) {
-                this.currentBucket++;
-                this.bucketIterator = Map4.this.hashTable[this.currentBucket]
+                this.currentBucket = this.tableOccupied
+                        .nextSetBit(this.currentBucket + 1);
+                if (this.currentBucket < 0) {
+                    /*
+                     * Only the unmoved part of oldTable can run out before
+                     * every element has been seen; hashTable comes next.
+                     */
+                    this.table = Map4.this.hashTable;
+                    this.tableOccupied = Map4.this.occupied;
+                    this.currentBucket = this.tableOccupied.nextSetBit(0);
+                }
+                this.bucketIterator = this.table[this.currentBucket]
                         .iterator();
             }
             return this.bucketIterator.next();
@@ -294,4 +1434,86 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     }
 
+    /**
+     * Implementation of {@code Spliterator} interface for {@code Map4},
+     * covering the buckets at a range of positions; splitting hands off the
+     * first half of the range.
+     */
+    private final class Map4Spliterator implements Spliterator<Pair<K, V>> {
+
+        /**
+         * Position of the next bucket to visit.
+         */
+        private int origin;
+
+        /**
+         * Position just past the last bucket to visit.
+         */
+        private final int fence;
+
+        /**
+         * Iterator over the rest of the bucket being visited.
+         */
+        private Iterator<Pair<K, V>> bucketIterator;
+
+        /**
+         * Constructor for the buckets at positions {@code [origin, fence)}.
+         *
+         * @param origin
+         *            position of the first bucket
+         * @param fence
+         *            position just past the last bucket
+         */
+        Map4Spliterator(int origin, int fence) {
+            this.origin = origin;
+            this.fence = fence;
+            this.bucketIterator = Collections.emptyIterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Pair<K, V>> action) {
+            assert action != null : "Violation of: action is not null";
+            while (!this.bucketIterator.hasNext() && this.origin < this.fence) {
+                int p = Map4.this.nextOccupied(this.origin);
+                if (p < this.fence) {
+                    this.bucketIterator = Map4.this.bucketAt(p).iterator();
+                    this.origin = p + 1;
+                } else {
+                    this.origin = this.fence;
+                }
+            }
+            boolean advanced = this.bucketIterator.hasNext();
+            if (advanced) {
+                action.accept(this.bucketIterator.next());
+            }
+            return advanced;
+        }
+
+        @Override
+        public Spliterator<Pair<K, V>> trySplit() {
+            Spliterator<Pair<K, V>> prefix = null;
+            int mid = (this.origin + this.fence) >>> 1;
+            if (this.origin < mid) {
+                prefix = new Map4Spliterator(this.origin, mid);
+                this.origin = mid;
+            }
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            /*
+             * Assume the entries are spread evenly over the buckets.
+             */
+            return (long) Map4.this.size * (this.fence - this.origin)
+                    / Math.max(Map4.this.bucketCount(), 1);
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+
+    }
+
 }
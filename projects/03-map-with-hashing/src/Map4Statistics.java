@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * Snapshot of the shape and use of a {@code Map4}, for tuning its hash table
+ * size and load factor: how its entries are spread over the buckets, how much
+ * work its lookups have done, and how often it has grown. Obtained from
+ * {@code Map4.statistics()}; the lookup counts are kept only while
+ * {@code Map4.setStatisticsEnabled(true)} is in effect.
+ *
+ * <p>
+ * A lookup is a call to {@code hasKey} or {@code value}. Its probes are the
+ * entries it may have to compare with the key: every entry of a list bucket,
+ * or the height of the balanced tree of a tree bucket.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class Map4Statistics {
+
+    /**
+     * Number of entries.
+     */
+    private final int size;
+
+    /**
+     * Number of buckets, counting those of a table still being rehashed.
+     */
+    private final int bucketCount;
+
+    /**
+     * Entry {@code n} is the number of buckets holding {@code n} entries.
+     */
+    private final int[] histogram;
+
+    /**
+     * Number of lookups counted.
+     */
+    private final long lookups;
+
+    /**
+     * Total probes of the lookups counted.
+     */
+    private final long probes;
+
+    /**
+     * Number of times the table has grown.
+     */
+    private final int rehashCount;
+
+    /**
+     * Constructor.
+     *
+     * @param size
+     *            the number of entries
+     * @param bucketCount
+     *            the number of buckets
+     * @param histogram
+     *            the number of buckets of each length, indexed by length
+     * @param lookups
+     *            the number of lookups counted
+     * @param probes
+     *            the total probes of those lookups
+     * @param rehashCount
+     *            the number of times the table has grown
+     * @requires <pre>
+     * |histogram| > 0  and  [sum of histogram] = bucketCount  and
+     * [sum of n * histogram[n]] = size
+     * </pre>
+     */
+    Map4Statistics(int size, int bucketCount, int[] histogram, long lookups,
+            long probes, int rehashCount) {
+        this.size = size;
+        this.bucketCount = bucketCount;
+        this.histogram = histogram.clone();
+        this.lookups = lookups;
+        this.probes = probes;
+        this.rehashCount = rehashCount;
+    }
+
+    /**
+     * Reports the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Reports the number of buckets, including those of a table still being
+     * rehashed.
+     *
+     * @return the number of buckets
+     */
+    public int bucketCount() {
+        return this.bucketCount;
+    }
+
+    /**
+     * Returns the bucket-length histogram: entry {@code n} is the number of
+     * buckets holding exactly {@code n} entries, up to the longest bucket.
+     *
+     * @return the histogram
+     * @ensures |histogram| = maxChainLength() + 1
+     */
+    public int[] histogram() {
+        return this.histogram.clone();
+    }
+
+    /**
+     * Reports the number of entries in the longest bucket.
+     *
+     * @return the maximum chain length
+     */
+    public int maxChainLength() {
+        return this.histogram.length - 1;
+    }
+
+    /**
+     * Reports the fraction of buckets that are empty.
+     *
+     * @return the fraction of empty buckets
+     */
+    public double emptyBucketFraction() {
+        return (double) this.histogram[0] / this.bucketCount;
+    }
+
+    /**
+     * Reports the number of lookups counted.
+     *
+     * @return the number of lookups
+     */
+    public long lookups() {
+        return this.lookups;
+    }
+
+    /**
+     * Reports the average number of probes per lookup, or 0 if none were
+     * counted.
+     *
+     * @return the average probes per lookup
+     */
+    public double averageProbes() {
+        double average = 0;
+        if (this.lookups > 0) {
+            average = (double) this.probes / this.lookups;
+        }
+        return average;
+    }
+
+    /**
+     * Reports the number of times the table has grown.
+     *
+     * @return the rehash count
+     */
+    public int rehashCount() {
+        return this.rehashCount;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + this.size + " buckets=" + this.bucketCount
+                + " histogram=" + Arrays.toString(this.histogram)
+                + " maxChain=" + this.maxChainLength() + " lookups="
+                + this.lookups + " averageProbes="
+                + String.format("%.2f", this.averageProbes()) + " rehashes="
+                + this.rehashCount;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Management interface through which JMX clients (such as JConsole) read the
+ * statistics of a {@code Map4}; see {@code Map4.registerStatisticsMBean}. A
+ * {@code Map4} is not safe for use by several threads, so the attributes are
+ * read from the latest {@code Map4Statistics} snapshot published by the thread
+ * that owns the map, never from the map itself; they may lag behind it.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public interface Map4StatisticsMXBean {
+
+    /**
+     * Reports the number of entries.
+     *
+     * @return the number of entries
+     */
+    int getSize();
+
+    /**
+     * Reports the number of buckets.
+     *
+     * @return the number of buckets
+     */
+    int getBucketCount();
+
+    /**
+     * Returns the bucket-length histogram, indexed by length.
+     *
+     * @return the histogram
+     */
+    int[] getHistogram();
+
+    /**
+     * Reports the number of entries in the longest bucket.
+     *
+     * @return the maximum chain length
+     */
+    int getMaxChainLength();
+
+    /**
+     * Reports the number of lookups counted.
+     *
+     * @return the number of lookups
+     */
+    long getLookups();
+
+    /**
+     * Reports the average number of probes per lookup.
+     *
+     * @return the average probes per lookup
+     */
+    double getAverageProbes();
+
+    /**
+     * Reports the number of times the table has grown.
+     *
+     * @return the rehash count
+     */
+    int getRehashCount();
+
+    /**
+     * Reports whether lookups are being counted.
+     *
+     * @return true iff lookups are being counted
+     */
+    boolean isStatisticsEnabled();
+
+    /**
+     * Starts or stops counting lookups.
+     *
+     * @param enabled
+     *            whether to count lookups
+     */
+    void setStatisticsEnabled(boolean enabled);
+
+}
@@ -0,0 +1,486 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as an open-addressing hash table: parallel arrays of
+ * keys and values, probed linearly, with implementations of primary methods.
+ *
+ * <p>
+ * A lookup touches consecutive slots of one array instead of following a
+ * pointer to a bucket {@code Map} and walking its entries. Removal shifts the
+ * rest of the probe run back into the freed slot (Knuth's Algorithm R), so
+ * there are no tombstones and lookups never slow down after many removals.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * HOME(
+ *   x: K,
+ *   n: integer
+ *  ): integer is
+ *  [computed result of SPREAD(x.hashCode())] mod n
+ * </pre>
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and  3 * $this.size <= 2 * |$this.keys|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|)
+ *   ($this.keys[i] = null  iff  $this.values[i] = null)  and
+ * [the non-null entries of $this.keys are distinct]  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.keys|  and  $this.keys[i] /= null)
+ *   (for all j: integer
+ *        where ([j is strictly between HOME($this.keys[i], |$this.keys|)
+ *                and i, going up and wrapping around from |$this.keys| - 1
+ *                to 0])
+ *      ($this.keys[j] /= null))  and
+ * $this.size = [number of non-null entries of $this.keys]  and
+ * 0 <= $this.scanStart < |$this.keys|
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (K, V)
+ *          where (there exists i: integer
+ *                    (0 <= i  and  i < |$this.keys|  and
+ *                     $this.keys[i] = k  and  k /= null  and
+ *                     $this.values[i] = v))}
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class Map5<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default number of slots.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Keys, or {@code null} in empty slots.
+     */
+    private Object[] keys;
+
+    /**
+     * Values, at the same index as their keys.
+     */
+    private Object[] values;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private int size;
+
+    /**
+     * Slot where {@code removeAny} starts looking, so that draining the map
+     * does not rescan the slots it has already emptied.
+     */
+    private int scanStart;
+
+    /**
+     * Mixes the high bits of {@code h} into the low bits, which are the only
+     * ones a power-of-two table uses.
+     *
+     * @param h
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot where probing for {@code key} starts.
+     *
+     * @param key
+     *            the key
+     * @param capacity
+     *            the number of slots
+     * @return HOME(key, capacity)
+     * @requires [capacity is a power of 2]
+     * @ensures home = HOME(key, capacity)
+     */
+    private static int home(Object key, int capacity) {
+        return spread(key.hashCode()) & (capacity - 1);
+    }
+
+    /**
+     * Returns the smallest power of 2 with room for {@code expectedSize}
+     * entries.
+     *
+     * @param expectedSize
+     *            the number of entries
+     * @return the capacity
+     * @requires expectedSize >= 0
+     * @ensures <pre>
+     * [capacityFor is a power of 2]  and  3 * expectedSize <= 2 * capacityFor
+     * </pre>
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (2 * (long) capacity < 3 * (long) expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the number of slots
+     * @requires [capacity is a power of 2]
+     * @ensures <pre>
+     * |$this.keys| = capacity  and  |$this.values| = capacity  and
+     * [all entries of $this.keys and $this.values are null]  and
+     * $this.size = 0  and  $this.scanStart = 0
+     * </pre>
+     */
+    private void createNewRep(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.size = 0;
+        this.scanStart = 0;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would
+     * be added.
+     *
+     * @param key
+     *            the key
+     * @return the slot for key
+     * @ensures <pre>
+     * ($this.keys[slot] = key)  or
+     * ($this.keys[slot] = null  and  key is not in DOMAIN(this))
+     * </pre>
+     */
+    private int slot(Object key) {
+        int mask = this.keys.length - 1;
+        int i = home(key, this.keys.length);
+        while (this.keys[i] != null && !this.keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Doubles the number of slots, re-inserting every entry.
+     *
+     * @updates this
+     * @ensures this = #this  and  |$this.keys| = 2 * |#$this.keys|
+     */
+    private void grow() {
+        Object[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        int capacity = 2 * oldKeys.length;
+        int mask = capacity - 1;
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.scanStart = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = home(oldKeys[i], capacity);
+                while (this.keys[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                this.keys[j] = oldKeys[i];
+                this.values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Empties slot {@code i} and moves later entries of its probe run back so
+     * every remaining key can still be reached from its home slot.
+     *
+     * @param i
+     *            the slot to empty
+     * @updates this
+     * @requires $this.keys[i] /= null
+     * @ensures this = #this \ {(#$this.keys[i], #$this.values[i])}
+     */
+    private void deleteSlot(int i) {
+        int mask = this.keys.length - 1;
+        int hole = i;
+        int j = (hole + 1) & mask;
+        while (this.keys[j] != null) {
+            /*
+             * The entry at j may fill the hole unless its home lies cyclically
+             * in (hole, j], in which case moving it would put it before its
+             * home.
+             */
+            int h = home(this.keys[j], this.keys.length);
+            if (((j - h) & mask) >= ((j - hole) & mask)) {
+                this.keys[hole] = this.keys[j];
+                this.values[hole] = this.values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[hole] = null;
+        this.values[hole] = null;
+        this.size--;
+    }
+
+    /**
+     * Returns the entry in slot {@code i} as a {@code Pair}.
+     *
+     * @param i
+     *            the slot
+     * @return the pair in slot i
+     * @requires $this.keys[i] /= null
+     */
+    @SuppressWarnings("unchecked")
+    private Pair<K, V> pairAt(int i) {
+        /*
+         * Only K keys and V values are ever stored, so these casts cannot
+         * fail.
+         */
+        return new SimplePair<K, V>((K) this.keys[i], (V) this.values[i]);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map5() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor resulting in a table with room for {@code expectedSize}
+     * entries before it first grows.
+     *
+     * @param expectedSize
+     *            number of entries to make room for
+     * @requires expectedSize >= 0
+     * @ensures this = {}
+     */
+    public Map5(int expectedSize) {
+        assert expectedSize >= 0 : "Violation of: expectedSize >= 0";
+        this.createNewRep(capacityFor(expectedSize));
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map5<?, ?> : ""
+                + "Violation of: source is of dynamic type Map5<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Map5<?,?>, and
+         * the ?,? must be K,V or the call would not have compiled.
+         */
+        Map5<K, V> localSource = (Map5<K, V>) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.size = localSource.size;
+        this.scanStart = localSource.scanStart;
+        localSource.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+        if (2 * (long) this.keys.length < 3 * (long) (this.size + 1)) {
+            this.grow();
+        }
+        int i = this.slot(key);
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size++;
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        int i = this.slot(key);
+        Pair<K, V> removed = this.pairAt(i);
+        this.deleteSlot(i);
+        return removed;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+        int mask = this.keys.length - 1;
+        int i = this.scanStart;
+        while (this.keys[i] == null) {
+            i = (i + 1) & mask;
+        }
+        Pair<K, V> removed = this.pairAt(i);
+        this.deleteSlot(i);
+        this.scanStart = i;
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        /*
+         * Only V values are ever stored, so this cast cannot fail.
+         */
+        return (V) this.values[this.slot(key)];
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+        return this.keys[this.slot(key)] != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map5Iterator();
+    }
+
+    /**
+     * Immutable {@code Pair} of a key and its value.
+     *
+     * @param <K>
+     *            type of key
+     * @param <V>
+     *            type of value
+     */
+    private static final class SimplePair<K, V> implements Pair<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * Constructor.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        SimplePair(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K key() {
+            return this.key;
+        }
+
+        @Override
+        public V value() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map5}.
+     */
+    private final class Map5Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot from which the next element will come, once advanced past
+         * empty slots.
+         */
+        private int currentSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        Map5Iterator() {
+            this.numberSeen = 0;
+            this.currentSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map5.this.size;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (Map5.this.keys[this.currentSlot] == null) {
+                this.currentSlot++;
+            }
+            Pair<K, V> next = Map5.this.pairAt(this.currentSlot);
+            this.currentSlot++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Harness shared by the benchmarks of maps used by several threads at once.
+ * Each thread runs a fixed number of operations on random keys from a fixed
+ * key set; a given percentage of them update the entry of their key, and the
+ * rest read it. Throughput is averaged over several timed runs, each on a
+ * fresh map, after a few untimed ones.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+final class MapThroughput {
+
+    /**
+     * Thread counts to measure.
+     */
+    static final int[] THREADS = { 1, 2, 4, 8, 16 };
+
+    /**
+     * Number of untimed runs before each measurement.
+     */
+    private static final int WARMUP_RUNS = 2;
+
+    /**
+     * Number of timed runs averaged for each measurement.
+     */
+    private static final int TIMED_RUNS = 3;
+
+    /**
+     * Percent, as the bound of a random percentage.
+     */
+    private static final int PERCENT = 100;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Operations of the workload on a shared map from {@code Integer} keys.
+     */
+    interface SharedMap {
+
+        /**
+         * Updates the entry of {@code key}, as the {@code i}-th operation of
+         * its thread.
+         *
+         * @param key
+         *            the key
+         * @param i
+         *            the number of the operation
+         */
+        void update(Integer key, int i);
+
+        /**
+         * Reads the entry of {@code key}.
+         *
+         * @param key
+         *            the key
+         * @return a number computed from the entry, so that the read is not
+         *         optimized away
+         */
+        int read(Integer key);
+
+    }
+
+    /**
+     * Number of distinct keys.
+     */
+    private final int keys;
+
+    /**
+     * Operations per thread in each run.
+     */
+    private final int operations;
+
+    /**
+     * Percentage of operations that update an entry.
+     */
+    private final int updatePercent;
+
+    /**
+     * Constructor.
+     *
+     * @param keys
+     *            the number of distinct keys
+     * @param operations
+     *            the operations per thread in each run
+     * @param updatePercent
+     *            the percentage of operations that update an entry
+     * @requires keys > 0 and operations > 0 and 0 <= updatePercent <= 100
+     */
+    MapThroughput(int keys, int operations, int updatePercent) {
+        this.keys = keys;
+        this.operations = operations;
+        this.updatePercent = updatePercent;
+    }
+
+    /**
+     * Runs the workload on {@code threads} threads against a fresh map and
+     * returns the elapsed milliseconds.
+     *
+     * @param factory
+     *            makes the map
+     * @param threads
+     *            the number of threads
+     * @return elapsed milliseconds
+     * @throws Exception
+     *             if a thread fails
+     */
+    private double runOnce(Supplier<? extends SharedMap> factory,
+            int threads) throws Exception {
+        SharedMap map = factory.get();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            done.add(pool.submit(() -> {
+                SplittableRandom rnd = new SplittableRandom(seed);
+                int sink = 0;
+                start.await();
+                for (int i = 0; i < this.operations; i++) {
+                    Integer key = rnd.nextInt(this.keys);
+                    if (rnd.nextInt(PERCENT) < this.updatePercent) {
+                        map.update(key, i);
+                    } else {
+                        sink += map.read(key);
+                    }
+                }
+                return sink;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<Integer> f : done) {
+            f.get();
+        }
+        double elapsed = (System.nanoTime() - begin) / NANOS_PER_MILLI;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    /**
+     * Returns the throughput, in operations per millisecond, of the workload
+     * on {@code threads} threads, averaged over several runs.
+     *
+     * @param factory
+     *            makes the map
+     * @param threads
+     *            the number of threads
+     * @return operations per millisecond
+     * @throws Exception
+     *             if a thread fails
+     */
+    double throughput(Supplier<? extends SharedMap> factory, int threads)
+            throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            this.runOnce(factory, threads);
+        }
+        double total = 0;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            total += this.runOnce(factory, threads);
+        }
+        return (double) threads * this.operations * TIMED_RUNS / total;
+    }
+
+}
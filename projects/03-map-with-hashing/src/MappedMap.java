@@ -0,0 +1,977 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} from strings to strings kept in two memory-mapped files, so that
+ * it persists across runs and holds almost none of its data on the Java heap.
+ * Reopening a map is just mapping its files again; nothing is parsed.
+ *
+ * <p>
+ * The slot file holds a header and a fixed-size array of slots, an
+ * open-addressing hash table as in {@code Map5}: each slot holds the spread
+ * hash code of its key and the offset of its entry in the heap file, or 0 if
+ * the slot is empty. The heap file is append-only: each entry is the lengths
+ * of its key and value followed by their UTF-8 bytes. Replacing a value
+ * appends a new entry; removing a key empties its slot (with backward-shift
+ * deletion). The space of entries no longer referenced is not reclaimed
+ * until {@code clear}. When the slots are two thirds full their number is
+ * doubled, re-placing the slots by their stored hash codes without reading
+ * the heap. The doubled slots are written to a sibling file (the slot file's
+ * name with ".grow" appended), which is then moved over the slot file
+ * atomically, so the slot file on disk always holds either the old slots or
+ * the new ones.
+ *
+ * <p>
+ * Changes are written to the mapped files as they happen; {@code flush}
+ * forces them to the storage device. A crash in the middle of any other
+ * update may leave the files inconsistent. Each file must stay under 2 GiB,
+ * and no other program may change the files while they are open.
+ *
+ * @convention <pre>
+ * [this.slots maps the slot file: HEADER_BYTES bytes of header (MAGIC,
+ *  VERSION, $this.slotCount, $this.size, $this.heapEnd) followed by
+ *  $this.slotCount slots of SLOT_BYTES bytes]  and
+ * [$this.slotCount is a power of 2]  and
+ * 3 * $this.size <= 2 * $this.slotCount  and
+ * [this.heap maps the heap file, whose first HEAP_HEADER_BYTES bytes are
+ *  HEAP_MAGIC and whose entries lie in [HEAP_HEADER_BYTES, $this.heapEnd)]  and
+ * [the entry offset of each non-empty slot is that of an entry in the heap]
+ *  and
+ * [the keys of the entries of the non-empty slots are distinct]  and
+ * [the hash of each non-empty slot is SPREAD of its key's hashCode]  and
+ * [every non-empty slot is reachable by probing up (wrapping around) from
+ *  its home slot, hash mod $this.slotCount, through non-empty slots only]
+ *  and
+ * $this.size = [number of non-empty slots]  and
+ * [no slot before $this.scanStart is non-empty]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (string of character, string of character)
+ *          where (there exists i: integer
+ *                    ([slot i is non-empty]  and
+ *                     [the entry of slot i has key k and value v]))}
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class MappedMap extends MapSecondary<String, String>
+        implements AutoCloseable {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * First int of the slot file.
+     */
+    private static final int MAGIC = 0x4D4D4150;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * First long of the heap file.
+     */
+    private static final long HEAP_MAGIC = 0x4D4D41502D484541L;
+
+    /**
+     * Offset of the format version in the slot file.
+     */
+    private static final int VERSION_AT = 4;
+
+    /**
+     * Offset of the slot count in the slot file.
+     */
+    private static final int SLOT_COUNT_AT = 8;
+
+    /**
+     * Offset of the size in the slot file.
+     */
+    private static final int SIZE_AT = 12;
+
+    /**
+     * Offset of the end of the used part of the heap, in the slot file.
+     */
+    private static final int HEAP_END_AT = 16;
+
+    /**
+     * Number of bytes of the slot file header.
+     */
+    private static final int HEADER_BYTES = 24;
+
+    /**
+     * Number of bytes of a slot: the entry offset (a long), then the hash.
+     */
+    private static final int SLOT_BYTES = 12;
+
+    /**
+     * Offset of the hash within a slot.
+     */
+    private static final int SLOT_HASH_AT = 8;
+
+    /**
+     * Number of bytes of the heap file header.
+     */
+    private static final int HEAP_HEADER_BYTES = 8;
+
+    /**
+     * Number of bytes before the key of an entry: its key and value lengths.
+     */
+    private static final int ENTRY_HEADER_BYTES = 8;
+
+    /**
+     * Number of slots of a new map.
+     */
+    private static final int DEFAULT_SLOT_COUNT = 16;
+
+    /**
+     * Initial capacity, in bytes, of the heap file of a new map.
+     */
+    private static final int DEFAULT_HEAP_BYTES = 4096;
+
+    /**
+     * Path of the slot file.
+     */
+    private Path slotPath;
+
+    /**
+     * Channel of the slot file.
+     */
+    private FileChannel slotChannel;
+
+    /**
+     * Channel of the heap file.
+     */
+    private FileChannel heapChannel;
+
+    /**
+     * Mapping of the slot file.
+     */
+    private MappedByteBuffer slots;
+
+    /**
+     * Mapping of the heap file; may extend past the used part.
+     */
+    private MappedByteBuffer heap;
+
+    /**
+     * Number of slots.
+     */
+    private int slotCount;
+
+    /**
+     * Number of keys in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Offset in the heap file just past the last entry.
+     */
+    private int heapEnd;
+
+    /**
+     * Slot at which {@code removeAny} starts looking for a non-empty slot.
+     */
+    private int scanStart;
+
+    /**
+     * Returns the path of the heap file that goes with the slot file
+     * {@code path}: the same name with ".heap" appended.
+     *
+     * @param path
+     *            the path of the slot file
+     * @return the path of the heap file
+     */
+    public static Path heapPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".heap");
+    }
+
+    /**
+     * Returns the path of the file to which the slots of the map at
+     * {@code path} are written while their number is doubled: the same name
+     * with ".grow" appended.
+     *
+     * @param path
+     *            the path of the slot file
+     * @return the path of the file for the doubled slots
+     */
+    private static Path growPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".grow");
+    }
+
+    /**
+     * Returns the hash stored for {@code key}: its hash code with the high
+     * bits folded into the low ones, which pick its home slot.
+     * {@code String.hashCode} is specified exactly, so the hash of a key is
+     * the same in every run.
+     *
+     * @param key
+     *            the key
+     * @return the spread hash of key
+     */
+    private static int spread(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Maps the first {@code bytes} bytes of {@code channel}, extending the
+     * file if it is shorter.
+     *
+     * @param channel
+     *            the channel
+     * @param bytes
+     *            the number of bytes to map
+     * @return the little-endian mapping
+     * @throws IOException
+     *             if the mapping fails
+     */
+    private static MappedByteBuffer map(FileChannel channel, long bytes)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                0, bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Opens the files of the map at {@code path}, creating an empty map if
+     * the slot file is missing or empty. If that fails, the channels opened
+     * are closed, and a heap file created here is deleted again.
+     *
+     * @param path
+     *            the path of the slot file
+     * @throws IOException
+     *             if the files cannot be opened or are not a map
+     */
+    private void open(Path path) throws IOException {
+        this.slotPath = path;
+        boolean heapExisted = Files.exists(heapPath(path));
+        try {
+            this.openChannels(path);
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : new FileChannel[] { this.slotChannel,
+                    this.heapChannel }) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException closeFailure) {
+                        e.addSuppressed(closeFailure);
+                    }
+                }
+            }
+            this.slotChannel = null;
+            this.heapChannel = null;
+            if (!heapExisted) {
+                try {
+                    Files.deleteIfExists(heapPath(path));
+                } catch (IOException deleteFailure) {
+                    e.addSuppressed(deleteFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the channels of the files of the map at {@code path} and maps
+     * them, creating an empty map if the slot file is missing or empty.
+     *
+     * @param path
+     *            the path of the slot file
+     * @throws IOException
+     *             if the files cannot be opened or are not a map
+     */
+    private void openChannels(Path path) throws IOException {
+        this.slotChannel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        this.heapChannel = FileChannel.open(heapPath(path),
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        if (this.slotChannel.size() == 0) {
+            this.format(DEFAULT_SLOT_COUNT);
+        } else {
+            if (this.slotChannel.size() < HEADER_BYTES) {
+                throw new IOException("Not a map file: " + path);
+            }
+            this.slots = map(this.slotChannel, this.slotChannel.size());
+            this.slotCount = this.slots.getInt(SLOT_COUNT_AT);
+            this.size = this.slots.getInt(SIZE_AT);
+            long end = this.slots.getLong(HEAP_END_AT);
+            if (this.slots.getInt(0) != MAGIC
+                    || this.slots.getInt(VERSION_AT) != VERSION
+                    || this.slotCount <= 0
+                    || Integer.bitCount(this.slotCount) != 1
+                    || this.slots.capacity() != HEADER_BYTES
+                            + (long) this.slotCount * SLOT_BYTES
+                    || this.size < 0
+                    || 3L * this.size > 2L * this.slotCount
+                    || end < HEAP_HEADER_BYTES || end > Integer.MAX_VALUE
+                    || this.heapChannel.size() < end) {
+                throw new IOException("Not a map file: " + path);
+            }
+            this.heapEnd = (int) end;
+            this.heap = map(this.heapChannel, this.heapChannel.size());
+            if (this.heap.getLong(0) != HEAP_MAGIC) {
+                throw new IOException("Not a map heap file: " + path);
+            }
+            this.scanStart = 0;
+        }
+    }
+
+    /**
+     * Empties the files and lays out an empty map with {@code count} slots.
+     *
+     * @param count
+     *            the number of slots
+     * @throws IOException
+     *             if the files cannot be written
+     * @requires [count is a power of 2]
+     * @ensures this = {}
+     */
+    private void format(int count) throws IOException {
+        this.slotChannel.truncate(0);
+        this.heapChannel.truncate(0);
+        this.slotCount = count;
+        this.slots = map(this.slotChannel,
+                HEADER_BYTES + (long) count * SLOT_BYTES);
+        this.heap = map(this.heapChannel, DEFAULT_HEAP_BYTES);
+        this.heap.putLong(0, HEAP_MAGIC);
+        this.slots.putInt(0, MAGIC);
+        this.slots.putInt(VERSION_AT, VERSION);
+        this.size = 0;
+        this.heapEnd = HEAP_HEADER_BYTES;
+        this.scanStart = 0;
+        this.writeHeader();
+    }
+
+    /**
+     * Creates the representation of an empty map in a new pair of temporary
+     * files, deleted when the program exits.
+     */
+    private void createNewRep() {
+        try {
+            Path path = Files.createTempFile("MappedMap", ".slots");
+            path.toFile().deleteOnExit();
+            heapPath(path).toFile().deleteOnExit();
+            this.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the slot count, size, and heap end to the slot file header.
+     */
+    private void writeHeader() {
+        this.slots.putInt(SLOT_COUNT_AT, this.slotCount);
+        this.slots.putInt(SIZE_AT, this.size);
+        this.slots.putLong(HEAP_END_AT, this.heapEnd);
+    }
+
+    /**
+     * Returns the entry offset of slot {@code i}, or 0 if it is empty.
+     *
+     * @param i
+     *            the slot
+     * @return the entry offset of slot i
+     */
+    private int entryAt(int i) {
+        return (int) this.slots.getLong(HEADER_BYTES + i * SLOT_BYTES);
+    }
+
+    /**
+     * Returns the hash of slot {@code i}.
+     *
+     * @param i
+     *            the slot
+     * @return the hash of slot i
+     */
+    private int hashAt(int i) {
+        return this.slots.getInt(HEADER_BYTES + i * SLOT_BYTES + SLOT_HASH_AT);
+    }
+
+    /**
+     * Sets slot {@code i} to entry offset {@code entry} and hash
+     * {@code hash}.
+     *
+     * @param i
+     *            the slot
+     * @param entry
+     *            the entry offset, or 0 to empty the slot
+     * @param hash
+     *            the hash
+     */
+    private void setSlot(int i, int entry, int hash) {
+        this.slots.putLong(HEADER_BYTES + i * SLOT_BYTES, entry);
+        this.slots.putInt(HEADER_BYTES + i * SLOT_BYTES + SLOT_HASH_AT, hash);
+    }
+
+    /**
+     * Reports whether the key of the entry at {@code entry} has the UTF-8
+     * bytes {@code key}, comparing in place.
+     *
+     * @param entry
+     *            the entry offset
+     * @param key
+     *            the UTF-8 bytes of a key
+     * @return true iff the entry's key is key
+     */
+    private boolean keyEquals(int entry, byte[] key) {
+        boolean equal = this.heap.getInt(entry) == key.length;
+        int at = entry + ENTRY_HEADER_BYTES;
+        for (int j = 0; j < key.length && equal; j++) {
+            equal = this.heap.get(at + j) == key[j];
+        }
+        return equal;
+    }
+
+    /**
+     * Reports whether non-empty slot {@code i} holds the key with UTF-8 bytes
+     * {@code key} and hash {@code hash}.
+     *
+     * @param i
+     *            the slot
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @param hash
+     *            the spread hash of the key
+     * @return true iff slot i holds key
+     */
+    private boolean holds(int i, byte[] key, int hash) {
+        return this.hashAt(i) == hash && this.keyEquals(this.entryAt(i), key);
+    }
+
+    /**
+     * Decodes {@code length} bytes of the heap at {@code at} as UTF-8.
+     *
+     * @param at
+     *            the offset of the bytes
+     * @param length
+     *            the number of bytes
+     * @return the decoded string
+     */
+    private String readString(int at, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = this.heap.duplicate();
+        view.position(at);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the key of the entry at {@code entry}.
+     *
+     * @param entry
+     *            the entry offset
+     * @return the key
+     */
+    private String keyOf(int entry) {
+        return this.readString(entry + ENTRY_HEADER_BYTES,
+                this.heap.getInt(entry));
+    }
+
+    /**
+     * Returns the value of the entry at {@code entry}.
+     *
+     * @param entry
+     *            the entry offset
+     * @return the value
+     */
+    private String valueOf(int entry) {
+        int keyLength = this.heap.getInt(entry);
+        return this.readString(entry + ENTRY_HEADER_BYTES + keyLength,
+                this.heap.getInt(entry + Integer.BYTES));
+    }
+
+    /**
+     * Returns the slot holding the key with UTF-8 bytes {@code key} and hash
+     * {@code hash}, or the empty slot where it would be added.
+     *
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @param hash
+     *            the spread hash of the key
+     * @return the slot for key
+     */
+    private int slot(byte[] key, int hash) {
+        int mask = this.slotCount - 1;
+        int i = hash & mask;
+        while (this.entryAt(i) != 0 && !this.holds(i, key, hash)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Appends an entry with the given key and value bytes to the heap,
+     * growing the heap file if needed, and returns its offset.
+     *
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @param value
+     *            the UTF-8 bytes of the value
+     * @return the offset of the new entry
+     */
+    private int append(byte[] key, byte[] value) {
+        long end = (long) this.heapEnd + ENTRY_HEADER_BYTES + key.length
+                + value.length;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Map heap file is full");
+        }
+        if (end > this.heap.capacity()) {
+            long capacity = Math.min(
+                    Math.max(2L * this.heap.capacity(), end),
+                    Integer.MAX_VALUE);
+            try {
+                this.heap = map(this.heapChannel, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int entry = this.heapEnd;
+        this.heap.putInt(entry, key.length);
+        this.heap.putInt(entry + Integer.BYTES, value.length);
+        ByteBuffer view = this.heap.duplicate();
+        view.position(entry + ENTRY_HEADER_BYTES);
+        view.put(key);
+        view.put(value);
+        this.heapEnd = (int) end;
+        return entry;
+    }
+
+    /**
+     * Doubles the number of slots, re-placing each non-empty slot by its
+     * stored hash. The new slots are written to {@code growPath(slotPath)}
+     * and forced to the storage device, along with the heap they refer to,
+     * before that file is moved over the slot file, so a crash at any point
+     * leaves a slot file that is consistent with the heap. If this fails,
+     * {@code this} is left as it was.
+     */
+    private void growSlots() {
+        int oldCount = this.slotCount;
+        int[] entries = new int[this.size];
+        int[] hashes = new int[this.size];
+        int n = 0;
+        for (int i = 0; i < oldCount; i++) {
+            if (this.entryAt(i) != 0) {
+                entries[n] = this.entryAt(i);
+                hashes[n] = this.hashAt(i);
+                n++;
+            }
+        }
+        FileChannel oldChannel = this.slotChannel;
+        MappedByteBuffer oldSlots = this.slots;
+        Path grown = growPath(this.slotPath);
+        try {
+            /*
+             * Truncating the file and mapping it at its new length leaves
+             * every slot zero, i.e., empty.
+             */
+            this.slotChannel = FileChannel.open(grown, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.slotCount = 2 * oldCount;
+            this.slots = map(this.slotChannel,
+                    HEADER_BYTES + (long) this.slotCount * SLOT_BYTES);
+            this.slots.putInt(0, MAGIC);
+            this.slots.putInt(VERSION_AT, VERSION);
+            int mask = this.slotCount - 1;
+            for (int k = 0; k < n; k++) {
+                int i = hashes[k] & mask;
+                while (this.entryAt(i) != 0) {
+                    i = (i + 1) & mask;
+                }
+                this.setSlot(i, entries[k], hashes[k]);
+            }
+            this.writeHeader();
+            this.heap.force();
+            this.slots.force();
+            Files.move(grown, this.slotPath,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException(e);
+            if (this.slotChannel != oldChannel) {
+                try {
+                    this.slotChannel.close();
+                    Files.deleteIfExists(grown);
+                } catch (IOException cleanupFailure) {
+                    failure.addSuppressed(cleanupFailure);
+                }
+            }
+            this.slotChannel = oldChannel;
+            this.slots = oldSlots;
+            this.slotCount = oldCount;
+            throw failure;
+        }
+        try {
+            /*
+             * The old slot file is no longer reachable by name; closing its
+             * channel lets the file system reclaim it.
+             */
+            oldChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.scanStart = 0;
+    }
+
+    /**
+     * Empties slot {@code hole}, moving later slots of its probe run back so
+     * every key stays reachable from its home slot.
+     *
+     * @param hole
+     *            the slot to empty
+     */
+    private void deleteSlot(int hole) {
+        int mask = this.slotCount - 1;
+        int gap = hole;
+        int j = (gap + 1) & mask;
+        while (this.entryAt(j) != 0) {
+            int h = this.hashAt(j) & mask;
+            if (((j - h) & mask) >= ((j - gap) & mask)) {
+                this.setSlot(gap, this.entryAt(j), this.hashAt(j));
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.setSlot(gap, 0, 0);
+        this.size--;
+        this.writeHeader();
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: an empty map kept in temporary files, deleted
+     * when the program exits.
+     */
+    public MappedMap() {
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor for the map kept in the slot file {@code path} and the heap
+     * file {@code heapPath(path)}: the map stored there if the slot file
+     * exists and is not empty, and a new empty map otherwise.
+     *
+     * @param path
+     *            the path of the slot file
+     * @throws IOException
+     *             if the files cannot be opened or do not hold a map
+     */
+    public MappedMap(Path path) throws IOException {
+        assert path != null : "Violation of: path is not null";
+        this.open(path);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Map<String, String> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    /**
+     * Empties the files of {@code this}.
+     */
+    @Override
+    public final void clear() {
+        try {
+            this.format(DEFAULT_SLOT_COUNT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@code this} closes its own files and takes over those of
+     * {@code source}; {@code source} gets new temporary files.
+     */
+    @Override
+    public final void transferFrom(Map<String, String> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof MappedMap : ""
+                + "Violation of: source is of dynamic type MappedMap";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        MappedMap localSource = (MappedMap) source;
+        this.close();
+        this.slotPath = localSource.slotPath;
+        this.slotChannel = localSource.slotChannel;
+        this.heapChannel = localSource.heapChannel;
+        this.slots = localSource.slots;
+        this.heap = localSource.heap;
+        this.slotCount = localSource.slotCount;
+        this.size = localSource.size;
+        this.heapEnd = localSource.heapEnd;
+        this.scanStart = localSource.scanStart;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, String value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = spread(key);
+        int i = this.slot(keyBytes, hash);
+        assert this.entryAt(i) == 0 : ""
+                + "Violation of: key is not in DOMAIN(this)";
+        if (3 * ((long) this.size + 1) > 2L * this.slotCount) {
+            this.growSlots();
+            i = this.slot(keyBytes, hash);
+        }
+        int entry = this.append(keyBytes,
+                value.getBytes(StandardCharsets.UTF_8));
+        this.setSlot(i, entry, hash);
+        this.size++;
+        this.scanStart = Math.min(this.scanStart, i);
+        this.writeHeader();
+    }
+
+    @Override
+    public final Pair<String, String> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        int i = this.slot(key.getBytes(StandardCharsets.UTF_8), spread(key));
+        int entry = this.entryAt(i);
+        assert entry != 0 : "Violation of: key is in DOMAIN(this)";
+        Pair<String, String> removed = new SimplePair(key,
+                this.valueOf(entry));
+        this.deleteSlot(i);
+        return removed;
+    }
+
+    @Override
+    public final Pair<String, String> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+        int i = this.scanStart;
+        while (this.entryAt(i) == 0) {
+            i++;
+        }
+        /*
+         * Backward shift may move a later entry into slot i, so the scan
+         * resumes at i, not after it.
+         */
+        this.scanStart = i;
+        int entry = this.entryAt(i);
+        Pair<String, String> removed = new SimplePair(this.keyOf(entry),
+                this.valueOf(entry));
+        this.deleteSlot(i);
+        return removed;
+    }
+
+    @Override
+    public final String value(String key) {
+        assert key != null : "Violation of: key is not null";
+        int entry = this.entryAt(
+                this.slot(key.getBytes(StandardCharsets.UTF_8), spread(key)));
+        assert entry != 0 : "Violation of: key is in DOMAIN(this)";
+        return this.valueOf(entry);
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+        return this.entryAt(this.slot(key.getBytes(StandardCharsets.UTF_8),
+                spread(key))) != 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<String, String>> iterator() {
+        return new MappedMapIterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    @Override
+    public final String replaceValue(String key, String value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = spread(key);
+        int i = this.slot(keyBytes, hash);
+        int old = this.entryAt(i);
+        assert old != 0 : "Violation of: key is in DOMAIN(this)";
+        String oldValue = this.valueOf(old);
+        this.setSlot(i, this.append(keyBytes,
+                value.getBytes(StandardCharsets.UTF_8)), hash);
+        this.writeHeader();
+        return oldValue;
+    }
+
+    /**
+     * Returns the path of the slot file of {@code this}; the heap file is at
+     * {@code heapPath(path())}.
+     *
+     * @return the path of the slot file
+     */
+    public final Path path() {
+        return this.slotPath;
+    }
+
+    /**
+     * Forces every change to {@code this} out to the storage device.
+     */
+    public final void flush() {
+        this.slots.force();
+        this.heap.force();
+    }
+
+    /**
+     * Flushes {@code this} and closes its files; {@code this} must not be
+     * used afterward, except to be closed again.
+     */
+    @Override
+    public final void close() {
+        try {
+            if (this.slotChannel.isOpen()) {
+                this.flush();
+                this.slotChannel.close();
+                this.heapChannel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pair of a key and value read out of the files.
+     */
+    private static final class SimplePair implements Pair<String, String> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The value.
+         */
+        private final String value;
+
+        /**
+         * Constructor.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        SimplePair(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return this.key;
+        }
+
+        @Override
+        public String value() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code MappedMap}.
+     */
+    private final class MappedMapIterator
+            implements Iterator<Pair<String, String>> {
+
+        /**
+         * Number of elements seen already.
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which to look for the next element.
+         */
+        private int nextSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        MappedMapIterator() {
+            this.numberSeen = 0;
+            this.nextSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < MappedMap.this.size;
+        }
+
+        @Override
+        public Pair<String, String> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            while (MappedMap.this.entryAt(this.nextSlot) == 0) {
+                this.nextSlot++;
+            }
+            int entry = MappedMap.this.entryAt(this.nextSlot);
+            this.nextSlot++;
+            this.numberSeen++;
+            return new SimplePair(MappedMap.this.keyOf(entry),
+                    MappedMap.this.valueOf(entry));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,349 @@
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Map from keys to primitive {@code int} values, for counters and the like,
+ * represented as an open-addressing hash table like {@code Map5}: parallel
+ * arrays of keys and {@code int} values, probed linearly, with backward-shift
+ * removal.
+ *
+ * <p>
+ * Unlike a {@code Map<K, Integer>}, values are never boxed, and
+ * {@code addTo} finds the key once to both read and update its value, so
+ * counting an occurrence is a single probe:
+ *
+ * <pre>
+ * ObjectIntMap&lt;String&gt; counts = new ObjectIntMap&lt;&gt;();
+ * counts.addTo(word, 1);
+ * </pre>
+ *
+ * @param <K>
+ *            type of keys
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and  3 * $this.size <= 2 * |$this.keys|  and
+ * [the non-null entries of $this.keys are distinct]  and
+ * [every non-null key is reachable by probing up (wrapping around) from its
+ *  home slot, SPREAD(key.hashCode()) mod |$this.keys|, through non-null
+ *  slots only]  and
+ * [$this.values[i] = 0 wherever $this.keys[i] = null]  and
+ * $this.size = [number of non-null entries of $this.keys]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (K, integer)
+ *          where (there exists i: integer
+ *                    (0 <= i  and  i < |$this.keys|  and
+ *                     $this.keys[i] = k  and  k /= null  and
+ *                     $this.values[i] = v))}
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class ObjectIntMap<K> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default number of slots.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Keys, or {@code null} in empty slots.
+     */
+    private Object[] keys;
+
+    /**
+     * Values, at the same index as their keys.
+     */
+    private int[] values;
+
+    /**
+     * Number of keys in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Returns the slot where probing for {@code key} starts.
+     *
+     * @param key
+     *            the key
+     * @param capacity
+     *            the number of slots
+     * @return the home slot of key
+     * @requires [capacity is a power of 2]
+     */
+    private static int home(Object key, int capacity) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the number of slots
+     * @requires [capacity is a power of 2]
+     * @ensures this = {}  and  |$this.keys| = capacity
+     */
+    private void createNewRep(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would
+     * be added.
+     *
+     * @param key
+     *            the key
+     * @return the slot for key
+     * @ensures <pre>
+     * ($this.keys[slot] = key)  or
+     * ($this.keys[slot] = null  and  key is not in DOMAIN(this))
+     * </pre>
+     */
+    private int slot(Object key) {
+        int mask = this.keys.length - 1;
+        int i = home(key, this.keys.length);
+        while (this.keys[i] != null && !this.keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Puts {@code key} with value {@code value} into empty slot {@code i},
+     * first growing the table (and finding a new slot) if it is full enough.
+     *
+     * @param i
+     *            the empty slot for key
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @updates this
+     * @requires $this.keys[i] = null and i = slot(key)
+     * @ensures this = #this union {(key, value)}
+     */
+    private void insert(int i, Object key, int value) {
+        int slot = i;
+        if (2 * (long) this.keys.length < 3 * (long) (this.size + 1)) {
+            Object[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+            int oldSize = this.size;
+            this.createNewRep(2 * oldKeys.length);
+            int mask = this.keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != null) {
+                    int k = home(oldKeys[j], this.keys.length);
+                    while (this.keys[k] != null) {
+                        k = (k + 1) & mask;
+                    }
+                    this.keys[k] = oldKeys[j];
+                    this.values[k] = oldValues[j];
+                }
+            }
+            this.size = oldSize;
+            slot = this.slot(key);
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public ObjectIntMap() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /*
+     * Methods ----------------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, treating a missing key
+     * as having value 0, and returns the new value.
+     *
+     * @param key
+     *            the key
+     * @param delta
+     *            the amount to add
+     * @return the new value of key
+     * @updates this
+     * @ensures <pre>
+     * [if key is in DOMAIN(#this) with value v
+     *   then this = (#this \ {(key, v)}) union {(key, v + delta)}
+     *   else this = #this union {(key, delta)}]  and
+     * addTo = [the value of key in this]
+     * </pre>
+     */
+    public int addTo(K key, int delta) {
+        assert key != null : "Violation of: key is not null";
+        int i = this.slot(key);
+        int result = delta;
+        if (this.keys[i] != null) {
+            result = this.values[i] + delta;
+            this.values[i] = result;
+        } else {
+            this.insert(i, key, delta);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the value of {@code key} to {@code value}, adding {@code key} if it
+     * is not in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @updates this
+     * @ensures <pre>
+     * this = {(k, v) in #this where k /= key} union {(key, value)}
+     * </pre>
+     */
+    public void put(K key, int value) {
+        assert key != null : "Violation of: key is not null";
+        int i = this.slot(key);
+        if (this.keys[i] != null) {
+            this.values[i] = value;
+        } else {
+            this.insert(i, key, value);
+        }
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code defaultValue} if
+     * {@code key} is not in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @param defaultValue
+     *            the value to report for a missing key
+     * @return the value of key, or defaultValue
+     * @ensures <pre>
+     * [if key is in DOMAIN(this) then getOrDefault = [the value of key]
+     *  else getOrDefault = defaultValue]
+     * </pre>
+     */
+    public int getOrDefault(K key, int defaultValue) {
+        assert key != null : "Violation of: key is not null";
+        int i = this.slot(key);
+        int result = defaultValue;
+        if (this.keys[i] != null) {
+            result = this.values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code key} is in {@code this}.
+     *
+     * @param key
+     *            the key
+     * @return true iff key is in DOMAIN(this)
+     * @ensures hasKey = (key is in DOMAIN(this))
+     */
+    public boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+        return this.keys[this.slot(key)] != null;
+    }
+
+    /**
+     * Removes {@code key} and returns its value.
+     *
+     * @param key
+     *            the key to remove
+     * @return the value key had
+     * @updates this
+     * @requires key is in DOMAIN(this)
+     * @ensures <pre>
+     * (key, remove) is in #this  and  this = #this \ {(key, remove)}
+     * </pre>
+     */
+    public int remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        int mask = this.keys.length - 1;
+        int hole = this.slot(key);
+        int removed = this.values[hole];
+        int j = (hole + 1) & mask;
+        while (this.keys[j] != null) {
+            int h = home(this.keys[j], this.keys.length);
+            if (((j - h) & mask) >= ((j - hole) & mask)) {
+                this.keys[hole] = this.keys[j];
+                this.values[hole] = this.values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.keys[hole] = null;
+        this.values[hole] = 0;
+        this.size--;
+        return removed;
+    }
+
+    /**
+     * Reports the number of keys in {@code this}.
+     *
+     * @return |this|
+     * @ensures size = |this|
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes every key from {@code this}.
+     *
+     * @clears this
+     */
+    public void clear() {
+        this.createNewRep(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Calls {@code action} on each key of {@code this} and its value, in no
+     * particular order. {@code action} must not change {@code this}.
+     *
+     * @param action
+     *            the action to run on each (key, value) pair
+     * @ensures [action has been called once on each pair in this]
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        assert action != null : "Violation of: action is not null";
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null) {
+                /*
+                 * Only K keys are ever stored, so this cast cannot fail.
+                 */
+                action.accept((K) this.keys[i], this.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("{");
+        this.forEach((key, value) -> {
+            if (s.length() > 1) {
+                s.append(',');
+            }
+            s.append('(').append(key).append(',').append(value).append(')');
+        });
+        return s.append('}').toString();
+    }
+
+}
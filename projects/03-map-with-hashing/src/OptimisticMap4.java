@@ -0,0 +1,697 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as a hash table of chained buckets, as in
+ * {@code Map4}, for read-mostly use by several threads at once. Readers never
+ * block.
+ *
+ * <p>
+ * Each bucket is an immutable linked list of entries, and the table is
+ * published through a {@code volatile} field. {@code value}, {@code hasKey},
+ * {@code valueOrDefault}, and iteration read the current table and follow
+ * the chain of one bucket, taking no lock and writing nothing shared. A
+ * writer builds the new chain for its bucket (copying only the entries in
+ * front of the one it changes) and installs it with a compare-and-set,
+ * retrying if another writer got there first. Writers share a
+ * {@code StampedLock} in read mode, so they run in parallel; it is taken
+ * exclusively only to replace the whole table, when growing (at three
+ * quarters full) or clearing. Readers still holding the old table see it
+ * as it was just before the swap.
+ *
+ * <p>
+ * As with {@code ConcurrentMap4}, each kernel method is atomic, but a
+ * sequence of them is not; use {@code valueOrDefault}, {@code compute},
+ * {@code merge}, or {@code replaceValue} for lookups of keys that may be
+ * missing and for read-modify-write updates. Iterators are weakly
+ * consistent: they walk the table as it was when they were created, and see
+ * each bucket as it was when they reached it.
+ *
+ * <p>
+ * Unlike {@code Map4}, buckets are never turned into trees, since a chain
+ * must stay immutable for readers to follow it without a lock. Keys whose
+ * hash codes are equal (or equal mod the table size) share one chain, and
+ * growing the table cannot separate those with equal hash codes, so in the
+ * worst case every operation on such keys takes time linear in their
+ * number. Use {@code ConcurrentMap4} when keys may collide on purpose.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * |$this.table| > 0  and
+ * for all i: integer, n: Node
+ *     where (0 <= i  and  i < |$this.table|  and
+ *            [n is in the chain starting at $this.table[i]])
+ *   ([computed result of n.key.hashCode()] mod |$this.table| = i)  and
+ * [the keys in the chains of $this.table are distinct]  and
+ * [nodes are never changed once they are reachable from $this.table]  and
+ * [$this.table is only replaced while $this.resizeLock is write-locked, and
+ *  its entries are only changed while it is read-locked]  and
+ * [when no method is running, $this.size.sum() = number of nodes in the
+ *  chains of $this.table]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (K, V)
+ *          where (there exists i: integer, n: Node
+ *                    (0 <= i  and  i < |$this.table|  and
+ *                     [n is in the chain starting at $this.table[i]]  and
+ *                     n.key = k  and  n.value = v))}
+ * </pre>
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class OptimisticMap4<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default size of hash table.
+     */
+    private static final int DEFAULT_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Ratio of size to number of buckets above which the table grows.
+     */
+    private static final double LOAD_FACTOR = 0.75;
+
+    /**
+     * Taken in read mode by writers changing one bucket, and in write mode to
+     * replace the table.
+     */
+    private final StampedLock resizeLock;
+
+    /**
+     * Total size of abstract {@code this}.
+     */
+    private final LongAdder size;
+
+    /**
+     * Buckets for hashing: the first node of each chain, or {@code null} for
+     * an empty bucket.
+     */
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+
+    /**
+     * Computes {@code a} mod {@code b} as % should have been defined to work.
+     *
+     * @param a
+     *            the number being reduced
+     * @param b
+     *            the modulus
+     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
+     * @requires b > 0
+     * @ensures <pre>
+     * 0 <= mod  and  mod < b  and
+     * there exists k: integer (a = k * b + mod)
+     * </pre>
+     */
+    private static int mod(int a, int b) {
+        assert b > 0 : "Violation of: b > 0";
+        int ans = a % b;
+        if (ans < 0) {
+            ans += b;
+        }
+        return ans;
+    }
+
+    /**
+     * Returns the node for {@code key} in the chain starting at {@code first},
+     * or {@code null} if there is none.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param first
+     *            the first node of the chain, or null
+     * @param key
+     *            the key
+     * @return the node with key, or null
+     */
+    private static <K, V> Node<K, V> find(Node<K, V> first, Object key) {
+        Node<K, V> n = first;
+        while (n != null && !n.key.equals(key)) {
+            n = n.next;
+        }
+        return n;
+    }
+
+    /**
+     * Returns a chain with the entries of the chain starting at {@code first},
+     * except that {@code target} is left out, or replaced by a node with
+     * value {@code value} if that is not {@code null}. The nodes after
+     * {@code target} are shared, not copied; those in front of it are
+     * collected on a stack and copied from the back, so a long chain of
+     * colliding keys cannot overflow the call stack.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param first
+     *            the first node of the chain
+     * @param target
+     *            the node to replace or leave out
+     * @param value
+     *            the new value for target's key, or null to leave it out
+     * @return the first node of the new chain, or null if it is empty
+     * @requires [target is in the chain starting at first]
+     */
+    private static <K, V> Node<K, V> rebuilt(Node<K, V> first,
+            Node<K, V> target, V value) {
+        Deque<Node<K, V>> prefix = new ArrayDeque<>();
+        for (Node<K, V> n = first; n != target; n = n.next) {
+            prefix.push(n);
+        }
+        Node<K, V> result = target.next;
+        if (value != null) {
+            result = new Node<>(target.key, value, result);
+        }
+        while (!prefix.isEmpty()) {
+            Node<K, V> n = prefix.pop();
+            result = new Node<>(n.key, n.value, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a table of {@code size} empty buckets.
+     *
+     * @param <K>
+     *            type of keys
+     * @param <V>
+     *            type of values
+     * @param size
+     *            the number of buckets
+     * @return the new table
+     * @requires size > 0
+     */
+    private static <K, V> AtomicReferenceArray<Node<K, V>> newTable(
+            int size) {
+        return new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Replaces the value of {@code key} in the current table with
+     * {@code remapping.apply(key, old)}, where {@code old} is its current
+     * value or {@code null} if it has none, as one atomic step; a
+     * {@code null} result removes {@code key}. Returns the node {@code key}
+     * had before. {@code remapping} may run more than once if other writers
+     * change the same bucket at the same time.
+     *
+     * @param key
+     *            the key
+     * @param remapping
+     *            computes the new value from the key and the old value
+     * @return the node of key in #this, or null if it had none
+     * @updates this
+     */
+    private Node<K, V> update(K key,
+            BiFunction<? super K, ? super V, ? extends V> remapping) {
+        Node<K, V> found;
+        boolean added = false;
+        long stamp = this.resizeLock.readLock();
+        try {
+            AtomicReferenceArray<Node<K, V>> buckets = this.table;
+            int index = mod(key.hashCode(), buckets.length());
+            boolean done = false;
+            do {
+                Node<K, V> first = buckets.get(index);
+                found = find(first, key);
+                V old = null;
+                if (found != null) {
+                    old = found.value;
+                }
+                V value = remapping.apply(key, old);
+                Node<K, V> updated = first;
+                if (found != null) {
+                    updated = rebuilt(first, found, value);
+                } else if (value != null) {
+                    updated = new Node<>(key, value, first);
+                }
+                done = updated == first
+                        || buckets.compareAndSet(index, first, updated);
+                if (done && found == null && value != null) {
+                    this.size.increment();
+                    added = true;
+                } else if (done && found != null && value == null) {
+                    this.size.decrement();
+                }
+            } while (!done);
+        } finally {
+            this.resizeLock.unlockRead(stamp);
+        }
+        if (added) {
+            this.growIfNeeded();
+        }
+        return found;
+    }
+
+    /**
+     * Grows the table to {@code 2 * n + 1} buckets if the size has passed the
+     * load factor.
+     *
+     * @updates this
+     * @requires [the current thread does not hold this.resizeLock]
+     */
+    private void growIfNeeded() {
+        if (this.size.sum() > LOAD_FACTOR * this.table.length()) {
+            long stamp = this.resizeLock.writeLock();
+            try {
+                AtomicReferenceArray<Node<K, V>> oldTable = this.table;
+                if (this.size.sum() > LOAD_FACTOR * oldTable.length()) {
+                    AtomicReferenceArray<Node<K, V>> buckets = newTable(
+                            2 * oldTable.length() + 1);
+                    for (int i = 0; i < oldTable.length(); i++) {
+                        for (Node<K, V> n = oldTable.get(i); n != null;
+                                n = n.next) {
+                            int index = mod(n.key.hashCode(),
+                                    buckets.length());
+                            buckets.set(index, new Node<>(n.key, n.value,
+                                    buckets.get(index)));
+                        }
+                    }
+                    this.table = buckets;
+                }
+            } finally {
+                this.resizeLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public OptimisticMap4() {
+        this(DEFAULT_HASH_TABLE_SIZE);
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize}.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @requires hashTableSize > 0
+     * @ensures this = {}
+     */
+    public OptimisticMap4(int hashTableSize) {
+        assert hashTableSize > 0 : "Need to be bigger than 0";
+        this.resizeLock = new StampedLock();
+        this.size = new LongAdder();
+        this.table = newTable(hashTableSize);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        long stamp = this.resizeLock.writeLock();
+        try {
+            this.table = newTable(DEFAULT_HASH_TABLE_SIZE);
+            this.size.reset();
+        } finally {
+            this.resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * No other thread may be using {@code source} during this call.
+     */
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof OptimisticMap4<?, ?> : ""
+                + "Violation of: source is of dynamic type OptimisticMap4<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * OptimisticMap4<?,?>, and the ?,? must be K,V or the call would not
+         * have compiled.
+         */
+        OptimisticMap4<K, V> localSource = (OptimisticMap4<K, V>) source;
+        long stamp = this.resizeLock.writeLock();
+        try {
+            this.table = localSource.table;
+            this.size.reset();
+            this.size.add(localSource.size.sum());
+            localSource.table = newTable(DEFAULT_HASH_TABLE_SIZE);
+            localSource.size.reset();
+        } finally {
+            this.resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        this.update(key, (k, old) -> {
+            assert old == null : "Violation of: key is not in DOMAIN(this)";
+            return value;
+        });
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        Node<K, V> removed = this.update(key, (k, old) -> {
+            assert old != null : "Violation of: key is in DOMAIN(this)";
+            return null;
+        });
+        if (removed == null) {
+            /*
+             * Another thread removed key after the caller checked for it.
+             */
+            throw new NoSuchElementException();
+        }
+        return removed;
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+        Node<K, V> removed = null;
+        long stamp = this.resizeLock.readLock();
+        try {
+            AtomicReferenceArray<Node<K, V>> buckets = this.table;
+            int i = 0;
+            while (i < buckets.length() && removed == null) {
+                Node<K, V> first = buckets.get(i);
+                if (first == null) {
+                    i++;
+                } else if (buckets.compareAndSet(i, first, first.next)) {
+                    removed = first;
+                    this.size.decrement();
+                }
+            }
+        } finally {
+            this.resizeLock.unlockRead(stamp);
+        }
+        if (removed == null) {
+            /*
+             * Another thread emptied the map after the assert above.
+             */
+            throw new NoSuchElementException();
+        }
+        return removed;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        AtomicReferenceArray<Node<K, V>> buckets = this.table;
+        Node<K, V> n = find(buckets.get(mod(key.hashCode(), buckets.length())),
+                key);
+        assert n != null : "Violation of: key is in DOMAIN(this)";
+        return n.value;
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+        AtomicReferenceArray<Node<K, V>> buckets = this.table;
+        return find(buckets.get(mod(key.hashCode(), buckets.length())),
+                key) != null;
+    }
+
+    @Override
+    public final int size() {
+        return (int) this.size.sum();
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new OptimisticMap4Iterator();
+    }
+
+    /*
+     * Atomic secondary methods -----------------------------------------------
+     */
+
+    @Override
+    public final V replaceValue(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        Node<K, V> old = this.update(key, (k, v) -> {
+            assert v != null : "Violation of: key is in DOMAIN(this)";
+            V result = null;
+            if (v != null) {
+                result = value;
+            }
+            return result;
+        });
+        if (old == null) {
+            /*
+             * Another thread removed key after the caller checked for it.
+             */
+            throw new NoSuchElementException();
+        }
+        return old.value;
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code defaultValue} if
+     * {@code key} is not in {@code this}, as one atomic step, without
+     * blocking.
+     *
+     * @param key
+     *            the key
+     * @param defaultValue
+     *            the value to report for a missing key
+     * @return the value of key, or defaultValue
+     * @ensures <pre>
+     * [if key is in DOMAIN(this) then valueOrDefault = [the value of key]
+     *  else valueOrDefault = defaultValue]
+     * </pre>
+     */
+    public final V valueOrDefault(K key, V defaultValue) {
+        assert key != null : "Violation of: key is not null";
+        AtomicReferenceArray<Node<K, V>> buckets = this.table;
+        Node<K, V> n = find(buckets.get(mod(key.hashCode(), buckets.length())),
+                key);
+        V result = defaultValue;
+        if (n != null) {
+            result = n.value;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the value of {@code key} with
+     * {@code remapping.apply(key, old)}, where {@code old} is its current
+     * value or {@code null} if it has none, as one atomic step. A
+     * {@code null} result removes {@code key}. {@code remapping} may run more
+     * than once when writers race on the same bucket, so it should be short,
+     * free of side effects, and must not use {@code this}.
+     *
+     * @param key
+     *            the key
+     * @param remapping
+     *            computes the new value from the key and the old value
+     * @return the new value of key, or null if key is now absent
+     * @updates this
+     * @ensures <pre>
+     * [compute = remapping(key, [value of key in #this, or null])]  and
+     * this = {(k, v) in #this where k /= key} union
+     *        [if compute /= null then {(key, compute)} else {}]
+     * </pre>
+     */
+    public final V compute(K key,
+            BiFunction<? super K, ? super V, ? extends V> remapping) {
+        assert key != null : "Violation of: key is not null";
+        assert remapping != null : "Violation of: remapping is not null";
+        AtomicReference<V> result = new AtomicReference<>();
+        this.update(key, (k, old) -> {
+            V value = remapping.apply(k, old);
+            result.set(value);
+            return value;
+        });
+        return result.get();
+    }
+
+    /**
+     * Adds {@code key} with value {@code value} if {@code key} is not in
+     * {@code this}, and otherwise replaces its value {@code old} with
+     * {@code remapping.apply(old, value)}, removing {@code key} if that is
+     * {@code null}; all as one atomic step. As with {@code compute},
+     * {@code remapping} may run more than once.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value to add, or to combine with the old value
+     * @param remapping
+     *            combines the old value with value
+     * @return the new value of key, or null if key is now absent
+     * @updates this
+     * @ensures <pre>
+     * [merge = if key is in DOMAIN(#this) with value old
+     *          then remapping(old, value) else value]  and
+     * this = {(k, v) in #this where k /= key} union
+     *        [if merge /= null then {(key, merge)} else {}]
+     * </pre>
+     */
+    public final V merge(K key, V value,
+            BiFunction<? super V, ? super V, ? extends V> remapping) {
+        assert value != null : "Violation of: value is not null";
+        assert remapping != null : "Violation of: remapping is not null";
+        return this.compute(key, (k, old) -> {
+            V result = value;
+            if (old != null) {
+                result = remapping.apply(old, value);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Immutable entry in a bucket chain; also the {@code Pair} handed out for
+     * it.
+     *
+     * @param <K>
+     *            type of key
+     * @param <V>
+     *            type of value
+     */
+    private static final class Node<K, V> implements Pair<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * The next node in the chain, or {@code null}.
+         */
+        private final Node<K, V> next;
+
+        /**
+         * Constructor.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         * @param next
+         *            the next node in the chain, or null
+         */
+        Node(K key, V value, Node<K, V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public K key() {
+            return this.key;
+        }
+
+        @Override
+        public V value() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * Weakly consistent, non-blocking implementation of {@code Iterator}
+     * interface for {@code OptimisticMap4}.
+     */
+    private final class OptimisticMap4Iterator
+            implements Iterator<Pair<K, V>> {
+
+        /**
+         * Table being iterated over.
+         */
+        private final AtomicReferenceArray<Node<K, V>> buckets;
+
+        /**
+         * Bucket to read after the current chain.
+         */
+        private int nextBucket;
+
+        /**
+         * Next node to return, or {@code null} if the current chain is done.
+         */
+        private Node<K, V> next;
+
+        /**
+         * No-argument constructor.
+         */
+        OptimisticMap4Iterator() {
+            this.buckets = OptimisticMap4.this.table;
+            this.nextBucket = 0;
+            this.next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.next == null
+                    && this.nextBucket < this.buckets.length()) {
+                this.next = this.buckets.get(this.nextBucket);
+                this.nextBucket++;
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> result = this.next;
+            this.next = result.next;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
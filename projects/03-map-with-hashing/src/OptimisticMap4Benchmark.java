@@ -0,0 +1,148 @@
+import components.map.Map;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the throughput of {@code OptimisticMap4} on a read-mostly workload
+ * with 1, 2, 4, 8, and 16 threads, against {@code ConcurrentMap4} and a
+ * {@code Map4} shared behind a single lock. The map starts with a fixed key
+ * set; each thread then looks up random keys, and updates the value of one
+ * in a small fraction of its operations. Since readers of
+ * {@code OptimisticMap4} never block or write shared memory, its read
+ * throughput should grow with the number of cores, up to the number of
+ * threads.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public final class OptimisticMap4Benchmark {
+
+    /**
+     * Number of distinct keys.
+     */
+    private static final int KEYS = 100_000;
+
+    /**
+     * Operations per thread in each measurement.
+     */
+    private static final int OPERATIONS = 500_000;
+
+    /**
+     * Percentage of operations that update a value; the rest look one up.
+     */
+    private static final int UPDATE_PERCENT = 5;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private OptimisticMap4Benchmark() {
+    }
+
+    /**
+     * Returns versions on a new {@code OptimisticMap4} holding version 0 of
+     * every key: an update sets the version of its key, and a read returns
+     * it.
+     *
+     * @return the versions
+     */
+    private static MapThroughput.SharedMap optimistic() {
+        OptimisticMap4<Integer, Integer> map = new OptimisticMap4<>();
+        for (int k = 0; k < KEYS; k++) {
+            map.add(k, 0);
+        }
+        return new MapThroughput.SharedMap() {
+            @Override
+            public void update(Integer key, int i) {
+                map.replaceValue(key, i);
+            }
+
+            @Override
+            public int read(Integer key) {
+                return map.valueOrDefault(key, -1);
+            }
+        };
+    }
+
+    /**
+     * Returns versions on a new {@code ConcurrentMap4} holding version 0 of
+     * every key: an update sets the version of its key, and a read returns
+     * it.
+     *
+     * @return the versions
+     */
+    private static MapThroughput.SharedMap striped() {
+        ConcurrentMap4<Integer, Integer> map = new ConcurrentMap4<>();
+        for (int k = 0; k < KEYS; k++) {
+            map.add(k, 0);
+        }
+        return new MapThroughput.SharedMap() {
+            @Override
+            public void update(Integer key, int i) {
+                map.replaceValue(key, i);
+            }
+
+            @Override
+            public int read(Integer key) {
+                return map.valueOrDefault(key, -1);
+            }
+        };
+    }
+
+    /**
+     * Returns versions on a new {@code Map4} guarded by one lock, holding
+     * version 0 of every key: an update sets the version of its key, and a
+     * read returns it.
+     *
+     * @return the versions
+     */
+    private static MapThroughput.SharedMap singleLock() {
+        Map<Integer, Integer> map = new Map4<>();
+        for (int k = 0; k < KEYS; k++) {
+            map.add(k, 0);
+        }
+        return new MapThroughput.SharedMap() {
+            @Override
+            public synchronized void update(Integer key, int i) {
+                map.replaceValue(key, i);
+            }
+
+            @Override
+            public synchronized int read(Integer key) {
+                int result = -1;
+                if (map.hasKey(key)) {
+                    result = map.value(key);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws Exception
+     *             if a benchmark thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        MapThroughput workload = new MapThroughput(KEYS, OPERATIONS,
+                UPDATE_PERCENT);
+        SimpleWriter out = new SimpleWriter1L();
+        out.println("threads\tOptimisticMap4\tConcurrentMap4\tlocked Map4"
+                + " (ops/ms)");
+        for (int threads : MapThroughput.THREADS) {
+            double optimistic = workload.throughput(
+                    OptimisticMap4Benchmark::optimistic, threads);
+            double striped = workload.throughput(
+                    OptimisticMap4Benchmark::striped, threads);
+            double locked = workload.throughput(
+                    OptimisticMap4Benchmark::singleLock, threads);
+            out.println(threads + "\t" + String.format("%.0f", optimistic)
+                    + "\t" + String.format("%.0f", striped) + "\t"
+                    + String.format("%.0f", locked));
+        }
+        out.close();
+    }
+
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code ConcurrentMap4} using default
+ * constructor, with multi-threaded stress tests.
+ */
+public class ConcurrentMap4Test extends ConcurrentMapTest {
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new ConcurrentMap4<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests that threads adding and removing disjoint keys at once, through
+     * several rounds of growth, leave exactly the keys they kept.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentAddRemoveTest() throws Exception {
+        ConcurrentMap4<String, String> map = new ConcurrentMap4<>(1, 4);
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                String key = thread + ":" + i;
+                map.add(key, key);
+                if (i % 2 == 1) {
+                    assertEquals(key, map.remove(key).value());
+                }
+            }
+        });
+        assertEquals(THREADS * OPERATIONS / 2, map.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < OPERATIONS; i++) {
+                String key = t + ":" + i;
+                assertEquals(i % 2 == 0, map.hasKey(key));
+            }
+        }
+        int seen = 0;
+        for (Map.Pair<String, String> p : map) {
+            assertEquals(p.key(), p.value());
+            seen++;
+        }
+        assertEquals(THREADS * OPERATIONS / 2, seen);
+    }
+
+    /**
+     * Tests that merge counts every increment when threads update the same
+     * few keys at once.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentMergeTest() throws Exception {
+        ConcurrentMap4<String, Integer> counts = new ConcurrentMap4<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                counts.merge("k" + i % SHARED_KEYS, 1, Integer::sum);
+            }
+        });
+        assertEquals(SHARED_KEYS, counts.size());
+        for (int k = 0; k < SHARED_KEYS; k++) {
+            assertEquals(THREADS * OPERATIONS / SHARED_KEYS,
+                    (int) counts.value("k" + k));
+        }
+    }
+
+    /**
+     * Tests that exactly one thread wins addIfAbsent for each key.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentAddIfAbsentTest() throws Exception {
+        ConcurrentMap4<String, Integer> owners = new ConcurrentMap4<>();
+        ConcurrentMap4<Integer, Integer> wins = new ConcurrentMap4<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (owners.addIfAbsent("k" + i, thread)) {
+                    wins.merge(thread, 1, Integer::sum);
+                }
+            }
+        });
+        int total = 0;
+        for (Map.Pair<Integer, Integer> p : wins) {
+            total += p.value();
+        }
+        assertEquals(OPERATIONS, total);
+        assertEquals(OPERATIONS, owners.size());
+    }
+
+    /**
+     * Tests compute adding, updating, and removing a key.
+     */
+    @Test
+    public void computeTest() {
+        ConcurrentMap4<String, String> map = new ConcurrentMap4<>();
+        assertEquals("a", map.compute("k", (k, old) -> "a"));
+        assertEquals("ab", map.compute("k", (k, old) -> old + "b"));
+        assertEquals("ab", map.value("k"));
+        assertEquals(null, map.compute("k", (k, old) -> null));
+        assertEquals(0, map.size());
+        assertEquals(false, map.hasKey("k"));
+    }
+
+
+    /**
+     * Tests that threads draining the map with removeAny at once each get a
+     * different entry, and together get all of them.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentRemoveAnyTest() throws Exception {
+        ConcurrentMap4<String, String> map = new ConcurrentMap4<>();
+        for (int i = 0; i < THREADS * OPERATIONS; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        Set<String> removed = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                assertEquals(true, removed.add(map.removeAny().key()));
+            }
+        });
+        assertEquals(0, map.size());
+        assertEquals(THREADS * OPERATIONS, removed.size());
+    }
+
+    /**
+     * Tests that removeAny still finds entries added before the bucket where
+     * it last found one.
+     */
+    @Test
+    public void removeAnyWrapsAroundTest() {
+        final int n = 1000;
+        ConcurrentMap4<String, String> map = new ConcurrentMap4<>();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < n; i++) {
+            map.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        for (int i = 0; i < n / 2; i++) {
+            expMap.remove(map.removeAny().key());
+        }
+        for (int i = n; i < 2 * n; i++) {
+            map.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        while (expMap.size() > 0) {
+            Map.Pair<String, String> p = map.removeAny();
+            assertEquals(p.value(), expMap.remove(p.key()).value());
+        }
+        assertEquals(0, map.size());
+    }
+
+}
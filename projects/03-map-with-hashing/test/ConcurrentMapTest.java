@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * JUnit test fixture for {@code Map<String, String>} implementations that are
+ * safe for use by several threads at once: the kernel tests of
+ * {@code MapTest}, plus the sizes of and a driver for multi-threaded stress
+ * tests.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public abstract class ConcurrentMapTest extends MapTest {
+
+    /**
+     * Number of threads in the stress tests.
+     */
+    protected static final int THREADS = 8;
+
+    /**
+     * Number of operations per thread in the stress tests.
+     */
+    protected static final int OPERATIONS = 20_000;
+
+    /**
+     * Number of distinct shared keys in the counting stress tests.
+     */
+    protected static final int SHARED_KEYS = 50;
+
+    /**
+     * Runs {@code task} on {@code THREADS} threads at once, passing each its
+     * thread number, and waits for all of them, rethrowing any failure.
+     *
+     * @param task
+     *            the task to run
+     * @throws Exception
+     *             if a thread failed
+     */
+    protected static void runConcurrently(IntConsumer task)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            done.add(pool.submit(() -> {
+                start.await();
+                task.accept(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
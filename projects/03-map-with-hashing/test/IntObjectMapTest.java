@@ -0,0 +1,101 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code IntObjectMap}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class IntObjectMapTest {
+
+    /**
+     * Number of keys for the growth tests.
+     */
+    private static final int MANY = 3000;
+
+    /**
+     * Tests that a new map is empty.
+     */
+    @Test
+    public void testConstructor() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        assertEquals(0, m.size());
+        assertEquals(false, m.hasKey(0));
+        assertNull(m.get(0));
+        assertEquals("none", m.getOrDefault(0, "none"));
+    }
+
+    /**
+     * Tests put on new and existing keys, including 0 and negative keys.
+     */
+    @Test
+    public void testPut() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        assertNull(m.put(0, "zero"));
+        assertNull(m.put(-1, "minus one"));
+        assertEquals("zero", m.put(0, "nought"));
+        assertEquals(2, m.size());
+        assertEquals("nought", m.get(0));
+        assertEquals("minus one", m.get(-1));
+        assertEquals(false, m.hasKey(1));
+    }
+
+    /**
+     * Tests many consecutive keys through several rounds of growth, then
+     * removing every third one.
+     */
+    @Test
+    public void testManyThenRemove() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        for (int i = 0; i < MANY; i++) {
+            m.put(i, "v" + i);
+        }
+        assertEquals(MANY, m.size());
+        for (int i = 0; i < MANY; i += 3) {
+            assertEquals("v" + i, m.remove(i));
+        }
+        assertEquals(MANY - MANY / 3, m.size());
+        for (int i = 0; i < MANY; i++) {
+            if (i % 3 == 0) {
+                assertEquals(false, m.hasKey(i));
+            } else {
+                assertEquals("v" + i, m.get(i));
+            }
+        }
+    }
+
+    /**
+     * Tests that forEach visits each pair once.
+     */
+    @Test
+    public void testForEach() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        final int seven = 7;
+        m.put(1, "a");
+        m.put(seven, "b");
+        int[] sum = { 0 };
+        StringBuilder values = new StringBuilder();
+        m.forEach((value, key) -> {
+            sum[0] += key;
+            values.append(value);
+        });
+        assertEquals(seven + 1, sum[0]);
+        assertEquals(2, values.length());
+    }
+
+    /**
+     * Tests that clear empties the map.
+     */
+    @Test
+    public void testClear() {
+        IntObjectMap<String> m = new IntObjectMap<>();
+        m.put(1, "a");
+        m.clear();
+        assertEquals(0, m.size());
+        assertEquals(false, m.hasKey(1));
+    }
+
+}
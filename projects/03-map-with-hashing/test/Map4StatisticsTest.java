@@ -0,0 +1,232 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for the statistics of {@code Map4}.
+ */
+public class Map4StatisticsTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 7;
+
+    /**
+     * Number of entries in the tests.
+     */
+    private static final int ENTRIES = 5;
+
+    /**
+     * Tolerance for comparing averages.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Tests the histogram of a map whose keys all share one bucket.
+     */
+    @Test
+    public void histogramOneBucketTest() {
+        Map4<String, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, 1.0,
+                h -> 0);
+        for (int i = 0; i < ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        Map4Statistics stats = map.statistics();
+        assertEquals(ENTRIES, stats.size());
+        assertEquals(TEST_HASH_TABLE_SIZE, stats.bucketCount());
+        assertEquals(ENTRIES, stats.maxChainLength());
+        int[] expected = new int[ENTRIES + 1];
+        expected[0] = TEST_HASH_TABLE_SIZE - 1;
+        expected[ENTRIES] = 1;
+        assertArrayEquals(expected, stats.histogram());
+        assertEquals(0, stats.rehashCount());
+    }
+
+    /**
+     * Tests that lookups are counted only while statistics are enabled, and
+     * that their probes are the lengths of the buckets looked in.
+     */
+    @Test
+    public void averageProbesTest() {
+        Map4<String, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, 1.0,
+                h -> 0);
+        for (int i = 0; i < ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        map.hasKey("k0");
+        assertEquals(0, map.statistics().lookups());
+        map.setStatisticsEnabled(true);
+        map.hasKey("k0");
+        map.value("k1");
+        map.hasKey("missing");
+        map.setStatisticsEnabled(false);
+        map.hasKey("k0");
+        Map4Statistics stats = map.statistics();
+        assertEquals(3, stats.lookups());
+        assertEquals(ENTRIES, stats.averageProbes(), EPSILON);
+    }
+
+    /**
+     * Tests that the contract checks of add and remove are not counted as
+     * lookups.
+     */
+    @Test
+    public void addRemoveNotCountedTest() {
+        Map4<String, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, 1.0,
+                h -> 0);
+        map.setStatisticsEnabled(true);
+        for (int i = 0; i < ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        map.remove("k0");
+        Map4Statistics stats = map.statistics();
+        assertEquals(0, stats.lookups());
+        assertEquals(0, stats.averageProbes(), EPSILON);
+    }
+
+    /**
+     * Tests that each growth of the table is counted, and that buckets of
+     * a table still being rehashed are included.
+     */
+    @Test
+    public void rehashCountTest() {
+        Map4<String, String> map = new Map4<>(1, 1.0);
+        map.add("a", "1");
+        assertEquals(0, map.statistics().rehashCount());
+        map.add("b", "2");
+        Map4Statistics stats = map.statistics();
+        assertEquals(1, stats.rehashCount());
+        int total = 0;
+        int[] histogram = stats.histogram();
+        for (int n = 0; n < histogram.length; n++) {
+            total += n * histogram[n];
+        }
+        assertEquals(2, total);
+    }
+
+    /**
+     * Tests reading the statistics through the registered MXBean, which
+     * reports the latest snapshot published by the owning thread.
+     *
+     * @throws JMException
+     *             if registration or a JMX call fails
+     */
+    @Test
+    public void mbeanTest() throws JMException {
+        Map4<String, String> map = new Map4<>(TEST_HASH_TABLE_SIZE, 1.0,
+                h -> 0);
+        for (int i = 0; i < ENTRIES; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = map.registerStatisticsMBean("mbeanTest");
+        try {
+            assertEquals(ENTRIES, server.getAttribute(name, "Size"));
+            assertEquals(ENTRIES, server.getAttribute(name, "MaxChainLength"));
+            server.setAttribute(name,
+                    new Attribute("StatisticsEnabled", true));
+            assertEquals(true, map.isStatisticsEnabled());
+            map.hasKey("k0");
+            map.add("extra", "v");
+            assertEquals(0L, server.getAttribute(name, "Lookups"));
+            assertEquals(ENTRIES, server.getAttribute(name, "Size"));
+            map.statistics();
+            assertEquals(1L, server.getAttribute(name, "Lookups"));
+            assertEquals(ENTRIES + 1, server.getAttribute(name, "Size"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Tests that growth of the table publishes a new snapshot to the MXBean.
+     *
+     * @throws JMException
+     *             if registration or a JMX call fails
+     */
+    @Test
+    public void mbeanGrowthTest() throws JMException {
+        Map4<String, String> map = new Map4<>(1, 1.0);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = map.registerStatisticsMBean("mbeanGrowthTest");
+        try {
+            assertEquals(0, server.getAttribute(name, "RehashCount"));
+            map.add("a", "1");
+            map.add("b", "2");
+            assertEquals(1, server.getAttribute(name, "RehashCount"));
+            assertEquals(2, server.getAttribute(name, "Size"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+
+    /**
+     * Tests that the histogram stays consistent with the size and the number
+     * of buckets through growth and removals.
+     */
+    @Test
+    public void histogramAfterGrowthAndRemovesTest() {
+        final int n = 1000;
+        Map4<Integer, Integer> map = new Map4<>(TEST_HASH_TABLE_SIZE, 1.0);
+        for (int i = 0; i < n; i++) {
+            map.add(i, i);
+        }
+        for (int i = 0; i < n; i += 2) {
+            map.remove(i);
+        }
+        map.removeAny();
+        Map4Statistics stats = map.statistics();
+        int[] histogram = stats.histogram();
+        int buckets = 0;
+        int entries = 0;
+        for (int length = 0; length < histogram.length; length++) {
+            buckets += histogram[length];
+            entries += length * histogram[length];
+        }
+        assertEquals(stats.bucketCount(), buckets);
+        assertEquals(map.size(), entries);
+        assertEquals(map.size(), stats.size());
+        assertTrue(histogram[histogram.length - 1] > 0);
+    }
+
+    /**
+     * Tests that the MXBean sees lookups without a call of statistics or
+     * growth of the table.
+     *
+     * @throws JMException
+     *             if registration or a JMX call fails
+     */
+    @Test
+    public void mbeanLookupCadenceTest() throws JMException {
+        final int lookups = 5000;
+        Map4<String, String> map = new Map4<>();
+        map.add("a", "1");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = map
+                .registerStatisticsMBean("mbeanLookupCadenceTest");
+        try {
+            map.setStatisticsEnabled(true);
+            for (int i = 0; i < lookups; i++) {
+                map.hasKey("a");
+            }
+            long seen = (Long) server.getAttribute(name, "Lookups");
+            assertTrue(seen > 0);
+            assertTrue(seen <= lookups);
+            assertEquals(0, server.getAttribute(name, "RehashCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+}
@@ -1,3 +1,7 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
 import components.map.Map;
 import components.map.Map1L;
 
@@ -12,6 +16,12 @@ public class Map4Test1009 extends MapTest {
      */
     private static final int TEST_HASH_TABLE_SIZE = 1009;
 
+    /**
+     * Number of entries for the drain test; few enough that the table stays
+     * sparse.
+     */
+    private static final int FEW = 300;
+
     @Override
     protected final Map<String, String> constructorTest() {
         return new Map4<String, String>(TEST_HASH_TABLE_SIZE);
@@ -22,4 +32,31 @@ public class Map4Test1009 extends MapTest {
         return new Map1L<String, String>();
     }
 
+    /**
+     * Tests draining a sparse table with removeAny, adding keys (some into
+     * buckets before those already emptied) along the way.
+     */
+    @Test
+    public void removeAnyDrainTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < FEW; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        int added = 0;
+        while (testMap.size() > 0) {
+            Map.Pair<String, String> removed = testMap.removeAny();
+            assertEquals(expMap.value(removed.key()), removed.value());
+            expMap.remove(removed.key());
+            if (added < FEW && testMap.size() % 2 == 0) {
+                testMap.add("a" + added, "b" + added);
+                expMap.add("a" + added, "b" + added);
+                added++;
+            }
+            assertEquals(expMap.size(), testMap.size());
+        }
+        assertEquals(0, expMap.size());
+    }
+
 }
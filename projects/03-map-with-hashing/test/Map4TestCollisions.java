@@ -0,0 +1,174 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} with a spreading function that
+ * puts every key in the same bucket, so that buckets are converted to trees
+ * and back, and with tests of keys whose hash codes collide.
+ */
+public class Map4TestCollisions extends MapTest {
+
+    /**
+     * Number of two-character blocks in each colliding string.
+     */
+    private static final int BLOCKS = 10;
+
+    /**
+     * Number of colliding non-comparable keys.
+     */
+    private static final int FEW = 50;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(1, 1.0, h -> 0);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Returns the string made of "Aa" for each 0 bit and "BB" for each 1 bit of
+     * the low {@code BLOCKS} bits of {@code n}. "Aa" and "BB" have the same
+     * hash code, so all of these strings do too.
+     *
+     * @param n
+     *            the number to encode
+     * @return the colliding string for n
+     */
+    private static String colliding(int n) {
+        StringBuilder s = new StringBuilder();
+        for (int b = 0; b < BLOCKS; b++) {
+            if ((n >> b & 1) == 0) {
+                s.append("Aa");
+            } else {
+                s.append("BB");
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Key with a constant hash code that is not {@code Comparable}.
+     */
+    private static final class BadKey {
+
+        /**
+         * The identifying number.
+         */
+        private final int id;
+
+        /**
+         * Constructor.
+         *
+         * @param id
+         *            the identifying number
+         */
+        BadKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BadKey && ((BadKey) obj).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+    }
+
+    /**
+     * Tests adding, finding, and removing strings that all have the same hash
+     * code, with the default spreading function.
+     */
+    @Test
+    public void collidingStringsTest() {
+        Map<String, String> testMap = new Map4<String, String>();
+        Map<String, String> expMap = this.constructorRef();
+        int n = 1 << BLOCKS;
+        for (int i = 0; i < n; i++) {
+            testMap.add(colliding(i), "v" + i);
+            expMap.add(colliding(i), "v" + i);
+        }
+        assertEquals(colliding(0).hashCode(), colliding(n - 1).hashCode());
+        for (int i = 0; i < n; i++) {
+            assertEquals("v" + i, testMap.value(colliding(i)));
+        }
+        for (int i = 0; i < n; i += 2) {
+            testMap.remove(colliding(i));
+            expMap.remove(colliding(i));
+        }
+        assertEquals(expMap, testMap);
+        while (testMap.size() > 0) {
+            Map.Pair<String, String> removed = testMap.removeAny();
+            assertEquals(expMap.value(removed.key()), removed.value());
+            expMap.remove(removed.key());
+        }
+        assertEquals(0, expMap.size());
+    }
+
+    /**
+     * Tests that keys whose hash codes collide and that cannot be compared
+     * are still kept apart.
+     */
+    @Test
+    public void collidingNonComparableTest() {
+        Map<BadKey, Integer> testMap = new Map4<BadKey, Integer>();
+        for (int i = 0; i < FEW; i++) {
+            testMap.add(new BadKey(i), i);
+        }
+        assertEquals(FEW, testMap.size());
+        for (int i = 0; i < FEW; i++) {
+            assertEquals(i, (int) testMap.value(new BadKey(i)));
+        }
+        assertEquals(false, testMap.hasKey(new BadKey(FEW)));
+        for (int i = 0; i < FEW; i++) {
+            assertEquals(i, (int) testMap.remove(new BadKey(i)).value());
+        }
+        assertEquals(0, testMap.size());
+    }
+
+    /**
+     * Tests colliding keys of different classes: strings, which compare with
+     * each other, and an {@code Integer} and a {@code BadKey} with the same
+     * hash code, added in the middle of them.
+     */
+    @Test
+    public void collidingMixedClassesTest() {
+        final int strings = 32;
+        Map<Object, Integer> testMap = new Map4<Object, Integer>(1, 1.0,
+                h -> 0);
+        Integer number = colliding(0).hashCode();
+        BadKey bad = new BadKey(-1);
+        for (int i = 0; i < strings; i++) {
+            if (i == strings / 2) {
+                testMap.add(number, -1);
+                testMap.add(bad, -2);
+            }
+            testMap.add(colliding(i), i);
+        }
+        assertEquals(strings + 2, testMap.size());
+        assertEquals(true, testMap.hasKey(number));
+        assertEquals(-1, (int) testMap.value(number));
+        assertEquals(-2, (int) testMap.value(bad));
+        for (int i = 0; i < strings; i++) {
+            assertEquals(i, (int) testMap.value(colliding(i)));
+        }
+        assertEquals(-1, (int) testMap.remove(number).value());
+        assertEquals(false, testMap.hasKey(number));
+        assertEquals(-2, (int) testMap.remove(bad).value());
+        for (int i = 0; i < strings; i++) {
+            assertEquals(i, (int) testMap.remove(colliding(i)).value());
+        }
+        assertEquals(0, testMap.size());
+    }
+
+}
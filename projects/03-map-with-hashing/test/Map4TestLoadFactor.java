@@ -0,0 +1,173 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} starting from a single bucket
+ * with a low load factor, so that even small maps grow and are tested while
+ * part of the table is still being rehashed.
+ */
+public class Map4TestLoadFactor extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 1;
+
+    /**
+     * Load factor to be used in tests.
+     */
+    private static final double TEST_LOAD_FACTOR = 0.5;
+
+    /**
+     * Load factor below 0.25, at which the new table fills up before a fixed
+     * number of buckets per step could empty the old one.
+     */
+    private static final double LOW_LOAD_FACTOR = 0.1;
+
+    /**
+     * Number of entries for the growth tests.
+     */
+    private static final int MANY = 5000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests adding many entries, then looking them all up, through several
+     * rounds of growth.
+     */
+    @Test
+    public void addManyTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        assertEquals(MANY, testMap.size());
+        for (int i = 0; i < MANY; i++) {
+            assertEquals("v" + i, testMap.value("k" + i));
+        }
+        assertEquals(expMap, testMap);
+    }
+
+    /**
+     * Tests that removing entries while the table is growing, by key and by
+     * removeAny, leaves the rest intact.
+     */
+    @Test
+    public void removeWhileGrowingTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+            if (i % 3 == 0) {
+                testMap.remove("k" + i / 2);
+                expMap.remove("k" + i / 2);
+            }
+        }
+        assertEquals(expMap, testMap);
+        while (testMap.size() > 0) {
+            Map.Pair<String, String> removed = testMap.removeAny();
+            assertEquals(expMap.value(removed.key()), removed.value());
+            expMap.remove(removed.key());
+        }
+        assertEquals(0, expMap.size());
+    }
+
+    /**
+     * Tests that a parallel stream over a map that has grown several times
+     * sees every entry exactly once.
+     */
+    @Test
+    public void parallelStreamTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Set<String> expKeys = new HashSet<>();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expKeys.add("k" + i);
+        }
+        Set<String> keys = StreamSupport.stream(testMap.spliterator(), true)
+                .map(Map.Pair::key).collect(Collectors.toSet());
+        assertEquals(expKeys, keys);
+        assertEquals(MANY, StreamSupport.stream(testMap.spliterator(), true)
+                .filter(p -> p.value().equals("v" + p.key().substring(1)))
+                .count());
+    }
+
+    /**
+     * Tests that splitting a spliterator down to single buckets and walking
+     * every piece visits each entry once.
+     */
+    @Test
+    public void spliteratorSplitTest() {
+        Map<String, String> testMap = this.constructorTest();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+        }
+        Deque<Spliterator<Map.Pair<String, String>>> pending =
+                new ArrayDeque<>();
+        pending.push(testMap.spliterator());
+        Set<String> keys = new HashSet<>();
+        int[] visits = { 0 };
+        while (!pending.isEmpty()) {
+            Spliterator<Map.Pair<String, String>> piece = pending.pop();
+            Spliterator<Map.Pair<String, String>> prefix = piece.trySplit();
+            if (prefix != null) {
+                pending.push(prefix);
+                pending.push(piece);
+            } else {
+                piece.forEachRemaining(p -> {
+                    keys.add(p.key());
+                    visits[0]++;
+                });
+            }
+        }
+        assertEquals(MANY, visits[0]);
+        assertEquals(MANY, keys.size());
+    }
+
+
+    /**
+     * Tests growth with a load factor of 0.1, interleaving removes. With
+     * assertions enabled, Map4 checks that each earlier growth has finished
+     * by the time the next one starts, without being forced to.
+     */
+    @Test
+    public void lowLoadFactorTest() {
+        Map<String, String> testMap = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, LOW_LOAD_FACTOR);
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+            if (i % 5 == 0) {
+                testMap.remove("k" + i / 2);
+                expMap.remove("k" + i / 2);
+            }
+        }
+        assertEquals(expMap, testMap);
+    }
+
+}
@@ -0,0 +1,113 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map5} using default constructor.
+ */
+public class Map5Test extends MapTest {
+
+    /**
+     * Number of entries for the growth and collision tests.
+     */
+    private static final int MANY = 4096;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map5<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Returns a string whose hash code is the same for every {@code i} with
+     * the same number of bits: each bit picks "Aa" or "BB", which have equal
+     * hash codes.
+     *
+     * @param i
+     *            which string to return
+     * @param bits
+     *            number of bits of i to use
+     * @return the colliding string for i
+     */
+    private static String colliding(int i, int bits) {
+        StringBuilder s = new StringBuilder();
+        for (int b = 0; b < bits; b++) {
+            if ((i & (1 << b)) == 0) {
+                s.append("Aa");
+            } else {
+                s.append("BB");
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Tests adding and removing many entries, so the table grows and removals
+     * shift entries back.
+     */
+    @Test
+    public void addRemoveManyTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        for (int i = 0; i < MANY; i += 2) {
+            testMap.remove("k" + i);
+            expMap.remove("k" + i);
+        }
+        assertEquals(expMap, testMap);
+        for (int i = 1; i < MANY; i += 2) {
+            assertEquals("v" + i, testMap.value("k" + i));
+        }
+    }
+
+    /**
+     * Tests removals from the middle of a long run of keys that all share one
+     * home slot.
+     */
+    @Test
+    public void removeFromCollidingRunTest() {
+        final int bits = 8;
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < 1 << bits; i++) {
+            testMap.add(colliding(i, bits), "v" + i);
+            expMap.add(colliding(i, bits), "v" + i);
+        }
+        for (int i = 0; i < 1 << bits; i += 3) {
+            testMap.remove(colliding(i, bits));
+            expMap.remove(colliding(i, bits));
+            assertEquals(false, testMap.hasKey(colliding(i, bits)));
+        }
+        assertEquals(expMap, testMap);
+    }
+
+    /**
+     * Tests draining a large map with removeAny.
+     */
+    @Test
+    public void removeAnyDrainTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        while (testMap.size() > 0) {
+            Map.Pair<String, String> removed = testMap.removeAny();
+            assertEquals(expMap.value(removed.key()), removed.value());
+            expMap.remove(removed.key());
+        }
+        assertEquals(0, expMap.size());
+    }
+
+}
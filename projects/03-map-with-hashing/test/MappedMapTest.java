@@ -0,0 +1,228 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code MappedMap} using default
+ * constructor, with tests of reopening a map from its files.
+ */
+public class MappedMapTest extends MapTest {
+
+    /**
+     * Number of entries for the growth and reopening tests.
+     */
+    private static final int MANY = 5000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new MappedMap();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Returns the path of a slot file in a new temporary directory.
+     *
+     * @return the path
+     * @throws IOException
+     *             if the directory cannot be created
+     */
+    private static Path newPath() throws IOException {
+        Path dir = Files.createTempDirectory("MappedMapTest");
+        dir.toFile().deleteOnExit();
+        Path path = dir.resolve("map");
+        path.toFile().deleteOnExit();
+        MappedMap.heapPath(path).toFile().deleteOnExit();
+        return path;
+    }
+
+    /**
+     * Tests that a map closed and opened again from its files has the same
+     * entries, after growth, replacements, and removals, and can still be
+     * changed.
+     *
+     * @throws IOException
+     *             if the files cannot be used
+     */
+    @Test
+    public void reopenTest() throws IOException {
+        Path path = newPath();
+        Map<String, String> expMap = this.constructorRef();
+        try (MappedMap map = new MappedMap(path)) {
+            for (int i = 0; i < MANY; i++) {
+                map.add("k" + i, "v" + i);
+                expMap.add("k" + i, "v" + i);
+            }
+            for (int i = 0; i < MANY; i += 3) {
+                map.replaceValue("k" + i, "wé" + i);
+                expMap.replaceValue("k" + i, "wé" + i);
+            }
+            for (int i = 1; i < MANY; i += 3) {
+                map.remove("k" + i);
+                expMap.remove("k" + i);
+            }
+        }
+        try (MappedMap map = new MappedMap(path)) {
+            assertEquals(expMap, map);
+            map.add("new", "entry");
+            expMap.add("new", "entry");
+        }
+        try (MappedMap map = new MappedMap(path)) {
+            assertEquals(expMap, map);
+            map.clear();
+        }
+        try (MappedMap map = new MappedMap(path)) {
+            assertEquals(0, map.size());
+        }
+    }
+
+    /**
+     * Tests that opening a file that does not hold a map fails, leaves the
+     * file as it was, and does not leave a heap file beside it.
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    @Test
+    public void openNotAMapTest() throws IOException {
+        Path path = newPath();
+        byte[] text = "not a map, just some text".getBytes();
+        Files.write(path, text);
+        boolean failed = false;
+        try {
+            new MappedMap(path).close();
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertEquals(true, failed);
+        assertEquals(false, Files.exists(MappedMap.heapPath(path)));
+        assertEquals(new String(text), new String(Files.readAllBytes(path)));
+        Files.delete(path);
+    }
+
+    /**
+     * Writes {@code value} at {@code offset} of the slot file {@code path},
+     * then checks that opening the map there fails.
+     *
+     * @param path
+     *            the path of the slot file
+     * @param offset
+     *            the offset of the header field to overwrite
+     * @param value
+     *            the value to write, little-endian
+     * @param wide
+     *            whether the field is a long
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    private static void checkCorruptHeader(Path path, int offset, long value,
+            boolean wide) throws IOException {
+        ByteBuffer field = ByteBuffer
+                .allocate(wide ? Long.BYTES : Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (wide) {
+            field.putLong(value);
+        } else {
+            field.putInt((int) value);
+        }
+        field.flip();
+        byte[] saved = Files.readAllBytes(path);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.WRITE)) {
+            channel.write(field, offset);
+        }
+        boolean failed = false;
+        try {
+            new MappedMap(path).close();
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertEquals(true, failed);
+        Files.write(path, saved);
+    }
+
+    /**
+     * Tests that opening a map whose header has a size or heap end that
+     * cannot be right fails with an IOException.
+     *
+     * @throws IOException
+     *             if the files cannot be used
+     */
+    @Test
+    public void openCorruptHeaderTest() throws IOException {
+        /*
+         * Offsets of the size and the heap end in the slot file header.
+         */
+        final int sizeAt = 12;
+        final int heapEndAt = 16;
+        Path path = newPath();
+        try (MappedMap map = new MappedMap(path)) {
+            map.add("k", "v");
+        }
+        checkCorruptHeader(path, sizeAt, -1, false);
+        checkCorruptHeader(path, sizeAt, Integer.MAX_VALUE, false);
+        checkCorruptHeader(path, heapEndAt, 0, true);
+        checkCorruptHeader(path, heapEndAt, Integer.MAX_VALUE + 1L, true);
+        try (MappedMap map = new MappedMap(path)) {
+            assertEquals("v", map.value("k"));
+        }
+    }
+
+    /**
+     * Tests that doubling the slots leaves no file beside the map's files,
+     * and that the doubled slots are the ones in the slot file.
+     *
+     * @throws IOException
+     *             if the files cannot be used
+     */
+    @Test
+    public void growLeavesNoFileTest() throws IOException {
+        Path path = newPath();
+        try (MappedMap map = new MappedMap(path)) {
+            for (int i = 0; i < MANY; i++) {
+                map.add("k" + i, "v" + i);
+            }
+            assertEquals(false, Files.exists(
+                    path.resolveSibling(path.getFileName() + ".grow")));
+        }
+        try (MappedMap map = new MappedMap(path)) {
+            assertEquals(MANY, map.size());
+            assertEquals("v" + (MANY - 1), map.value("k" + (MANY - 1)));
+        }
+    }
+
+    /**
+     * Tests adding many entries, then draining them with removeAny.
+     */
+    @Test
+    public void addManyRemoveAnyTest() {
+        Map<String, String> testMap = this.constructorTest();
+        Map<String, String> expMap = this.constructorRef();
+        for (int i = 0; i < MANY; i++) {
+            testMap.add("k" + i, "v" + i);
+            expMap.add("k" + i, "v" + i);
+        }
+        assertEquals(expMap, testMap);
+        while (testMap.size() > 0) {
+            Map.Pair<String, String> removed = testMap.removeAny();
+            assertEquals(expMap.value(removed.key()), removed.value());
+            expMap.remove(removed.key());
+        }
+        assertEquals(0, expMap.size());
+    }
+
+}
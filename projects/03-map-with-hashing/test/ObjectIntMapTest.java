@@ -0,0 +1,115 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code ObjectIntMap}.
+ *
+ * @author Michael Xu, Jeng Zhuang, Leo Zhuang
+ *
+ */
+public class ObjectIntMapTest {
+
+    /**
+     * Number of keys for the growth tests.
+     */
+    private static final int MANY = 3000;
+
+    /**
+     * Tests that a new map is empty.
+     */
+    @Test
+    public void testConstructor() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        assertEquals(0, m.size());
+        assertEquals(false, m.hasKey("a"));
+        assertEquals(-1, m.getOrDefault("a", -1));
+    }
+
+    /**
+     * Tests that addTo adds a missing key and then accumulates.
+     */
+    @Test
+    public void testAddTo() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        assertEquals(1, m.addTo("a", 1));
+        assertEquals(2, m.addTo("a", 1));
+        final int delta = -5;
+        assertEquals(-3, m.addTo("a", delta));
+        assertEquals(1, m.size());
+        assertEquals(-3, m.getOrDefault("a", 0));
+    }
+
+    /**
+     * Tests put on a new and an existing key.
+     */
+    @Test
+    public void testPut() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        m.put("a", 2);
+        m.put("b", 0);
+        m.put("a", 7);
+        assertEquals(2, m.size());
+        assertEquals(7, m.getOrDefault("a", -1));
+        assertEquals(0, m.getOrDefault("b", -1));
+    }
+
+    /**
+     * Tests counting many words through several rounds of growth, then
+     * removing half of them.
+     */
+    @Test
+    public void testCountManyThenRemove() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        for (int i = 0; i < MANY; i++) {
+            for (int j = 0; j <= i % 3; j++) {
+                m.addTo("w" + i, 1);
+            }
+        }
+        assertEquals(MANY, m.size());
+        for (int i = 0; i < MANY; i += 2) {
+            assertEquals(i % 3 + 1, m.remove("w" + i));
+        }
+        assertEquals(MANY / 2, m.size());
+        for (int i = 0; i < MANY; i++) {
+            int expected = 0;
+            if (i % 2 == 1) {
+                expected = i % 3 + 1;
+            }
+            assertEquals(expected, m.getOrDefault("w" + i, 0));
+        }
+    }
+
+    /**
+     * Tests that forEach visits each pair once.
+     */
+    @Test
+    public void testForEach() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        m.addTo("a", 1);
+        m.addTo("b", 2);
+        m.addTo("c", 3);
+        int[] sum = { 0 };
+        StringBuilder keys = new StringBuilder();
+        m.forEach((key, value) -> {
+            sum[0] += value;
+            keys.append(key);
+        });
+        final int expectedSum = 6;
+        assertEquals(expectedSum, sum[0]);
+        assertEquals(3, keys.length());
+    }
+
+    /**
+     * Tests that clear empties the map.
+     */
+    @Test
+    public void testClear() {
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        m.addTo("a", 1);
+        m.clear();
+        assertEquals(0, m.size());
+        assertEquals(false, m.hasKey("a"));
+    }
+
+}
@@ -0,0 +1,215 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code OptimisticMap4} using default
+ * constructor, with multi-threaded stress tests.
+ */
+public class OptimisticMap4Test extends ConcurrentMapTest {
+
+    /**
+     * Number of two-character blocks in each colliding string; there are 2 to
+     * this power such strings.
+     */
+    private static final int BLOCKS = 15;
+
+    /**
+     * Number of colliding keys in the long-chain test.
+     */
+    private static final int COLLIDING_KEYS = 20_000;
+
+    /**
+     * Stack size, in bytes, of the thread running the long-chain test: the
+     * 1 MB that threads usually get, rather than the larger stack of the main
+     * thread.
+     */
+    private static final long STACK_SIZE = 1L << 20;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new OptimisticMap4<String, String>();
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Tests that threads adding and removing disjoint keys at once, through
+     * several rounds of growth, leave exactly the keys they kept.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentAddRemoveTest() throws Exception {
+        OptimisticMap4<String, String> map = new OptimisticMap4<>(1);
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                String key = thread + ":" + i;
+                map.add(key, key);
+                if (i % 2 == 1) {
+                    assertEquals(key, map.remove(key).value());
+                }
+            }
+        });
+        assertEquals(THREADS * OPERATIONS / 2, map.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < OPERATIONS; i++) {
+                String key = t + ":" + i;
+                assertEquals(i % 2 == 0, map.hasKey(key));
+            }
+        }
+        int seen = 0;
+        for (Map.Pair<String, String> p : map) {
+            assertEquals(p.key(), p.value());
+            seen++;
+        }
+        assertEquals(THREADS * OPERATIONS / 2, seen);
+    }
+
+    /**
+     * Tests that merge counts every increment when threads update the same
+     * few keys at once.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void concurrentMergeTest() throws Exception {
+        OptimisticMap4<String, Integer> counts = new OptimisticMap4<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                counts.merge("k" + i % SHARED_KEYS, 1, Integer::sum);
+            }
+        });
+        assertEquals(SHARED_KEYS, counts.size());
+        for (int k = 0; k < SHARED_KEYS; k++) {
+            assertEquals(THREADS * OPERATIONS / SHARED_KEYS,
+                    (int) counts.value("k" + k));
+        }
+    }
+
+    /**
+     * Tests that readers always find the keys that are never removed, with the
+     * right values, while writers grow the table under them and update those
+     * keys.
+     *
+     * @throws Exception
+     *             if a thread failed
+     */
+    @Test
+    public void readersDuringGrowthTest() throws Exception {
+        OptimisticMap4<String, Integer> map = new OptimisticMap4<>(1);
+        for (int k = 0; k < SHARED_KEYS; k++) {
+            map.add("k" + k, 0);
+        }
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (thread % 2 == 0) {
+                    map.add(thread + ":" + i, i);
+                    map.replaceValue("k" + i % SHARED_KEYS, thread);
+                } else {
+                    String key = "k" + i % SHARED_KEYS;
+                    assertEquals(true, map.hasKey(key));
+                    assertEquals(0, map.valueOrDefault(key, -1) % 2);
+                }
+            }
+        });
+        assertEquals(SHARED_KEYS + (THREADS / 2) * OPERATIONS, map.size());
+        int seen = 0;
+        for (Map.Pair<String, Integer> p : map) {
+            seen++;
+        }
+        assertEquals(map.size(), seen);
+    }
+
+    /**
+     * Returns the string made of "Aa" for each 0 bit and "BB" for each 1 bit of
+     * the low {@code BLOCKS} bits of {@code n}. "Aa" and "BB" have the same
+     * hash code, so all of these strings do too.
+     *
+     * @param n
+     *            the number to encode
+     * @return the colliding string for n
+     */
+    private static String colliding(int n) {
+        StringBuilder s = new StringBuilder();
+        for (int b = 0; b < BLOCKS; b++) {
+            if ((n >> b & 1) == 0) {
+                s.append("Aa");
+            } else {
+                s.append("BB");
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Tests a single chain of many keys with the same hash code, changing and
+     * removing the entries at its far end, on a thread with an ordinary
+     * stack.
+     *
+     * @throws Throwable
+     *             if the test thread failed
+     */
+    @Test
+    public void longCollisionChainTest() throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread t = new Thread(null, () -> {
+            try {
+                checkLongCollisionChain();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "longCollisionChainTest", STACK_SIZE);
+        t.start();
+        t.join();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Checks a single chain of many keys with the same hash code, changing
+     * and removing the entries at its far end.
+     */
+    private static void checkLongCollisionChain() {
+        OptimisticMap4<String, Integer> map = new OptimisticMap4<>();
+        for (int i = 0; i < COLLIDING_KEYS; i++) {
+            map.add(colliding(i), i);
+        }
+        assertEquals(colliding(0).hashCode(),
+                colliding(COLLIDING_KEYS - 1).hashCode());
+        map.replaceValue(colliding(0), -1);
+        assertEquals(-1, (int) map.value(colliding(0)));
+        assertEquals(-1, (int) map.remove(colliding(0)).value());
+        assertEquals(1, (int) map.remove(colliding(1)).value());
+        assertEquals(COLLIDING_KEYS - 2, map.size());
+        assertEquals(false, map.hasKey(colliding(0)));
+        assertEquals(COLLIDING_KEYS - 1,
+                (int) map.value(colliding(COLLIDING_KEYS - 1)));
+    }
+
+    /**
+     * Tests compute adding, updating, and removing a key.
+     */
+    @Test
+    public void computeTest() {
+        OptimisticMap4<String, String> map = new OptimisticMap4<>();
+        assertEquals("a", map.compute("k", (k, old) -> "a"));
+        assertEquals("ab", map.compute("k", (k, old) -> old + "b"));
+        assertEquals("ab", map.value("k"));
+        assertEquals(null, map.compute("k", (k, old) -> null));
+        assertEquals(0, map.size());
+        assertEquals(false, map.hasKey("k"));
+    }
+
+}
@@ -1,12 +1,27 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
-import components.binarytree.BinaryTree;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of elements, built from
+ * nodes with direct references to their children, with implementations of
+ * primary methods. Searching, inserting, and removing walk down the tree in a
+ * loop: {@code contains} allocates nothing, and no operation recurses, so a
+ * tree made tall by sorted input cannot overflow the stack. The same ordering
+ * supports navigation: {@code first}, {@code last}, {@code floor}, and
+ * {@code ceiling} each follow one path down the tree, and {@code range}
+ * visits only the subtrees that may hold elements of the range. Each node
+ * also records the size of its subtree, so {@code size} is read from the root
+ * and the order statistics {@code select} and {@code rank} follow one path as
+ * well. Finally, {@code fromSorted}, {@code union}, {@code intersection}, and
+ * {@code difference} build a perfectly balanced tree from elements already in
+ * order, in time linear in their number.
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -18,8 +33,12 @@ import components.set.SetSecondary;
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @convention <pre>
+ * IS_BST($this.root)  and
+ * [the count field of each node of $this.root is the number of nodes in the
+ *  subtree rooted at it]
+ * </pre>
+ * @correspondence this = labels($this.root)
  *
  * @author Leo Zhuang, Michael Xu, Jeng Zhuang
  *
@@ -31,170 +50,389 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
 
     /**
-     * Elements included in {@code this}.
+     * Node of the tree.
+     *
+     * @param <T>
+     *            type of labels
      */
-    private BinaryTree<T> tree;
+    private static final class Node<T> {
+
+        /**
+         * Label of this node.
+         */
+        private T label;
+
+        /**
+         * Left subtree, or {@code null} if it is empty.
+         */
+        private Node<T> left;
+
+        /**
+         * Right subtree, or {@code null} if it is empty.
+         */
+        private Node<T> right;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private int count;
+
+        /**
+         * Constructor for a leaf.
+         *
+         * @param label
+         *            the label
+         */
+        Node(T label) {
+            this.label = label;
+            this.left = null;
+            this.right = null;
+            this.count = 1;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or {@code null} if it is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * Returns the number of nodes in {@code t}.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the tree, or null
+     * @return the number of nodes in t
+     * @ensures count = |labels(t)|
+     */
+    private static <T> int count(Node<T> t) {
+        int c = 0;
+        if (t != null) {
+            c = t.count;
+        }
+        return c;
+    }
 
     /**
      * Returns whether {@code x} is in {@code t}.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
+     *            type of labels
      * @param t
-     *            the {@code BinaryTree} to be searched
+     *            the tree to be searched, or null
      * @param x
      *            the label to be searched for
      * @return true if t contains x, false otherwise
      * @requires IS_BST(t)
      * @ensures isInTree = (x is in labels(t))
      */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
+    private static <T extends Comparable<T>> boolean isInTree(Node<T> t,
             T x) {
-        assert t != null : "Violation of: t is not null";
         assert x != null : "Violation of: x is not null";
-        boolean found = false;
-        if (t.height() > 0) {
-            BinaryTree<T> leftT = t.newInstance();
-            BinaryTree<T> rightT = t.newInstance();
-            T root = t.disassemble(leftT, rightT);
-            int compare = x.compareTo(root);
-            if (compare == 0) {
-                found = true;
-            } else if (compare < 0) {
-                found = isInTree(leftT, x);
-            } else {
-                found = isInTree(rightT, x);
+        Node<T> n = t;
+        int compare = 1;
+        while (n != null && compare != 0) {
+            compare = x.compareTo(n.label);
+            if (compare < 0) {
+                n = n.left;
+            } else if (compare > 0) {
+                n = n.right;
             }
-            t.assemble(root, leftT, rightT);
         }
-        return found;
+        return n != null;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Inserts {@code x} in {@code t} as a new leaf.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
+     *            type of labels
      * @param t
-     *            the {@code BinaryTree} to be searched
+     *            the tree, or null
      * @param x
      *            the label to be inserted
+     * @return the root of the tree
      * @aliases reference {@code x}
      * @updates t
      * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     * @ensures <pre>
+     * IS_BST(insertInTree)  and
+     * labels(insertInTree) = labels(#t) union {x}
+     * </pre>
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
+    private static <T extends Comparable<T>> Node<T> insertInTree(Node<T> t,
             T x) {
-        assert t != null : "Violation of: t is not null";
         assert x != null : "Violation of: x is not null";
-        if (t.height() == 0) {
-            BinaryTree<T> leftT = t.newInstance();
-            BinaryTree<T> rightT = t.newInstance();
-            t.assemble(x, leftT, rightT);
-        } else {
-            BinaryTree<T> leftT = t.newInstance();
-            BinaryTree<T> rightT = t.newInstance();
-            T root = t.disassemble(leftT, rightT);
-            if (x.compareTo(root) < 0) {
-                insertInTree(leftT, x);
-            } else {
-                insertInTree(rightT, x);
+        Node<T> leaf = new Node<T>(x);
+        Node<T> result = leaf;
+        if (t != null) {
+            result = t;
+            Node<T> n = t;
+            boolean placed = false;
+            while (!placed) {
+                n.count++;
+                if (x.compareTo(n.label) < 0) {
+                    if (n.left == null) {
+                        n.left = leaf;
+                        placed = true;
+                    } else {
+                        n = n.left;
+                    }
+                } else {
+                    if (n.right == null) {
+                        n.right = leaf;
+                        placed = true;
+                    } else {
+                        n = n.right;
+                    }
+                }
             }
-            t.assemble(root, leftT, rightT);
         }
+        return result;
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Replaces {@code child}, a child of {@code parent} (or the root, if
+     * {@code parent} is null), by {@code replacement}.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
-     * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * @param parent
+     *            the parent of child, or null if child is the root
+     * @param child
+     *            the node to be replaced
+     * @param replacement
+     *            the subtree to take its place, or null
+     * @updates this.root, parent
+     * @requires <pre>
+     * [parent is null and child = this.root, or parent is a node of
+     *  this.root and child is a child of parent]
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
-
-        T smallest = null;
-        BinaryTree<T> leftT = t.newInstance();
-        BinaryTree<T> rightT = t.newInstance();
-        T root = t.disassemble(leftT, rightT);
-        if (leftT.height() > 0) {
-            smallest = removeSmallest(leftT);
-            t.assemble(root, leftT, rightT);
+    private void replaceChild(Node<T> parent, Node<T> child,
+            Node<T> replacement) {
+        if (parent == null) {
+            this.root = replacement;
+        } else if (parent.left == child) {
+            parent.left = replacement;
         } else {
-            smallest = root;
-            t.transferFrom(rightT);
+            parent.right = replacement;
         }
-        return smallest;
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Removes the smallest (left-most) node of the subtree rooted at
+     * {@code t}, a child of {@code parent} (or the root, if {@code parent} is
+     * null), and returns its label.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
+     * @param parent
+     *            the parent of t, or null if t is the root
      * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
+     *            the root of the subtree
+     * @return the smallest label in the subtree
+     * @updates this.root
+     * @requires <pre>
+     * t /= null  and
+     * [parent is null and t = this.root, or parent is a node of this.root
+     *  and t is a child of parent]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(this.root)  and
+     * removeSmallest = [the smallest label in #t]  and
+     * labels(this.root) = labels(#this.root) \ {removeSmallest}
+     * </pre>
+     */
+    private T removeSmallest(Node<T> parent, Node<T> t) {
+        assert t != null : "Violation of: t /= null";
+        Node<T> p = parent;
+        Node<T> n = t;
+        while (n.left != null) {
+            n.count--;
+            p = n;
+            n = n.left;
+        }
+        this.replaceChild(p, n, n.right);
+        return n.label;
+    }
+
+    /**
+     * Finds label {@code x} in {@code this.root}, removes it, and returns it.
+     *
      * @param x
      *            the label to be removed
      * @return the removed label
-     * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @updates this.root
+     * @requires IS_BST(this.root) and x is in labels(this.root)
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * IS_BST(this.root)  and  removeFromTree = x  and
+     *  labels(this.root) = labels(#this.root) \ {x}
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private T removeFromTree(T x) {
         assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
-
-        T returnValue = null;
-        BinaryTree<T> leftT = t.newInstance();
-        BinaryTree<T> rightT = t.newInstance();
-        T root = t.disassemble(leftT, rightT);
-        if (root.equals(x)) {
-            returnValue = root;
-            if (rightT.height() > 0 && leftT.height() > 0) {
-                root = removeSmallest(rightT);
-                t.assemble(root, leftT, rightT);
-            } else if (leftT.height() > 0) {
-                t.transferFrom(leftT);
-            } else if (rightT.height() > 0) {
-                t.transferFrom(rightT);
+        Node<T> parent = null;
+        Node<T> n = this.root;
+        int compare = x.compareTo(n.label);
+        while (compare != 0) {
+            n.count--;
+            parent = n;
+            if (compare < 0) {
+                n = n.left;
             } else {
-                t.clear();
+                n = n.right;
             }
+            assert n != null : "Violation of: x is in labels(this.root)";
+            compare = x.compareTo(n.label);
+        }
+        T returnValue = n.label;
+        if (n.left == null) {
+            this.replaceChild(parent, n, n.right);
+        } else if (n.right == null) {
+            this.replaceChild(parent, n, n.left);
         } else {
-            if (root.compareTo(x) > 0) {
-                returnValue = removeFromTree(leftT, x);
+            /*
+             * n keeps its place in the tree and takes the label of its
+             * successor, which has no left child and is removed instead.
+             */
+            n.count--;
+            n.label = this.removeSmallest(n, n.right);
+        }
+        return returnValue;
+    }
+
+    /**
+     * Returns a perfectly balanced tree of {@code labels[lo, hi)}: its root
+     * is the middle label, and its subtrees are built the same way from the
+     * labels on either side.
+     *
+     * @param <T>
+     *            type of labels
+     * @param labels
+     *            the labels, in increasing order
+     * @param lo
+     *            index of the first label
+     * @param hi
+     *            index past the last label
+     * @return the root of the tree, or null if lo = hi
+     * @requires 0 <= lo <= hi <= |labels|
+     * @ensures <pre>
+     * [labels of build, in order] = labels[lo, hi)  and
+     * [the heights of the subtrees of every node of build differ by at most
+     *  one]
+     * </pre>
+     */
+    private static <T> Node<T> build(List<T> labels, int lo, int hi) {
+        Node<T> t = null;
+        if (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            t = new Node<T>(labels.get(mid));
+            t.left = build(labels, lo, mid);
+            t.right = build(labels, mid + 1, hi);
+            t.count = hi - lo;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the next element of {@code it}, or null if there is none.
+     *
+     * @param <T>
+     *            type of elements
+     * @param it
+     *            the iterator
+     * @return the next element, or null
+     * @updates it
+     */
+    private static <T> T nextOrNull(Iterator<T> it) {
+        T next = null;
+        if (it.hasNext()) {
+            next = it.next();
+        }
+        return next;
+    }
+
+    /**
+     * Merges the increasing sequences {@code a} and {@code b} and returns, in
+     * increasing order, the elements that are only in {@code a} (if
+     * {@code keepA}), only in {@code b} (if {@code keepB}), and in both (if
+     * {@code keepBoth}).
+     *
+     * @param <T>
+     *            type of elements
+     * @param a
+     *            the first sequence
+     * @param b
+     *            the second sequence
+     * @param keepA
+     *            whether to keep elements only in a
+     * @param keepB
+     *            whether to keep elements only in b
+     * @param keepBoth
+     *            whether to keep elements in both
+     * @return the kept elements, in increasing order
+     * @updates a, b
+     * @requires [a and b are strictly increasing and have no null elements]
+     */
+    private static <T extends Comparable<T>> List<T> merge(Iterator<T> a,
+            Iterator<T> b, boolean keepA, boolean keepB, boolean keepBoth) {
+        List<T> merged = new ArrayList<>();
+        T x = nextOrNull(a);
+        T y = nextOrNull(b);
+        while (x != null || y != null) {
+            int compare;
+            if (x == null) {
+                compare = 1;
+            } else if (y == null) {
+                compare = -1;
+            } else {
+                compare = x.compareTo(y);
+            }
+            if (compare < 0) {
+                if (keepA) {
+                    merged.add(x);
+                }
+                x = nextOrNull(a);
+            } else if (compare > 0) {
+                if (keepB) {
+                    merged.add(y);
+                }
+                y = nextOrNull(b);
             } else {
-                returnValue = removeFromTree(rightT, x);
+                if (keepBoth) {
+                    merged.add(x);
+                }
+                x = nextOrNull(a);
+                y = nextOrNull(b);
             }
-            t.assemble(root, leftT, rightT);
         }
+        return merged;
+    }
 
-        return returnValue;
+    /**
+     * Returns a new {@code Set3a} whose tree is built from {@code labels}.
+     *
+     * @param <T>
+     *            type of elements
+     * @param labels
+     *            the elements, in increasing order
+     * @return the set
+     * @requires [labels is strictly increasing]
+     * @ensures <pre>
+     * setOf = [the elements of labels]  and
+     * [the tree of setOf is perfectly balanced]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> Set3a<T> setOf(List<T> labels) {
+        Set3a<T> s = new Set3a<T>();
+        s.root = build(labels, 0, labels.size());
+        return s;
     }
 
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
-        this.tree = new components.binarytree.BinaryTree1<T>();
+        this.root = null;
     }
 
     /*
@@ -240,7 +478,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
         localSource.createNewRep();
     }
 
@@ -253,8 +491,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert !this.contains(x) : "Violation of: x is not in this";
 
-        insertInTree(this.tree, x);
-
+        this.root = insertInTree(this.root, x);
     }
 
     @Override
@@ -262,8 +499,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert this.contains(x) : "Violation of: x is in this";
 
-        T returnValue = removeFromTree(this.tree, x);
-
+        T returnValue = this.removeFromTree(x);
         return returnValue;
     }
 
@@ -271,8 +507,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
-        T returnValue = removeSmallest(this.tree);
-
+        T returnValue = this.removeSmallest(null, this.root);
         return returnValue;
     }
 
@@ -280,7 +515,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        boolean inTree = isInTree(this.tree, x);
+        boolean inTree = isInTree(this.root, x);
 
         return inTree;
     }
@@ -288,12 +523,386 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     @Override
     public final int size() {
 
-        return this.tree.size();
+        return count(this.root);
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new Set3aIterator(null, null);
+    }
+
+    /*
+     * Navigation methods -----------------------------------------------------
+     */
+
+    /**
+     * Reports the smallest element of {@code this}.
+     *
+     * @return the smallest element
+     * @requires this /= empty_set
+     * @ensures first is in this and [first <= every element of this]
+     */
+    public final T first() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node<T> n = this.root;
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this}.
+     *
+     * @return the largest element
+     * @requires this /= empty_set
+     * @ensures last is in this and [last >= every element of this]
+     */
+    public final T last() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node<T> n = this.root;
+        while (n.right != null) {
+            n = n.right;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this} that is at most {@code x},
+     * or null if there is none.
+     *
+     * @param x
+     *            the bound
+     * @return the greatest element <= x, or null
+     * @ensures <pre>
+     * if [there is an element of this <= x]
+     *  then floor = [the largest element of this <= x]
+     *  else floor = null
+     * </pre>
+     */
+    public final T floor(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T result = null;
+        Node<T> n = this.root;
+        while (n != null) {
+            int compare = x.compareTo(n.label);
+            if (compare < 0) {
+                n = n.left;
+            } else {
+                result = n.label;
+                if (compare == 0) {
+                    n = null;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reports the smallest element of {@code this} that is at least
+     * {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the bound
+     * @return the least element >= x, or null
+     * @ensures <pre>
+     * if [there is an element of this >= x]
+     *  then ceiling = [the smallest element of this >= x]
+     *  else ceiling = null
+     * </pre>
+     */
+    public final T ceiling(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T result = null;
+        Node<T> n = this.root;
+        while (n != null) {
+            int compare = x.compareTo(n.label);
+            if (compare > 0) {
+                n = n.right;
+            } else {
+                result = n.label;
+                if (compare == 0) {
+                    n = null;
+                } else {
+                    n = n.left;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reports the element of {@code this} with exactly {@code k} smaller
+     * elements: the smallest for {@code k = 0}, the largest for
+     * {@code k = |this| - 1}.
+     *
+     * @param k
+     *            the position, counting from 0
+     * @return the k-th smallest element
+     * @requires 0 <= k < |this|
+     * @ensures <pre>
+     * select is in this  and
+     * |{y: T where (y is in this and y < select)}| = k
+     * </pre>
+     */
+    public final T select(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < this.size() : "Violation of: k < |this|";
+
+        Node<T> n = this.root;
+        int i = k;
+        int smaller = count(n.left);
+        while (i != smaller) {
+            if (i < smaller) {
+                n = n.left;
+            } else {
+                i -= smaller + 1;
+                n = n.right;
+            }
+            smaller = count(n.left);
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the number of elements of {@code this} smaller than {@code x},
+     * which need not be in {@code this}; if it is, {@code select(rank(x))}
+     * is {@code x}.
+     *
+     * @param x
+     *            the element to be ranked
+     * @return the number of elements smaller than x
+     * @ensures rank = |{y: T where (y is in this and y < x)}|
+     */
+    public final int rank(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int smaller = 0;
+        Node<T> n = this.root;
+        while (n != null) {
+            int compare = x.compareTo(n.label);
+            if (compare < 0) {
+                n = n.left;
+            } else {
+                smaller += count(n.left);
+                if (compare == 0) {
+                    n = null;
+                } else {
+                    smaller++;
+                    n = n.right;
+                }
+            }
+        }
+        return smaller;
+    }
+
+    /**
+     * Returns an iterator over the elements of {@code this} from {@code lo}
+     * to {@code hi}, both inclusive, in increasing order. Only the subtrees
+     * that may hold such elements are visited, so iterating over {@code k}
+     * elements takes time proportional to the height of the tree plus
+     * {@code k}.
+     *
+     * @param lo
+     *            the smallest element to be returned
+     * @param hi
+     *            the largest element to be returned
+     * @return an iterator over the elements in [lo, hi]
+     * @requires [this is not changed while the iterator is in use]
+     * @ensures <pre>
+     * [range returns, in increasing order, the elements x of this with
+     *  lo <= x <= hi; none if hi < lo]
+     * </pre>
+     */
+    public final Iterator<T> range(T lo, T hi) {
+        assert lo != null : "Violation of: lo is not null";
+        assert hi != null : "Violation of: hi is not null";
+
+        return new Set3aIterator(lo, hi);
+    }
+
+    /*
+     * Bulk methods -----------------------------------------------------------
+     */
+
+    /**
+     * Returns a new {@code Set3a} of the elements of {@code sorted}, which
+     * must arrive in strictly increasing order. The elements are not
+     * compared with one another; they are placed in a perfectly balanced tree
+     * in time linear in their number, where adding them one at a time would
+     * build a tree as tall as their number in quadratic time.
+     *
+     * @param <T>
+     *            type of elements
+     * @param sorted
+     *            the elements, in increasing order
+     * @return the set of the elements
+     * @updates sorted
+     * @requires <pre>
+     * [the elements remaining in sorted are not null and are strictly
+     *  increasing]
+     * </pre>
+     * @ensures <pre>
+     * fromSorted = [the elements remaining in #sorted]  and
+     * ~sorted.hasNext()
+     * </pre>
+     */
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(
+            Iterator<T> sorted) {
+        assert sorted != null : "Violation of: sorted is not null";
+
+        List<T> labels = new ArrayList<>();
+        while (sorted.hasNext()) {
+            labels.add(sorted.next());
+        }
+        return setOf(labels);
+    }
+
+    /**
+     * Returns a new {@code Set3a} of the elements in {@code this} or in
+     * {@code s}, by merging the two in order; takes time linear in
+     * {@code |this| + |s|}.
+     *
+     * @param s
+     *            the other set
+     * @return the union
+     * @ensures union = this union s
+     */
+    public final Set3a<T> union(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+
+        return setOf(merge(this.iterator(), s.iterator(), true, true, true));
+    }
+
+    /**
+     * Returns a new {@code Set3a} of the elements in both {@code this} and
+     * {@code s}, by merging the two in order; takes time linear in
+     * {@code |this| + |s|}.
+     *
+     * @param s
+     *            the other set
+     * @return the intersection
+     * @ensures intersection = this intersection s
+     */
+    public final Set3a<T> intersection(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+
+        return setOf(
+                merge(this.iterator(), s.iterator(), false, false, true));
+    }
+
+    /**
+     * Returns a new {@code Set3a} of the elements in {@code this} but not in
+     * {@code s}, by merging the two in order; takes time linear in
+     * {@code |this| + |s|}.
+     *
+     * @param s
+     *            the other set
+     * @return the difference
+     * @ensures difference = this \ s
+     */
+    public final Set3a<T> difference(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+
+        return setOf(
+                merge(this.iterator(), s.iterator(), true, false, false));
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3a}: visits
+     * the labels between two optional bounds in increasing order, keeping the
+     * path of nodes whose labels are still to come on a stack.
+     */
+    private final class Set3aIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels, and right subtrees, are still to be visited;
+         * the next one on top.
+         */
+        private final Deque<Node<T>> path;
+
+        /**
+         * Largest label to be visited, or null if there is no upper bound.
+         */
+        private final T hi;
+
+        /**
+         * Constructor.
+         *
+         * @param lo
+         *            smallest label to be visited, or null if there is no
+         *            lower bound
+         * @param hi
+         *            largest label to be visited, or null if there is no
+         *            upper bound
+         */
+        Set3aIterator(T lo, T hi) {
+            this.path = new ArrayDeque<>();
+            this.hi = hi;
+            /*
+             * Push the nodes on the search path for lo whose labels are at
+             * least lo; the other nodes on it, and their left subtrees, are
+             * all below the range.
+             */
+            Node<T> n = Set3a.this.root;
+            while (n != null) {
+                if (lo == null || lo.compareTo(n.label) <= 0) {
+                    this.path.push(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+
+        /**
+         * Pushes {@code t} and its chain of left children.
+         *
+         * @param t
+         *            the subtree, or null
+         */
+        private void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.path.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty() && (this.hi == null
+                    || this.path.peek().label.compareTo(this.hi) <= 0);
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.path.pop();
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
     }
 
 }
@@ -0,0 +1,532 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as an AVL tree: a binary search tree, as in
+ * {@code Set3a}, kept balanced so that the heights of the two subtrees of
+ * every node differ by at most one. The height of a tree with {@code n}
+ * nodes is then less than {@code 1.45 log2(n + 2)}, so {@code add},
+ * {@code remove}, {@code removeAny}, and {@code contains} take
+ * {@code O(log n)} time (and recursion depth) whatever order the elements
+ * arrive in; {@code Set3a} degenerates into a list when they arrive sorted.
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ *
+ * IS_AVL(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree of tree, the heights of its left and right subtrees
+ *   differ by at most 1]
+ * </pre>
+ * @convention <pre>
+ * IS_BST($this.root)  and  IS_AVL($this.root)  and
+ * [the height field of each node of $this.root is the height of the subtree
+ *  rooted at it]  and
+ * $this.size = |labels($this.root)|
+ * </pre>
+ * @correspondence this = labels($this.root)
+ *
+ * @author Leo Zhuang, Michael Xu, Jeng Zhuang
+ *
+ */
+public class Set4<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node of the tree.
+     *
+     * @param <T>
+     *            type of labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of this node.
+         */
+        private final T label;
+
+        /**
+         * Left subtree, or {@code null} if it is empty.
+         */
+        private Node<T> left;
+
+        /**
+         * Right subtree, or {@code null} if it is empty.
+         */
+        private Node<T> right;
+
+        /**
+         * Height of the subtree rooted at this node.
+         */
+        private int height;
+
+        /**
+         * Constructor for a leaf.
+         *
+         * @param label
+         *            the label
+         */
+        Node(T label) {
+            this.label = label;
+            this.left = null;
+            this.right = null;
+            this.height = 1;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or {@code null} if it is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Returns the height of {@code t}.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the tree, or null
+     * @return the height of t
+     * @ensures height = ht(t)
+     */
+    private static <T> int height(Node<T> t) {
+        int h = 0;
+        if (t != null) {
+            h = t.height;
+        }
+        return h;
+    }
+
+    /**
+     * Recomputes the height field of {@code t} from its subtrees.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the node
+     * @updates t.height
+     * @requires [the height fields of t's children are correct]
+     */
+    private static <T> void updateHeight(Node<T> t) {
+        t.height = 1 + Math.max(height(t.left), height(t.right));
+    }
+
+    /**
+     * Rotates {@code t} right: its left child becomes the root.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates t
+     * @requires t.left /= null
+     * @ensures [rotateRight has the same labels, in the same order, as #t]
+     */
+    private static <T> Node<T> rotateRight(Node<T> t) {
+        Node<T> newRoot = t.left;
+        t.left = newRoot.right;
+        newRoot.right = t;
+        updateHeight(t);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Rotates {@code t} left: its right child becomes the root.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates t
+     * @requires t.right /= null
+     * @ensures [rotateLeft has the same labels, in the same order, as #t]
+     */
+    private static <T> Node<T> rotateLeft(Node<T> t) {
+        Node<T> newRoot = t.right;
+        t.right = newRoot.left;
+        newRoot.left = t;
+        updateHeight(t);
+        updateHeight(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Restores the balance of {@code t}, whose subtrees are balanced and
+     * differ in height by at most two, with one or two rotations.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates t
+     * @requires <pre>
+     * IS_AVL(t.left)  and  IS_AVL(t.right)  and
+     * |ht(t.left) - ht(t.right)| <= 2
+     * </pre>
+     * @ensures <pre>
+     * IS_AVL(balance)  and
+     * [balance has the same labels, in the same order, as #t]
+     * </pre>
+     */
+    private static <T> Node<T> balance(Node<T> t) {
+        Node<T> result = t;
+        int skew = height(t.left) - height(t.right);
+        if (skew > 1) {
+            if (height(t.left.left) < height(t.left.right)) {
+                t.left = rotateLeft(t.left);
+            }
+            result = rotateRight(t);
+        } else if (skew < -1) {
+            if (height(t.right.right) < height(t.right.left)) {
+                t.right = rotateRight(t.right);
+            }
+            result = rotateLeft(t);
+        } else {
+            updateHeight(t);
+        }
+        return result;
+    }
+
+    /**
+     * Inserts {@code x} in {@code t} and returns the rebalanced tree.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the tree, or null
+     * @param x
+     *            the label to be inserted
+     * @return the new root of the tree
+     * @aliases reference {@code x}
+     * @updates t
+     * @requires IS_BST(t) and IS_AVL(t) and x is not in labels(t)
+     * @ensures <pre>
+     * IS_BST(insertInTree)  and  IS_AVL(insertInTree)  and
+     * labels(insertInTree) = labels(#t) union {x}
+     * </pre>
+     */
+    private static <T extends Comparable<T>> Node<T> insertInTree(Node<T> t,
+            T x) {
+        Node<T> result;
+        if (t == null) {
+            result = new Node<T>(x);
+        } else {
+            if (x.compareTo(t.label) < 0) {
+                t.left = insertInTree(t.left, x);
+            } else {
+                t.right = insertInTree(t.right, x);
+            }
+            result = balance(t);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the smallest (left-most) node of {@code t}, stores it in
+     * {@code smallest[0]}, and returns the rebalanced rest of the tree.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the tree
+     * @param smallest
+     *            array whose entry 0 receives the removed node
+     * @return the new root of the tree
+     * @updates t, smallest
+     * @requires IS_BST(t) and IS_AVL(t) and t /= null
+     * @ensures <pre>
+     * IS_BST(removeSmallest)  and  IS_AVL(removeSmallest)  and
+     * smallest[0].label = [the smallest label in #t]  and
+     * labels(removeSmallest) = labels(#t) \ {smallest[0].label}
+     * </pre>
+     */
+    private static <T> Node<T> removeSmallest(Node<T> t, Node<T>[] smallest) {
+        Node<T> result;
+        if (t.left == null) {
+            smallest[0] = t;
+            result = t.right;
+        } else {
+            t.left = removeSmallest(t.left, smallest);
+            result = balance(t);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the node labeled {@code x} from {@code t}, stores it in
+     * {@code removed[0]}, and returns the rebalanced rest of the tree.
+     *
+     * @param <T>
+     *            type of labels
+     * @param t
+     *            the tree
+     * @param x
+     *            the label to be removed
+     * @param removed
+     *            array whose entry 0 receives the removed node
+     * @return the new root of the tree
+     * @updates t, removed
+     * @requires IS_BST(t) and IS_AVL(t) and x is in labels(t)
+     * @ensures <pre>
+     * IS_BST(removeFromTree)  and  IS_AVL(removeFromTree)  and
+     * removed[0].label = x  and
+     * labels(removeFromTree) = labels(#t) \ {x}
+     * </pre>
+     */
+    private static <T extends Comparable<T>> Node<T> removeFromTree(
+            Node<T> t, T x, Node<T>[] removed) {
+        assert t != null : "Violation of: x is in labels(t)";
+        Node<T> result;
+        int compare = x.compareTo(t.label);
+        if (compare < 0) {
+            t.left = removeFromTree(t.left, x, removed);
+            result = balance(t);
+        } else if (compare > 0) {
+            t.right = removeFromTree(t.right, x, removed);
+            result = balance(t);
+        } else {
+            removed[0] = t;
+            if (t.left == null) {
+                result = t.right;
+            } else if (t.right == null) {
+                result = t.left;
+            } else {
+                /*
+                 * Replace t by the smallest node of its right subtree.
+                 */
+                Node<T>[] successor = newHolder();
+                Node<T> right = removeSmallest(t.right, successor);
+                successor[0].left = t.left;
+                successor[0].right = right;
+                result = balance(successor[0]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an array of one node, to receive a node from
+     * {@code removeSmallest} or {@code removeFromTree}.
+     *
+     * @param <T>
+     *            type of labels
+     * @return a new array of length 1
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newHolder() {
+        /*
+         * With "new Node<T>[...]" in place of "new Node[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked
+         * conversion, though it cannot fail.
+         */
+        return new Node[1];
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set4<?> : ""
+                + "Violation of: source is of dynamic type Set4<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set4<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set4<T> localSource = (Set4<T>) source;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.root = insertInTree(this.root, x);
+        this.size++;
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        Node<T>[] removed = newHolder();
+        this.root = removeFromTree(this.root, x, removed);
+        this.size--;
+        return removed[0].label;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node<T>[] removed = newHolder();
+        this.root = removeSmallest(this.root, removed);
+        this.size--;
+        return removed[0].label;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Node<T> t = this.root;
+        int compare = 1;
+        while (t != null && compare != 0) {
+            compare = x.compareTo(t.label);
+            if (compare < 0) {
+                t = t.left;
+            } else if (compare > 0) {
+                t = t.right;
+            }
+        }
+        return t != null;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set4Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set4}: visits
+     * the labels in increasing order, keeping the path of nodes whose labels
+     * are still to come on a stack.
+     */
+    private final class Set4Iterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels, and right subtrees, are still to be visited;
+         * the next one on top.
+         */
+        private final Deque<Node<T>> path;
+
+        /**
+         * No-argument constructor.
+         */
+        Set4Iterator() {
+            this.path = new ArrayDeque<>();
+            this.pushLeftPath(Set4.this.root);
+        }
+
+        /**
+         * Pushes {@code t} and its chain of left children.
+         *
+         * @param t
+         *            the subtree, or null
+         */
+        private void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.path.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.path.pop();
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import components.set.Set;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the time {@code Set4} and {@code Set3a} take to add, look up, and
+ * remove keys that arrive in increasing, decreasing, and random order. Sorted
+ * keys turn the unbalanced tree of {@code Set3a} into a list, so each of its
+ * operations takes time linear in the size; the AVL tree of {@code Set4}
+ * stays logarithmic in every order. {@code Set3a} is
+ * therefore measured only on small sizes, where its quadratic cost on sorted
+ * input still finishes quickly.
+ *
+ * @author Leo Zhuang, Michael Xu, Jeng Zhuang
+ *
+ */
+public final class Set4Benchmark {
+
+    /**
+     * Sizes at which both implementations are measured.
+     */
+    private static final int[] SMALL_SIZES = { 250, 500, 1_000 };
+
+    /**
+     * Sizes at which only {@code Set4} is measured.
+     */
+    private static final int[] LARGE_SIZES = { 100_000, 1_000_000 };
+
+    /**
+     * Number of untimed runs before each measurement.
+     */
+    private static final int WARMUP_RUNS = 2;
+
+    /**
+     * Number of timed runs averaged for each measurement.
+     */
+    private static final int TIMED_RUNS = 3;
+
+    /**
+     * Seed for the random order.
+     */
+    private static final long SEED = 2024;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Orders in which keys are inserted.
+     */
+    private enum Order {
+        /**
+         * Increasing order.
+         */
+        SORTED,
+
+        /**
+         * Decreasing order.
+         */
+        REVERSED,
+
+        /**
+         * Random order.
+         */
+        RANDOM
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Set4Benchmark() {
+    }
+
+    /**
+     * Returns the keys 0 through {@code n - 1} in the given order.
+     *
+     * @param n
+     *            the number of keys
+     * @param order
+     *            the order
+     * @return the keys
+     */
+    private static Integer[] keys(int n, Order order) {
+        Integer[] keys = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        if (order == Order.REVERSED) {
+            for (int i = 0; i < n; i++) {
+                keys[i] = n - 1 - i;
+            }
+        } else if (order == Order.RANDOM) {
+            SplittableRandom rnd = new SplittableRandom(SEED);
+            for (int i = n - 1; i > 0; i--) {
+                int j = rnd.nextInt(i + 1);
+                Integer tmp = keys[i];
+                keys[i] = keys[j];
+                keys[j] = tmp;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Adds all of {@code keys} to a new set, looks each one up, and removes
+     * them all in the same order; returns the elapsed milliseconds.
+     *
+     * @param factory
+     *            makes the set
+     * @param keys
+     *            the keys
+     * @return elapsed milliseconds
+     */
+    private static double runOnce(Supplier<Set<Integer>> factory,
+            Integer[] keys) {
+        Set<Integer> s = factory.get();
+        long begin = System.nanoTime();
+        for (Integer k : keys) {
+            s.add(k);
+        }
+        int found = 0;
+        for (Integer k : keys) {
+            if (s.contains(k)) {
+                found++;
+            }
+        }
+        for (Integer k : keys) {
+            s.remove(k);
+        }
+        double elapsed = (System.nanoTime() - begin) / NANOS_PER_MILLI;
+        assert found == keys.length : "Violation of: all keys found";
+        return elapsed;
+    }
+
+    /**
+     * Returns the time, in milliseconds, to run the workload on
+     * {@code keys}, averaged over several runs.
+     *
+     * @param factory
+     *            makes the set
+     * @param keys
+     *            the keys
+     * @return average elapsed milliseconds
+     */
+    private static double time(Supplier<Set<Integer>> factory,
+            Integer[] keys) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runOnce(factory, keys);
+        }
+        double total = 0;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            total += runOnce(factory, keys);
+        }
+        return total / TIMED_RUNS;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        out.println("size\torder\tSet4\tSet3a (ms)");
+        for (int n : SMALL_SIZES) {
+            for (Order order : Order.values()) {
+                Integer[] keys = keys(n, order);
+                double balanced = time(Set4<Integer>::new, keys);
+                double unbalanced = time(Set3a<Integer>::new, keys);
+                out.println(n + "\t" + order + "\t"
+                        + String.format("%.2f", balanced) + "\t"
+                        + String.format("%.2f", unbalanced));
+            }
+        }
+        for (int n : LARGE_SIZES) {
+            for (Order order : Order.values()) {
+                Integer[] keys = keys(n, order);
+                double balanced = time(Set4<Integer>::new, keys);
+                out.println(n + "\t" + order + "\t"
+                        + String.format("%.2f", balanced) + "\t-");
+            }
+        }
+        out.close();
+    }
+
+}
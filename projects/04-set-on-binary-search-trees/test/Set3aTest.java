@@ -1,3 +1,13 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.Test;
+
 import components.set.Set;
 import components.set.Set1L;
 
@@ -6,6 +16,45 @@ import components.set.Set1L;
  */
 public class Set3aTest extends SetTest {
 
+    /**
+     * Number of elements in the sorted-insertion test; a recursive search of
+     * a tree this tall would overflow the stack.
+     */
+    private static final int DEEP = 20_000;
+
+    /**
+     * Returns a {@code Set3a} of the given elements, added in order.
+     *
+     * @param args
+     *            the elements
+     * @return the set
+     */
+    private static Set3a<Integer> setOf(int... args) {
+        Set3a<Integer> s = new Set3a<Integer>();
+        for (int x : args) {
+            s.add(x);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the elements left in {@code it}, separated by spaces.
+     *
+     * @param it
+     *            the iterator
+     * @return the elements
+     */
+    private static String drain(Iterator<Integer> it) {
+        StringBuilder sb = new StringBuilder();
+        while (it.hasNext()) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(it.next());
+        }
+        return sb.toString();
+    }
+
     @Override
     protected final Set<String> constructorTest() {
         return new Set3a<String>();
@@ -16,4 +65,200 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /**
+     * Tests a tree made into a single path by sorted insertion, removing from
+     * the bottom, the top, and with removeAny.
+     */
+    @Test
+    public void testSortedDegenerateTree() {
+        Set<Integer> s = new Set3a<Integer>();
+        for (int i = 0; i < DEEP; i++) {
+            s.add(i);
+        }
+        assertEquals(DEEP, s.size());
+        assertEquals(DEEP - 1, (int) s.remove(DEEP - 1));
+        assertEquals(0, (int) s.remove(0));
+        assertEquals(1, (int) s.removeAny());
+        assertEquals(DEEP - 3, s.size());
+        int expected = 2;
+        for (int x : s) {
+            assertEquals(expected, x);
+            expected++;
+        }
+        assertEquals(DEEP - 1, expected);
+    }
+
+    /**
+     * Tests first and last.
+     */
+    @Test
+    public void testFirstLast() {
+        Set3a<Integer> s = setOf(50, 20, 80, 10, 30, 90);
+        assertEquals(10, (int) s.first());
+        assertEquals(90, (int) s.last());
+        Set3a<Integer> one = setOf(7);
+        assertEquals(7, (int) one.first());
+        assertEquals(7, (int) one.last());
+    }
+
+    /**
+     * Tests floor and ceiling on present, absent, and out-of-range values.
+     */
+    @Test
+    public void testFloorCeiling() {
+        Set3a<Integer> s = setOf(50, 20, 80, 10, 30, 90);
+        assertEquals(30, (int) s.floor(30));
+        assertEquals(30, (int) s.ceiling(30));
+        assertEquals(30, (int) s.floor(49));
+        assertEquals(50, (int) s.ceiling(31));
+        assertEquals(80, (int) s.floor(85));
+        assertEquals(20, (int) s.ceiling(11));
+        assertNull(s.floor(9));
+        assertNull(s.ceiling(91));
+        assertEquals(90, (int) s.floor(1000));
+        assertEquals(10, (int) s.ceiling(-1000));
+        assertNull(new Set3a<Integer>().floor(0));
+    }
+
+    /**
+     * Tests range with bounds that are and are not elements.
+     */
+    @Test
+    public void testRange() {
+        Set3a<Integer> s = setOf(50, 20, 80, 10, 30, 90, 60, 70);
+        assertEquals("20 30 50", drain(s.range(20, 50)));
+        assertEquals("30 50 60", drain(s.range(21, 65)));
+        assertEquals("10 20 30 50 60 70 80 90", drain(s.range(0, 100)));
+        assertEquals("70", drain(s.range(70, 70)));
+        assertEquals("", drain(s.range(61, 69)));
+        assertEquals("", drain(s.range(95, 99)));
+        assertFalse(s.range(60, 50).hasNext());
+    }
+
+    /**
+     * Tests range on a tree made into a single path by sorted insertion.
+     */
+    @Test
+    public void testRangeDegenerateTree() {
+        Set3a<Integer> s = new Set3a<Integer>();
+        for (int i = 0; i < DEEP; i++) {
+            s.add(i);
+        }
+        Iterator<Integer> it = s.range(DEEP - 3, DEEP + 3);
+        assertEquals((DEEP - 3) + " " + (DEEP - 2) + " " + (DEEP - 1),
+                drain(it));
+    }
+
+    /**
+     * Tests select at every position and rank of elements and non-elements.
+     */
+    @Test
+    public void testSelectRank() {
+        Set3a<Integer> s = setOf(50, 20, 80, 10, 30, 90, 60, 70);
+        int[] sorted = { 10, 20, 30, 50, 60, 70, 80, 90 };
+        for (int k = 0; k < sorted.length; k++) {
+            assertEquals(sorted[k], (int) s.select(k));
+            assertEquals(k, s.rank(sorted[k]));
+            assertEquals(k + 1, s.rank(sorted[k] + 1));
+        }
+        assertEquals(0, s.rank(0));
+        assertEquals(sorted.length, s.rank(100));
+    }
+
+    /**
+     * Tests that select, rank, and size follow removals, including of a node
+     * with two children.
+     */
+    @Test
+    public void testSelectRankAfterRemove() {
+        Set3a<Integer> s = setOf(50, 20, 80, 10, 30, 90, 60, 70);
+        s.remove(50);
+        s.remove(10);
+        s.removeAny();
+        assertEquals(5, s.size());
+        assertEquals(30, (int) s.select(0));
+        assertEquals(60, (int) s.select(1));
+        assertEquals(90, (int) s.select(4));
+        assertEquals(1, s.rank(50));
+        assertEquals(3, s.rank(80));
+    }
+
+    /**
+     * Tests fromSorted on no elements, one element, and many.
+     */
+    @Test
+    public void testFromSorted() {
+        Set3a<Integer> empty = Set3a.fromSorted(
+                Collections.<Integer>emptyList().iterator());
+        assertEquals(0, empty.size());
+        Set3a<Integer> one = Set3a.fromSorted(Arrays.asList(4).iterator());
+        assertEquals("4", drain(one.iterator()));
+        Set3a<Integer> s = Set3a
+                .fromSorted(Arrays.asList(1, 3, 5, 7, 9, 11).iterator());
+        assertEquals(6, s.size());
+        assertEquals("1 3 5 7 9 11", drain(s.iterator()));
+        assertEquals(7, (int) s.select(3));
+        assertEquals(2, s.rank(5));
+        s.add(6);
+        s.remove(7);
+        assertEquals("1 3 5 6 9 11", drain(s.iterator()));
+    }
+
+    /**
+     * Tests fromSorted on many elements, which a sorted add would have made
+     * into a single path.
+     */
+    @Test
+    public void testFromSortedMany() {
+        Set3a<Integer> s = Set3a.fromSorted(new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < DEEP;
+            }
+
+            @Override
+            public Integer next() {
+                this.next++;
+                return this.next - 1;
+            }
+        });
+        assertEquals(DEEP, s.size());
+        for (int k = 0; k < DEEP; k++) {
+            assertEquals(k, (int) s.select(k));
+        }
+    }
+
+    /**
+     * Tests union, intersection, and difference of overlapping sets, leaving
+     * both operands unchanged.
+     */
+    @Test
+    public void testUnionIntersectionDifference() {
+        Set3a<Integer> a = setOf(50, 20, 80, 10, 30);
+        Set3a<Integer> b = setOf(30, 40, 90, 10);
+        assertEquals("10 20 30 40 50 80 90", drain(a.union(b).iterator()));
+        assertEquals("10 30", drain(a.intersection(b).iterator()));
+        assertEquals("20 50 80", drain(a.difference(b).iterator()));
+        assertEquals("40 90", drain(b.difference(a).iterator()));
+        assertEquals(7, a.union(b).size());
+        assertEquals("10 20 30 50 80", drain(a.iterator()));
+        assertEquals("10 30 40 90", drain(b.iterator()));
+    }
+
+    /**
+     * Tests union, intersection, and difference with an empty set.
+     */
+    @Test
+    public void testBulkWithEmpty() {
+        Set3a<Integer> a = setOf(2, 1, 3);
+        Set3a<Integer> e = new Set3a<Integer>();
+        assertEquals("1 2 3", drain(a.union(e).iterator()));
+        assertEquals("1 2 3", drain(e.union(a).iterator()));
+        assertEquals(0, a.intersection(e).size());
+        assertEquals("1 2 3", drain(a.difference(e).iterator()));
+        assertEquals(0, e.difference(a).size());
+    }
+
 }
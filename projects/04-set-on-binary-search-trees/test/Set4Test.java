@@ -0,0 +1,73 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set4}, with tests of the orders of
+ * insertion that make an unbalanced tree degenerate.
+ */
+public class Set4Test extends SetTest {
+
+    /**
+     * Number of elements for the ordered-insertion tests; an unbalanced tree
+     * this deep would overflow the stack.
+     */
+    private static final int MANY = 100_000;
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set4<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Tests adding elements in increasing order, then removing every other
+     * one, and that iteration visits the rest in increasing order.
+     */
+    @Test
+    public void testSortedAddRemove() {
+        Set<Integer> s = new Set4<Integer>();
+        for (int i = 0; i < MANY; i++) {
+            s.add(i);
+        }
+        assertEquals(MANY, s.size());
+        for (int i = 0; i < MANY; i += 2) {
+            assertEquals(i, (int) s.remove(i));
+        }
+        assertEquals(MANY / 2, s.size());
+        assertFalse(s.contains(0));
+        assertTrue(s.contains(MANY - 1));
+        int expected = 1;
+        for (int x : s) {
+            assertEquals(expected, x);
+            expected += 2;
+        }
+        assertEquals(MANY + 1, expected);
+    }
+
+    /**
+     * Tests adding elements in decreasing order, then draining with
+     * removeAny, which removes the smallest.
+     */
+    @Test
+    public void testReverseSortedRemoveAny() {
+        Set<Integer> s = new Set4<Integer>();
+        for (int i = MANY - 1; i >= 0; i--) {
+            s.add(i);
+        }
+        for (int i = 0; i < MANY; i++) {
+            assertEquals(i, (int) s.removeAny());
+        }
+        assertEquals(0, s.size());
+    }
+
+}
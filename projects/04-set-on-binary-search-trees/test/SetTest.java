@@ -208,3 +208,5 @@ public abstract class SetTest {
         Set<String> s = this.createFromArgsTest("red", "green", "blue");
         assertEquals(3, s.size());
     }
+
+}